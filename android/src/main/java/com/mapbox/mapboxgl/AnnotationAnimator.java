@@ -0,0 +1,184 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.view.Choreographer;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves annotations towards target positions and bearings on every Choreographer frame.
+ * <p>
+ * Animations are keyed by the registry key of their annotation. Each frame the listener moves
+ * every animated annotation to its interpolated position and is then told that the frame ended,
+ * so that all moved annotations are pushed with a single update per manager. Animations start on
+ * the first frame after they were added and replace any running animation of their annotation.
+ */
+class AnnotationAnimator implements Choreographer.FrameCallback {
+  // in the order of SymbolAnimationEasing on the Dart side
+  static final int LINEAR = 0;
+  static final int EASE_IN = 1;
+  static final int EASE_OUT = 2;
+  static final int EASE_IN_OUT = 3;
+
+  interface Listener {
+    /**
+     * Moves an annotation to an interpolated position, {@code bearing} is null if the animation
+     * does not rotate it.
+     */
+    void onAnimationStep(long key, LatLng position, Float bearing);
+
+    /**
+     * Invoked after all animated annotations were moved in a frame, with the keys of the
+     * annotations whose animations finished.
+     */
+    void onAnimationFrame(List<Long> finished);
+  }
+
+  private static final class Animation {
+    final double fromLatitude;
+    final double fromLongitude;
+    final double toLatitude;
+    final double toLongitude;
+    final float fromBearing;
+    final float bearingDelta;
+    final boolean rotates;
+    final long durationNanos;
+    final int easing;
+    long startNanos = -1;
+
+    Animation(LatLng from, LatLng to, Float fromBearing, Float toBearing, long durationMs, int easing) {
+      this.fromLatitude = from.getLatitude();
+      this.fromLongitude = from.getLongitude();
+      this.toLatitude = to.getLatitude();
+      // cross the antimeridian if that is the shorter way
+      this.toLongitude = from.getLongitude() + wrap(to.getLongitude() - from.getLongitude(), 360);
+      this.rotates = toBearing != null;
+      this.fromBearing = fromBearing != null ? fromBearing : 0;
+      this.bearingDelta = rotates ? (float) wrap(toBearing - this.fromBearing, 360) : 0;
+      this.durationNanos = Math.max(0, durationMs) * 1000000L;
+      this.easing = easing;
+    }
+  }
+
+  private final Listener listener;
+  private final Map<Long, Animation> animations = new LinkedHashMap<>();
+  private boolean frameScheduled;
+
+  AnnotationAnimator(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Animates an annotation from its current position and bearing to the given ones.
+   *
+   * @param fromBearing the current bearing, or null if it is unknown
+   * @param toBearing   the target bearing, or null to keep the current one
+   */
+  void animate(long key, LatLng from, LatLng to, Float fromBearing, Float toBearing,
+               long durationMs, int easing) {
+    animations.put(key, new Animation(from, to, fromBearing, toBearing, durationMs, easing));
+    scheduleFrame();
+  }
+
+  /**
+   * Stops the animation of an annotation where it is, without reporting it as finished.
+   */
+  void cancel(long key) {
+    animations.remove(key);
+  }
+
+  int size() {
+    return animations.size();
+  }
+
+  boolean isAnimating(long key) {
+    return !animations.isEmpty() && animations.containsKey(key);
+  }
+
+  /**
+   * Returns the keys of the animated annotations, backed by the running animations.
+   */
+  Set<Long> keys() {
+    return animations.keySet();
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    if (animations.isEmpty()) {
+      return;
+    }
+    final List<Long> finished = new ArrayList<>();
+    final Iterator<Map.Entry<Long, Animation>> iterator = animations.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Long, Animation> entry = iterator.next();
+      final Animation animation = entry.getValue();
+      if (animation.startNanos < 0) {
+        animation.startNanos = frameTimeNanos;
+      }
+      final long elapsed = frameTimeNanos - animation.startNanos;
+      final double fraction = animation.durationNanos == 0
+        ? 1 : Math.min(1, (double) elapsed / animation.durationNanos);
+      final double t = ease(animation.easing, fraction);
+      final LatLng position = new LatLng(
+        animation.fromLatitude + (animation.toLatitude - animation.fromLatitude) * t,
+        wrap(animation.fromLongitude + (animation.toLongitude - animation.fromLongitude) * t, 360));
+      final Float bearing = animation.rotates
+        ? (float) ((animation.fromBearing + animation.bearingDelta * t + 360) % 360) : null;
+      if (fraction >= 1) {
+        iterator.remove();
+        finished.add(entry.getKey());
+      }
+      listener.onAnimationStep(entry.getKey(), position, bearing);
+    }
+    listener.onAnimationFrame(finished);
+    if (!animations.isEmpty()) {
+      scheduleFrame();
+    }
+  }
+
+  void dispose() {
+    if (frameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      frameScheduled = false;
+    }
+    animations.clear();
+  }
+
+  private static double ease(int easing, double t) {
+    switch (easing) {
+      case EASE_IN:
+        return t * t * t;
+      case EASE_OUT:
+        return 1 - (1 - t) * (1 - t) * (1 - t);
+      case EASE_IN_OUT:
+        return t < 0.5 ? 4 * t * t * t : 1 - Math.pow(-2 * t + 2, 3) / 2;
+      default:
+        return t;
+    }
+  }
+
+  /**
+   * Wraps a difference of angles into [-range / 2, range / 2).
+   */
+  private static double wrap(double value, double range) {
+    return ((value + range / 2) % range + range) % range - range / 2;
+  }
+
+  private void scheduleFrame() {
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+}
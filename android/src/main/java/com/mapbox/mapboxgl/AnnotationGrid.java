@@ -0,0 +1,293 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over web mercator holding the positions of annotations by their registry key.
+ * <p>
+ * Used for the annotations that are kept out of their managers while off screen and for the
+ * materialized ones that may have to leave them, see {@link MapboxMapController}. Cells are the
+ * tiles of a fixed zoom and only allocated once they hold an annotation, each storing its keys
+ * and positions in flat arrays. The cell and slot of every key are tracked, so that annotations
+ * are moved and removed without searching. Queries visit the cells overlapping the bounds, or the
+ * allocated cells if there are fewer of them, and only return the annotations inside the bounds.
+ */
+class AnnotationGrid {
+  private static final int CELL_ZOOM = 10;
+  private static final int CELLS = 1 << CELL_ZOOM;
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  /**
+   * Geographic bounds that may cross the antimeridian, in which case the east longitude exceeds
+   * 180.
+   */
+  static final class Region {
+    final double west;
+    final double south;
+    final double east;
+    final double north;
+
+    Region(double west, double south, double east, double north) {
+      this.west = west;
+      this.south = south;
+      this.east = east;
+      this.north = north;
+    }
+
+    static Region of(LatLngBounds bounds) {
+      double east = bounds.getLonEast();
+      if (east < bounds.getLonWest()) {
+        east += 360;
+      }
+      return new Region(bounds.getLonWest(), bounds.getLatSouth(), east, bounds.getLatNorth());
+    }
+
+    /**
+     * Returns these bounds grown on every side by the given fraction of their size.
+     */
+    Region expand(double margin) {
+      final double dx = (east - west) * margin;
+      final double dy = (north - south) * margin;
+      return new Region(west - dx, Math.max(-90, south - dy), east + dx, Math.min(90, north + dy));
+    }
+
+    boolean wrapsWorld() {
+      return east - west >= 360;
+    }
+
+    boolean contains(double latitude, double longitude) {
+      if (latitude < south || latitude > north) {
+        return false;
+      }
+      if (wrapsWorld()) {
+        return true;
+      }
+      return (longitude >= west && longitude <= east)
+        || (longitude + 360 >= west && longitude + 360 <= east)
+        || (longitude - 360 >= west && longitude - 360 <= east);
+    }
+
+    boolean contains(LatLng position) {
+      return contains(position.getLatitude(), position.getLongitude());
+    }
+
+    boolean contains(Region region) {
+      if (region.south < south || region.north > north) {
+        return false;
+      }
+      if (wrapsWorld()) {
+        return true;
+      }
+      final double regionWest = west + ((region.west - west) % 360 + 360) % 360;
+      return regionWest + region.east - region.west <= east;
+    }
+  }
+
+  private static final class Cell {
+    final int index;
+    long[] keys = new long[4];
+    double[] coords = new double[8];
+    int size;
+    // the bounds of the cell, computed on the first query for the annotations outside a region
+    Region bounds;
+
+    Cell(int index) {
+      this.index = index;
+    }
+
+    int add(long key, double latitude, double longitude) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        coords = Arrays.copyOf(coords, size * 4);
+      }
+      keys[size] = key;
+      set(size, latitude, longitude);
+      return size++;
+    }
+
+    void set(int slot, double latitude, double longitude) {
+      coords[2 * slot] = latitude;
+      coords[2 * slot + 1] = longitude;
+    }
+  }
+
+  private final Map<Integer, Cell> cells = new HashMap<>();
+  // the cell index in the high and the slot in the low 32 bits, by key
+  private final LongLongMap locations = new LongLongMap();
+
+  int size() {
+    return locations.size();
+  }
+
+  /**
+   * Adds an annotation, or moves it if it is already in the grid.
+   */
+  void put(long key, LatLng position) {
+    final double latitude = position.getLatitude();
+    final double longitude = position.getLongitude();
+    final int cell = cell(latitude, longitude);
+    final long location = locations.get(key, -1);
+    if (location != -1) {
+      if ((int) (location >>> 32) == cell) {
+        cells.get(cell).set((int) location, latitude, longitude);
+        return;
+      }
+      remove(key);
+    }
+    Cell entry = cells.get(cell);
+    if (entry == null) {
+      entry = new Cell(cell);
+      cells.put(cell, entry);
+    }
+    locations.put(key, location(cell, entry.add(key, latitude, longitude)));
+  }
+
+  void remove(long key) {
+    final long location = locations.get(key, -1);
+    if (location == -1) {
+      return;
+    }
+    locations.remove(key);
+    final int cell = (int) (location >>> 32);
+    final int slot = (int) location;
+    final Cell entry = cells.get(cell);
+    final int last = --entry.size;
+    if (last == 0) {
+      cells.remove(cell);
+    } else if (slot != last) {
+      entry.keys[slot] = entry.keys[last];
+      entry.set(slot, entry.coords[2 * last], entry.coords[2 * last + 1]);
+      locations.put(entry.keys[slot], location(cell, slot));
+    }
+  }
+
+  void clear() {
+    cells.clear();
+    locations.clear();
+  }
+
+  /**
+   * Adds the keys of the annotations outside the given region to {@code result}. Cells inside
+   * the region are skipped without visiting their annotations.
+   */
+  void queryOutside(Region region, List<Long> result) {
+    for (Cell cell : cells.values()) {
+      if (cell.bounds == null) {
+        cell.bounds = bounds(cell.index);
+      }
+      if (region.contains(cell.bounds)) {
+        continue;
+      }
+      for (int i = 0; i < cell.size; i++) {
+        if (!region.contains(cell.coords[2 * i], cell.coords[2 * i + 1])) {
+          result.add(cell.keys[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the keys of the annotations inside the given region to {@code result}.
+   */
+  void query(Region region, List<Long> result) {
+    if (region.wrapsWorld()) {
+      queryCells(0, CELLS - 1, region, result);
+      return;
+    }
+    final double west = ((region.west + 180) % 360 + 360) % 360 - 180;
+    final double east = west + region.east - region.west;
+    if (east < 180) {
+      queryCells(column(west), column(east), region, result);
+      return;
+    }
+    // bounds crossing the antimeridian cover both ends of the grid
+    final int westColumn = column(west);
+    final int eastColumn = column(east - 360);
+    if (eastColumn >= westColumn) {
+      queryCells(0, CELLS - 1, region, result);
+    } else {
+      queryCells(westColumn, CELLS - 1, region, result);
+      queryCells(0, eastColumn, region, result);
+    }
+  }
+
+  private void queryCells(int west, int east, Region region, List<Long> result) {
+    final int north = row(region.north);
+    final int south = row(region.south);
+    if ((long) (east - west + 1) * (south - north + 1) > cells.size()) {
+      for (Map.Entry<Integer, Cell> entry : cells.entrySet()) {
+        final int column = entry.getKey() % CELLS;
+        final int row = entry.getKey() / CELLS;
+        if (column >= west && column <= east && row >= north && row <= south) {
+          collect(entry.getValue(), region, result);
+        }
+      }
+      return;
+    }
+    for (int row = north; row <= south; row++) {
+      for (int column = west; column <= east; column++) {
+        final Cell entry = cells.get(row * CELLS + column);
+        if (entry != null) {
+          collect(entry, region, result);
+        }
+      }
+    }
+  }
+
+  private static void collect(Cell cell, Region region, List<Long> result) {
+    for (int i = 0; i < cell.size; i++) {
+      if (region.contains(cell.coords[2 * i], cell.coords[2 * i + 1])) {
+        result.add(cell.keys[i]);
+      }
+    }
+  }
+
+  private static long location(int cell, int slot) {
+    return (long) cell << 32 | slot;
+  }
+
+  /**
+   * Returns the bounds of a cell, the cells of the first and last row extend to the poles as
+   * they hold the positions beyond the latitude limit of web mercator.
+   */
+  private static Region bounds(int cell) {
+    final int row = cell / CELLS;
+    final int column = cell % CELLS;
+    final double west = (double) column / CELLS * 360 - 180;
+    final double east = (double) (column + 1) / CELLS * 360 - 180;
+    final double north = row == 0 ? 90 : latitude(row);
+    final double south = row == CELLS - 1 ? -90 : latitude(row + 1);
+    return new Region(west, south, east, north);
+  }
+
+  private static double latitude(int row) {
+    final double n = Math.PI - 2 * Math.PI * row / CELLS;
+    return Math.atan(Math.sinh(n)) * 180 / Math.PI;
+  }
+
+  private static int cell(double latitude, double longitude) {
+    return row(latitude) * CELLS + column(longitude);
+  }
+
+  private static int column(double longitude) {
+    final double wrapped = ((longitude + 180) % 360 + 360) % 360;
+    return Math.min(CELLS - 1, (int) (wrapped / 360 * CELLS));
+  }
+
+  private static int row(double latitude) {
+    final double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    final double sin = Math.sin(clamped * Math.PI / 180);
+    final double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return Math.max(0, Math.min(CELLS - 1, (int) (y * CELLS)));
+  }
+}
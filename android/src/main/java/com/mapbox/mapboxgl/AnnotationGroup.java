@@ -0,0 +1,73 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.Property;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.coalesce;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.product;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
+
+/**
+ * Display state of a named annotation group.
+ * <p>
+ * Every group has its own manager per annotation type, see {@link AnnotationShards}, so the
+ * state is applied to the layer and filter of those managers instead of to the annotations.
+ */
+class AnnotationGroup {
+  private boolean visible = true;
+  private float opacity = 1;
+  private Expression filter;
+
+  void setVisible(boolean visible) {
+    this.visible = visible;
+  }
+
+  void setOpacity(float opacity) {
+    this.opacity = opacity;
+  }
+
+  boolean hasOpacity() {
+    return opacity != 1;
+  }
+
+  void setFilter(Expression filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Returns the manager filter of the group, an expression that matches every annotation if no
+   * filter has been set.
+   */
+  Expression getFilter() {
+    return filter != null ? filter : literal(true);
+  }
+
+  /**
+   * Applies the visibility and opacity to the layer of a manager of this group.
+   * <p>
+   * The opacity scales the per annotation values of the given data driven properties. Managers
+   * replace a data driven layer property when it is first used by one of their annotations, so
+   * this has to be re-applied after annotations of the group have been created or updated.
+   */
+  void applyTo(Layer layer, String... opacityProperties) {
+    if (layer == null) {
+      return;
+    }
+    final PropertyValue<?>[] properties = new PropertyValue<?>[opacityProperties.length + 1];
+    properties[0] = visibility(visible ? Property.VISIBLE : Property.NONE);
+    for (int i = 0; i < opacityProperties.length; i++) {
+      final String property = opacityProperties[i];
+      properties[i + 1] = new PropertyValue<>(property,
+        product(coalesce(get(property), literal(1)), literal(opacity)));
+    }
+    layer.setProperties(properties);
+  }
+}
@@ -0,0 +1,414 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Static R-tree over the geometries of symbols, lines and circles, for hit-testing and region
+ * queries without going through the rendered features.
+ * <p>
+ * Geometries are stored in web mercator coordinates between 0 and 1. The tree is packed: the
+ * entries are sorted along a Hilbert curve by the center of their bounding box and grouped
+ * into nodes of a fixed size level by level, so it is built in a single sort and holds its
+ * boxes in flat arrays. Instances are immutable once built, changed annotations require a new
+ * index.
+ */
+class AnnotationIndex {
+  static final int SYMBOL = 0;
+  static final int LINE = 1;
+  static final int CIRCLE = 2;
+  private static final int NODE_SIZE = 16;
+  private static final double MAX_LATITUDE = 85.05112878;
+  private static final int HILBERT_MAX = (1 << 16) - 1;
+
+  /**
+   * A matched annotation, with its distance to the query in mercator units.
+   */
+  static final class Hit implements Comparable<Hit> {
+    final int type;
+    final long key;
+    final double distance;
+
+    private Hit(int type, long key, double distance) {
+      this.type = type;
+      this.key = key;
+      this.distance = distance;
+    }
+
+    @Override
+    public int compareTo(Hit other) {
+      return Double.compare(distance, other.distance);
+    }
+  }
+
+  /**
+   * Collects the geometries of an index.
+   */
+  static final class Builder {
+    private final List<Integer> types = new ArrayList<>();
+    private final List<Long> keys = new ArrayList<>();
+    private final List<double[]> geometries = new ArrayList<>();
+
+    void addPoint(int type, long key, LatLng position) {
+      if (position != null) {
+        add(type, key, new double[] {x(position.getLongitude()), y(position.getLatitude())});
+      }
+    }
+
+    void addLine(int type, long key, List<LatLng> positions) {
+      if (positions == null || positions.isEmpty()) {
+        return;
+      }
+      final double[] coords = new double[positions.size() * 2];
+      for (int i = 0; i < positions.size(); i++) {
+        coords[2 * i] = x(positions.get(i).getLongitude());
+        coords[2 * i + 1] = y(positions.get(i).getLatitude());
+      }
+      add(type, key, coords);
+    }
+
+    private void add(int type, long key, double[] coords) {
+      types.add(type);
+      keys.add(key);
+      geometries.add(coords);
+    }
+
+    AnnotationIndex build() {
+      return new AnnotationIndex(types, keys, geometries);
+    }
+  }
+
+  private final int count;
+  private final int[] types;
+  private final long[] keys;
+  private final double[][] geometries;
+  // entries first, then the nodes of each level up to the root
+  private final double[] boxes;
+  // the position of the first child of each node, unused for entries
+  private final int[] indices;
+  private final int[] levelBounds;
+
+  private AnnotationIndex(List<Integer> types, List<Long> keys, List<double[]> geometries) {
+    this.count = types.size();
+    this.types = new int[count];
+    this.keys = new long[count];
+    this.geometries = geometries.toArray(new double[0][]);
+    final List<Integer> levels = new ArrayList<>();
+    int nodeCount = count;
+    int levelSize = count;
+    levels.add(nodeCount);
+    while (levelSize > 0) {
+      levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+      nodeCount += levelSize;
+      levels.add(nodeCount);
+      if (levelSize == 1) {
+        break;
+      }
+    }
+    this.levelBounds = new int[levels.size()];
+    for (int i = 0; i < levelBounds.length; i++) {
+      levelBounds[i] = levels.get(i);
+    }
+    this.boxes = new double[nodeCount * 4];
+    this.indices = new int[nodeCount];
+
+    // sort the entries along the Hilbert curve, packing curve position and entry index
+    final long[] order = new long[count];
+    for (int i = 0; i < count; i++) {
+      final double[] box = bounds(this.geometries[i]);
+      final int hx = (int) (HILBERT_MAX * clamp((box[0] + box[2]) / 2));
+      final int hy = (int) (HILBERT_MAX * clamp((box[1] + box[3]) / 2));
+      order[i] = (hilbert(hx, hy) << 31) | i;
+    }
+    Arrays.sort(order);
+    for (int position = 0; position < count; position++) {
+      final int i = (int) (order[position] & Integer.MAX_VALUE);
+      this.types[position] = types.get(i);
+      this.keys[position] = keys.get(i);
+      this.geometries[position] = geometries.get(i);
+      System.arraycopy(bounds(geometries.get(i)), 0, boxes, position * 4, 4);
+    }
+
+    int position = 0;
+    for (int level = 0; level < levelBounds.length - 1; level++) {
+      int node = levelBounds[level];
+      while (position < levelBounds[level]) {
+        final int end = Math.min(position + NODE_SIZE, levelBounds[level]);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        indices[node] = position;
+        for (; position < end; position++) {
+          minX = Math.min(minX, boxes[position * 4]);
+          minY = Math.min(minY, boxes[position * 4 + 1]);
+          maxX = Math.max(maxX, boxes[position * 4 + 2]);
+          maxY = Math.max(maxY, boxes[position * 4 + 3]);
+        }
+        boxes[node * 4] = minX;
+        boxes[node * 4 + 1] = minY;
+        boxes[node * 4 + 2] = maxX;
+        boxes[node * 4 + 3] = maxY;
+        node++;
+      }
+    }
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * Returns the annotations within {@code radius} of the given position, nearest first.
+   *
+   * @param radius the distance in mercator units
+   */
+  List<Hit> queryPoint(LatLng position, double radius) {
+    final double px = x(position.getLongitude());
+    final double py = y(position.getLatitude());
+    final List<Hit> hits = new ArrayList<>();
+    for (int entry : search(px - radius, py - radius, px + radius, py + radius)) {
+      final double distance = distance(geometries[entry], px, py);
+      if (distance <= radius) {
+        hits.add(new Hit(types[entry], keys[entry], distance));
+      }
+    }
+    Collections.sort(hits);
+    return hits;
+  }
+
+  /**
+   * Returns the annotations intersecting the given bounds, nearest to their center first. The
+   * bounds cross the antimeridian if {@code west} is greater than {@code east}.
+   */
+  List<Hit> queryBounds(double south, double west, double north, double east) {
+    final double minY = y(north);
+    final double maxY = y(south);
+    final double minX = x(west);
+    final double maxX = x(east);
+    final double cx = minX <= maxX ? (minX + maxX) / 2 : (minX + maxX + 1) / 2 % 1;
+    final double cy = (minY + maxY) / 2;
+    final List<Hit> hits = new ArrayList<>();
+    if (minX <= maxX) {
+      for (int entry : search(minX, minY, maxX, maxY)) {
+        if (intersects(geometries[entry], minX, minY, maxX, maxY)) {
+          hits.add(new Hit(types[entry], keys[entry], distance(geometries[entry], cx, cy)));
+        }
+      }
+    } else {
+      // both sides of the antimeridian, lines may lie on both
+      final Set<Integer> entries = new LinkedHashSet<>(search(minX, minY, 1, maxY));
+      entries.addAll(search(0, minY, maxX, maxY));
+      for (int entry : entries) {
+        if (intersects(geometries[entry], minX, minY, 1, maxY)
+          || intersects(geometries[entry], 0, minY, maxX, maxY)) {
+          hits.add(new Hit(types[entry], keys[entry], distance(geometries[entry], cx, cy)));
+        }
+      }
+    }
+    Collections.sort(hits);
+    return hits;
+  }
+
+  /**
+   * Returns the entries whose bounding box intersects the given box.
+   */
+  private List<Integer> search(double minX, double minY, double maxX, double maxY) {
+    final List<Integer> result = new ArrayList<>();
+    if (count == 0) {
+      return result;
+    }
+    int[] stack = new int[16];
+    int size = 0;
+    // the root is the only node of the top level
+    int node = indices.length - 1;
+    int level = levelBounds.length - 1;
+    while (true) {
+      final int first = indices[node];
+      final int end = Math.min(first + NODE_SIZE, levelBounds[level - 1]);
+      for (int position = first; position < end; position++) {
+        if (maxX < boxes[position * 4] || maxY < boxes[position * 4 + 1]
+          || minX > boxes[position * 4 + 2] || minY > boxes[position * 4 + 3]) {
+          continue;
+        }
+        if (level == 1) {
+          result.add(position);
+        } else {
+          if (stack.length < size + 2) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          }
+          stack[size++] = position;
+          stack[size++] = level - 1;
+        }
+      }
+      if (size == 0) {
+        return result;
+      }
+      level = stack[--size];
+      node = stack[--size];
+    }
+  }
+
+  /**
+   * Returns the distance of a point or polyline to the given position.
+   */
+  private static double distance(double[] coords, double px, double py) {
+    if (coords.length == 2) {
+      return Math.hypot(coords[0] - px, coords[1] - py);
+    }
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i + 3 < coords.length; i += 2) {
+      min = Math.min(min, segmentDistance(coords[i], coords[i + 1], coords[i + 2], coords[i + 3], px, py));
+    }
+    return min;
+  }
+
+  private static double segmentDistance(double ax, double ay, double bx, double by, double px, double py) {
+    final double dx = bx - ax;
+    final double dy = by - ay;
+    final double length2 = dx * dx + dy * dy;
+    double t = length2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / length2;
+    t = Math.max(0, Math.min(1, t));
+    return Math.hypot(ax + t * dx - px, ay + t * dy - py);
+  }
+
+  /**
+   * Returns true if a point lies in the box or a polyline crosses it.
+   */
+  private static boolean intersects(double[] coords, double minX, double minY, double maxX, double maxY) {
+    if (coords.length == 2) {
+      return coords[0] >= minX && coords[0] <= maxX && coords[1] >= minY && coords[1] <= maxY;
+    }
+    for (int i = 0; i + 3 < coords.length; i += 2) {
+      if (segmentIntersects(coords[i], coords[i + 1], coords[i + 2], coords[i + 3], minX, minY, maxX, maxY)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Clips a segment against a box, following Liang-Barsky.
+   */
+  private static boolean segmentIntersects(double ax, double ay, double bx, double by,
+                                           double minX, double minY, double maxX, double maxY) {
+    final double dx = bx - ax;
+    final double dy = by - ay;
+    final double[] p = {-dx, dx, -dy, dy};
+    final double[] q = {ax - minX, maxX - ax, ay - minY, maxY - ay};
+    double t0 = 0;
+    double t1 = 1;
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        if (q[i] < 0) {
+          return false;
+        }
+      } else {
+        final double t = q[i] / p[i];
+        if (p[i] < 0) {
+          t0 = Math.max(t0, t);
+        } else {
+          t1 = Math.min(t1, t);
+        }
+        if (t0 > t1) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static double[] bounds(double[] coords) {
+    final double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (int i = 0; i < coords.length; i += 2) {
+      box[0] = Math.min(box[0], coords[i]);
+      box[1] = Math.min(box[1], coords[i + 1]);
+      box[2] = Math.max(box[2], coords[i]);
+      box[3] = Math.max(box[3], coords[i + 1]);
+    }
+    return box;
+  }
+
+  private static double clamp(double value) {
+    return Math.max(0, Math.min(1, value));
+  }
+
+  static double x(double longitude) {
+    return longitude / 360 + 0.5;
+  }
+
+  static double y(double latitude) {
+    final double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    final double sin = Math.sin(clamped * Math.PI / 180);
+    return 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+  }
+
+  /**
+   * Returns the position of a 16 bit grid cell along the Hilbert curve.
+   */
+  private static long hilbert(int x, int y) {
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int aa = a | (b >> 1);
+    int bb = (a >> 1) ^ a;
+    int cc = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+    int dd = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >> 2)) ^ (b & (b >> 2));
+    bb = (a & (b >> 2)) ^ (b & ((a ^ b) >> 2));
+    cc ^= (a & (c >> 2)) ^ (b & (d >> 2));
+    dd ^= (b & (c >> 2)) ^ ((a ^ b) & (d >> 2));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >> 4)) ^ (b & (b >> 4));
+    bb = (a & (b >> 4)) ^ (b & ((a ^ b) >> 4));
+    cc ^= (a & (c >> 4)) ^ (b & (d >> 4));
+    dd ^= (b & (c >> 4)) ^ ((a ^ b) & (d >> 4));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    cc ^= (a & (c >> 8)) ^ (b & (d >> 8));
+    dd ^= (b & (c >> 8)) ^ ((a ^ b) & (d >> 8));
+
+    a = cc ^ (cc >> 1);
+    b = dd ^ (dd >> 1);
+
+    int i0 = x ^ y;
+    int i1 = b | (0xFFFF ^ (i0 | a));
+
+    i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+    i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+    i0 = (i0 | (i0 << 2)) & 0x33333333;
+    i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+    i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+    i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+    i1 = (i1 | (i1 << 2)) & 0x33333333;
+    i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+    return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+  }
+}
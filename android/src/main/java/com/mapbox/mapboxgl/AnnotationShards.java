@@ -0,0 +1,124 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions the annotations of one type across several managers.
+ * <p>
+ * Every manager call re-serializes all annotations of that manager into its source, so with a
+ * single manager the cost of a change grows with the total number of annotations. Annotations
+ * are assigned to a shard when they are created, either by a caller chosen group or, when tile
+ * sharding is enabled, by the tile their geometry starts in, and changes only rebuild the source
+ * of their own shard.
+ * <p>
+ * Annotation ids are only unique within a manager, so annotations are registered by a key that
+ * holds the shard above the annotation id. Keys of the first shard equal the annotation ids.
+ */
+class AnnotationShards<M> {
+  private static final int ID_BITS = 40;
+  /**
+   * Lowest id of the annotations that were never added to their manager, which are registered
+   * without an annotation id, see {@link AnnotationGrid}.
+   */
+  static final long VIRTUAL_ID_BASE = 1L << (ID_BITS - 1);
+  private static final int TILE_ZOOM = 10;
+  private static final String DEFAULT_SHARD = "tile:0";
+
+  interface ManagerFactory<M> {
+    M create(int shard, String group);
+  }
+
+  private final ManagerFactory<M> factory;
+  private final List<M> managers = new ArrayList<>();
+  private final List<String> groups = new ArrayList<>();
+  private final Map<String, Integer> shards = new HashMap<>();
+  private int tileShardCount = 1;
+
+  AnnotationShards(ManagerFactory<M> factory) {
+    this.factory = factory;
+  }
+
+  static long key(int shard, long annotationId) {
+    return ((long) shard << ID_BITS) | annotationId;
+  }
+
+  static int shardOf(long key) {
+    return (int) (key >>> ID_BITS);
+  }
+
+  /**
+   * Sets the number of shards annotations without a group are spread across by their tile.
+   * Only affects annotations created afterwards.
+   */
+  void setTileShardCount(int tileShardCount) {
+    this.tileShardCount = Math.max(1, tileShardCount);
+  }
+
+  /**
+   * Returns the shard of a new annotation in the given group, or at the given geometry if it has
+   * no group, creating the manager of the shard on first use.
+   */
+  int shard(String group, LatLng geometry) {
+    final String shardKey;
+    if (group != null) {
+      shardKey = "group:" + group;
+    } else if (tileShardCount > 1 && geometry != null) {
+      shardKey = "tile:" + tileShard(geometry);
+    } else {
+      shardKey = DEFAULT_SHARD;
+    }
+    Integer shard = shards.get(shardKey);
+    if (shard == null) {
+      shard = managers.size();
+      managers.add(factory.create(shard, group));
+      groups.add(group);
+      shards.put(shardKey, shard);
+    }
+    return shard;
+  }
+
+  /**
+   * Returns the group of the given shard, or null if it is not a group shard.
+   */
+  String groupOf(int shard) {
+    return groups.get(shard);
+  }
+
+  /**
+   * Returns the manager of the given group, or null if no annotation of the group was created.
+   */
+  M groupManager(String group) {
+    final Integer shard = shards.get("group:" + group);
+    return shard != null ? managers.get(shard) : null;
+  }
+
+  M manager(int shard) {
+    return managers.get(shard);
+  }
+
+  List<M> getManagers() {
+    return managers;
+  }
+
+  boolean isEmpty() {
+    return managers.isEmpty();
+  }
+
+  private int tileShard(LatLng geometry) {
+    final double scale = 1 << TILE_ZOOM;
+    final double latitude = Math.toRadians(geometry.getLatitude());
+    final int x = (int) Math.floor((geometry.getLongitude() + 180) / 360 * scale);
+    final int y = (int) Math.floor(
+      (1 - Math.log(Math.tan(latitude) + 1 / Math.cos(latitude)) / Math.PI) / 2 * scale);
+    return ((x * 31 + y) % tileShardCount + tileShardCount) % tileShardCount;
+  }
+}
@@ -0,0 +1,192 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.view.Choreographer;
+
+import com.mapbox.mapboxsdk.plugins.annotation.Circle;
+import com.mapbox.mapboxsdk.plugins.annotation.CircleManager;
+import com.mapbox.mapboxsdk.plugins.annotation.Line;
+import com.mapbox.mapboxsdk.plugins.annotation.LineManager;
+import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
+import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces symbol, line and circle updates and pushes them to their managers once per frame.
+ * <p>
+ * Every manager update regenerates the complete annotation source, so instead of pushing each
+ * change right away, changed annotations are only marked dirty and flushed with a single list
+ * update per manager on the next Choreographer frame.
+ */
+class AnnotationUpdateScheduler implements Choreographer.FrameCallback {
+  interface OnFlushListener {
+    /**
+     * Invoked after pending updates have been pushed to the given managers.
+     */
+    void onFlush(List<Object> managers);
+  }
+
+  private final OnFlushListener onFlush;
+  // annotation ids are only unique within their manager, so dirty annotations are kept per manager
+  private final Map<SymbolManager, Map<Long, Symbol>> dirtySymbols = new LinkedHashMap<>();
+  private final Map<LineManager, Map<Long, Line>> dirtyLines = new LinkedHashMap<>();
+  private final Map<CircleManager, Map<Long, Circle>> dirtyCircles = new LinkedHashMap<>();
+  private boolean frameScheduled;
+  private long requestedUpdates;
+  private long flushedUpdates;
+  private long cancelledUpdates;
+  private long managerUpdates;
+
+  AnnotationUpdateScheduler(OnFlushListener onFlush) {
+    this.onFlush = onFlush;
+  }
+
+  void markDirty(SymbolManager symbolManager, Symbol symbol) {
+    requestedUpdates++;
+    dirty(dirtySymbols, symbolManager).put(symbol.getId(), symbol);
+    scheduleFrame();
+  }
+
+  void markDirty(LineManager lineManager, Line line) {
+    requestedUpdates++;
+    dirty(dirtyLines, lineManager).put(line.getId(), line);
+    scheduleFrame();
+  }
+
+  void markDirty(CircleManager circleManager, Circle circle) {
+    requestedUpdates++;
+    dirty(dirtyCircles, circleManager).put(circle.getId(), circle);
+    scheduleFrame();
+  }
+
+  /**
+   * Drops a pending update, must be called before the annotation is deleted from its manager as
+   * a list update would otherwise add it back.
+   */
+  void cancel(SymbolManager symbolManager, Symbol symbol) {
+    cancelledUpdates += cancel(dirtySymbols, symbolManager, symbol.getId());
+  }
+
+  void cancel(LineManager lineManager, Line line) {
+    cancelledUpdates += cancel(dirtyLines, lineManager, line.getId());
+  }
+
+  void cancel(CircleManager circleManager, Circle circle) {
+    cancelledUpdates += cancel(dirtyCircles, circleManager, circle.getId());
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    flush();
+  }
+
+  /**
+   * Pushes all pending updates to their managers right away.
+   */
+  void flush() {
+    if (pendingUpdates() == 0) {
+      return;
+    }
+    final List<Object> managers = new ArrayList<>(
+      dirtySymbols.size() + dirtyLines.size() + dirtyCircles.size());
+    managers.addAll(dirtySymbols.keySet());
+    managers.addAll(dirtyLines.keySet());
+    managers.addAll(dirtyCircles.keySet());
+    for (Map.Entry<SymbolManager, Map<Long, Symbol>> entry : dirtySymbols.entrySet()) {
+      flushedUpdates += entry.getValue().size();
+      managerUpdates++;
+      entry.getKey().update(new ArrayList<>(entry.getValue().values()));
+    }
+    dirtySymbols.clear();
+    for (Map.Entry<LineManager, Map<Long, Line>> entry : dirtyLines.entrySet()) {
+      flushedUpdates += entry.getValue().size();
+      managerUpdates++;
+      entry.getKey().update(new ArrayList<>(entry.getValue().values()));
+    }
+    dirtyLines.clear();
+    for (Map.Entry<CircleManager, Map<Long, Circle>> entry : dirtyCircles.entrySet()) {
+      flushedUpdates += entry.getValue().size();
+      managerUpdates++;
+      entry.getKey().update(new ArrayList<>(entry.getValue().values()));
+    }
+    dirtyCircles.clear();
+    onFlush.onFlush(managers);
+  }
+
+  void dispose() {
+    if (frameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      frameScheduled = false;
+    }
+    dirtySymbols.clear();
+    dirtyLines.clear();
+    dirtyCircles.clear();
+  }
+
+  /**
+   * Returns the number of requested updates, the number of annotation updates actually pushed,
+   * the number of updates that were coalesced into another one, the number of pending updates
+   * dropped because their annotation was removed or detached and the number of manager calls.
+   */
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(5);
+    stats.put("updatesRequested", requestedUpdates);
+    stats.put("updatesFlushed", flushedUpdates);
+    stats.put("updatesCoalesced",
+      requestedUpdates - flushedUpdates - cancelledUpdates - pendingUpdates());
+    stats.put("updatesCancelled", cancelledUpdates);
+    stats.put("managerUpdates", managerUpdates);
+    return stats;
+  }
+
+  private int pendingUpdates() {
+    return pending(dirtySymbols) + pending(dirtyLines) + pending(dirtyCircles);
+  }
+
+  private static <M, T> Map<Long, T> dirty(Map<M, Map<Long, T>> dirtyByManager, M manager) {
+    Map<Long, T> dirty = dirtyByManager.get(manager);
+    if (dirty == null) {
+      dirty = new LinkedHashMap<>();
+      dirtyByManager.put(manager, dirty);
+    }
+    return dirty;
+  }
+
+  /**
+   * Drops a pending update, returns 1 if there was one and 0 otherwise.
+   */
+  private static <M, T> int cancel(Map<M, Map<Long, T>> dirtyByManager, M manager, long id) {
+    final Map<Long, T> dirty = dirtyByManager.get(manager);
+    if (dirty == null || dirty.remove(id) == null) {
+      return 0;
+    }
+    if (dirty.isEmpty()) {
+      dirtyByManager.remove(manager);
+    }
+    return 1;
+  }
+
+  private static <M, T> int pending(Map<M, Map<Long, T>> dirtyByManager) {
+    int pending = 0;
+    for (Map<Long, T> dirty : dirtyByManager.values()) {
+      pending += dirty.size();
+    }
+    return pending;
+  }
+
+  private void scheduleFrame() {
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+}
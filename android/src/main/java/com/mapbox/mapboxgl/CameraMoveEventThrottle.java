@@ -0,0 +1,154 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.graphics.PointF;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which camera moves are reported to Flutter.
+ * <p>
+ * Moves can be limited to a maximum number of events per second, filtered by minimum zoom,
+ * bearing and target deltas, and deferred to the next frame so that at most one event with the
+ * latest position is sent per vsync. The last position is always delivered once the camera
+ * becomes idle. Payloads are written into preallocated maps, which is safe as the message codec
+ * encodes them synchronously.
+ */
+class CameraMoveEventThrottle implements Choreographer.FrameCallback {
+
+  interface Listener {
+    void onCameraMoveEvent(Map<String, Object> arguments);
+  }
+
+  private final Listener listener;
+  private final float density;
+  private final Map<String, Object> arguments = new HashMap<>(2);
+  private final Map<String, Object> position = new HashMap<>(4);
+  private final List<Object> target = new ArrayList<>(2);
+  private int maxEventsPerSecond;
+  private float minZoomDelta;
+  private float minBearingDelta;
+  private float minTargetDelta;
+  private boolean oncePerFrame;
+  private MapboxMap mapboxMap;
+  private CameraPosition pendingPosition;
+  private CameraPosition sentPosition;
+  private long sentTime;
+  private boolean frameScheduled;
+
+  CameraMoveEventThrottle(float density, Listener listener) {
+    this.density = density;
+    this.listener = listener;
+    target.add(0.0);
+    target.add(0.0);
+    position.put("target", target);
+    arguments.put("position", position);
+  }
+
+  void setOptions(int maxEventsPerSecond, float minZoomDelta, float minBearingDelta,
+                  float minTargetDelta, boolean oncePerFrame) {
+    this.maxEventsPerSecond = maxEventsPerSecond;
+    this.minZoomDelta = minZoomDelta;
+    this.minBearingDelta = minBearingDelta;
+    this.minTargetDelta = minTargetDelta;
+    this.oncePerFrame = oncePerFrame;
+  }
+
+  void onCameraMove(MapboxMap mapboxMap) {
+    this.mapboxMap = mapboxMap;
+    pendingPosition = mapboxMap.getCameraPosition();
+    if (oncePerFrame) {
+      if (!frameScheduled) {
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+      }
+    } else {
+      dispatch(false);
+    }
+  }
+
+  void onCameraIdle() {
+    cancelFrame();
+    dispatch(true);
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    dispatch(false);
+  }
+
+  void dispose() {
+    cancelFrame();
+    pendingPosition = null;
+  }
+
+  private void cancelFrame() {
+    if (frameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      frameScheduled = false;
+    }
+  }
+
+  private void dispatch(boolean force) {
+    final CameraPosition cameraPosition = pendingPosition;
+    if (cameraPosition == null) {
+      return;
+    }
+    final long now = SystemClock.uptimeMillis();
+    if (!force) {
+      if (maxEventsPerSecond > 0 && now - sentTime < 1000 / maxEventsPerSecond) {
+        return;
+      }
+      if (sentPosition != null && !exceedsDelta(sentPosition, cameraPosition)) {
+        return;
+      }
+    }
+    pendingPosition = null;
+    sentPosition = cameraPosition;
+    sentTime = now;
+    position.put("bearing", cameraPosition.bearing);
+    target.set(0, cameraPosition.target.getLatitude());
+    target.set(1, cameraPosition.target.getLongitude());
+    position.put("tilt", cameraPosition.tilt);
+    position.put("zoom", cameraPosition.zoom);
+    listener.onCameraMoveEvent(arguments);
+  }
+
+  private boolean exceedsDelta(CameraPosition previous, CameraPosition current) {
+    if (exceeds(Math.abs(current.zoom - previous.zoom), minZoomDelta)
+      || exceeds(Math.abs(current.bearing - previous.bearing), minBearingDelta)
+      || current.tilt != previous.tilt) {
+      return true;
+    }
+    if (minTargetDelta > 0) {
+      return targetDelta(previous.target, current.target) >= minTargetDelta;
+    }
+    return !current.target.equals(previous.target);
+  }
+
+  private static boolean exceeds(double delta, float minDelta) {
+    return minDelta > 0 ? delta >= minDelta : delta > 0;
+  }
+
+  /**
+   * Returns the distance between two camera targets in logical pixels on the current screen.
+   */
+  private float targetDelta(LatLng previous, LatLng current) {
+    final PointF from = mapboxMap.getProjection().toScreenLocation(previous);
+    final PointF to = mapboxMap.getProjection().toScreenLocation(current);
+    return (float) Math.hypot(to.x - from.x, to.y - from.y) / density;
+  }
+}
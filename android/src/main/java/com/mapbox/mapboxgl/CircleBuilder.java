@@ -8,21 +8,25 @@ package com.mapbox.mapboxgl;
 
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxsdk.geometry.LatLng;
-import com.mapbox.mapboxsdk.plugins.annotation.Circle;
-import com.mapbox.mapboxsdk.plugins.annotation.CircleManager;
 import com.mapbox.mapboxsdk.plugins.annotation.CircleOptions;
 
 class CircleBuilder implements CircleOptionsSink {
-  private final CircleManager circleManager;
   private final CircleOptions circleOptions;
+  private LatLng geometry;
 
-  CircleBuilder(CircleManager circleManager) {
-    this.circleManager = circleManager;
+  CircleBuilder() {
     this.circleOptions = new CircleOptions();
   }
 
-  Circle build() {
-    return circleManager.create(circleOptions);
+  CircleOptions getCircleOptions() {
+    return circleOptions;
+  }
+
+  /**
+   * Returns the location of the circle, which decides its shard, see {@link AnnotationShards}.
+   */
+  LatLng getGeometry() {
+    return geometry;
   }
 
   @Override
@@ -62,6 +66,7 @@ class CircleBuilder implements CircleOptionsSink {
 
   @Override
   public void setGeometry(LatLng geometry) {
+    this.geometry = geometry;
     circleOptions.withGeometry(Point.fromLngLat(geometry.getLongitude(), geometry.getLatitude()));
   }
 
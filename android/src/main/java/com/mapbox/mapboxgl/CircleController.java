@@ -12,27 +12,144 @@ import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.plugins.annotation.Circle;
 import com.mapbox.mapboxsdk.plugins.annotation.CircleManager;
 
+import java.util.Map;
+
 /** Controller of a single Circle on the map. */
 class CircleController implements CircleOptionsSink {
-  private final Circle circle;
+  private Circle circle;
+  private final CircleManager manager;
+  private final long key;
+  private final String clientId;
   private final OnCircleTappedListener onTappedListener;
   private boolean consumeTapEvents;
+  private Object options;
+  private long nativeKey;
+  private LatLng position;
 
-  CircleController(Circle circle, boolean consumeTapEvents, OnCircleTappedListener onTappedListener) {
+  CircleController(Circle circle, CircleManager manager, long key, String clientId, boolean consumeTapEvents,
+    OnCircleTappedListener onTappedListener) {
     this.circle = circle;
+    this.manager = manager;
+    this.key = key;
+    this.nativeKey = key;
+    this.clientId = clientId;
     this.consumeTapEvents = consumeTapEvents;
     this.onTappedListener = onTappedListener;
   }
 
   boolean onTap() {
     if (onTappedListener != null) {
-      onTappedListener.onCircleTapped(circle);
+      onTappedListener.onCircleTapped(getId());
     }
     return consumeTapEvents;
   }
 
-  void remove(CircleManager circleManager) {
-    circleManager.delete(circle);
+  /**
+   * Returns the annotation of this circle, or null if it is only kept in the annotation grid.
+   */
+  Circle getCircle() {
+    return circle;
+  }
+
+  boolean isAttached() {
+    return circle != null;
+  }
+
+  /**
+   * Binds this circle to an annotation created for it by its manager.
+   *
+   * @param nativeKey the key of the annotation id, see {@link AnnotationShards}
+   */
+  void attach(Circle circle, long nativeKey) {
+    this.circle = circle;
+    this.nativeKey = nativeKey;
+  }
+
+  /**
+   * Releases the annotation of this circle after it has been deleted from its manager, keeping
+   * only its position.
+   */
+  void detach() {
+    position = getPosition();
+    circle = null;
+  }
+
+  /**
+   * Returns the key of the annotation id of an attached circle, which differs from the registry
+   * key once it has been re-created.
+   */
+  long getNativeKey() {
+    return nativeKey;
+  }
+
+  LatLng getPosition() {
+    if (circle == null) {
+      return position;
+    }
+    final Point point = circle.getGeometry();
+    return new LatLng(point.latitude(), point.longitude());
+  }
+
+  /**
+   * Sets the position of a detached circle.
+   */
+  void setPosition(LatLng position) {
+    this.position = position;
+  }
+
+  CircleManager getManager() {
+    return manager;
+  }
+
+  /**
+   * Returns the registry key of the circle, see {@link AnnotationShards}.
+   */
+  long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the id assigned by the client when adding the circle, or null if it has none.
+   */
+  String getClientId() {
+    return clientId;
+  }
+
+  /**
+   * Returns the id the client knows this circle by.
+   */
+  String getId() {
+    return clientId != null ? clientId : String.valueOf(key);
+  }
+
+  /**
+   * Returns the complete options the circle was last configured with, or null if they are unknown.
+   */
+  Object getOptions() {
+    return options;
+  }
+
+  void setOptions(Object options) {
+    this.options = options;
+  }
+
+  /**
+   * Merges partial options into the complete ones, keeping them complete. Both may be in the
+   * map or the compact form, the merged options are stored in the map form.
+   */
+  void mergeOptions(Object changes) {
+    if (options == null || changes == null) {
+      return;
+    }
+    final Map<Object, Object> merged = Convert.toCircleOptionsMap(options);
+    merged.putAll(Convert.toCircleOptionsMap(changes));
+    options = merged;
+  }
+
+  void remove() {
+    if (circle != null) {
+      manager.delete(circle);
+    }
   }
 
   @Override
@@ -80,8 +197,10 @@ class CircleController implements CircleOptionsSink {
     circle.setDraggable(draggable);
   }
 
-  public void update(CircleManager circleManager) {
-    circleManager.update(circle);
+  public void update(AnnotationUpdateScheduler updateScheduler) {
+    if (circle != null) {
+      updateScheduler.markDirty(manager, circle);
+    }
   }
 
 }
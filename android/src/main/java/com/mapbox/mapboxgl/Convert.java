@@ -29,6 +29,7 @@ import java.util.Map;
 class Convert {
 
   private final static String TAG = "Convert";
+  private final static double E7 = 1e7;
 
 //  private static BitmapDescriptor toBitmapDescriptor(Object o) {
 //    final List<?> data = toList(o);
@@ -141,7 +142,7 @@ class Convert {
     return Arrays.asList(latLng.getLatitude(), latLng.getLongitude());
   }
 
-  private static LatLng toLatLng(Object o) {
+  static LatLng toLatLng(Object o) {
     final List<?> data = toList(o);
     return new LatLng(toDouble(data.get(0)), toDouble(data.get(1)));
   }
@@ -158,10 +159,31 @@ class Convert {
     return builder.build();
   }
 
-  private static List<LatLng> toLatLngList(Object o) {
+  /**
+   * Decodes a line geometry. Besides a list of [lat, lng] pairs, packed geometries are accepted:
+   * interleaved latitude/longitude degrees as {@code double[]} (a Float64List on the Dart side)
+   * or interleaved E7 fixed-point coordinates as {@code int[]} (an Int32List).
+   */
+  static List<LatLng> toLatLngList(Object o) {
     if (o == null) {
       return null;
     }
+    if (o instanceof double[]) {
+      final double[] coordinates = (double[]) o;
+      final List<LatLng> latLngList = new ArrayList<>(coordinates.length / 2);
+      for (int i = 0; i + 1 < coordinates.length; i += 2) {
+        latLngList.add(new LatLng(coordinates[i], coordinates[i + 1]));
+      }
+      return latLngList;
+    }
+    if (o instanceof int[]) {
+      final int[] coordinates = (int[]) o;
+      final List<LatLng> latLngList = new ArrayList<>(coordinates.length / 2);
+      for (int i = 0; i + 1 < coordinates.length; i += 2) {
+        latLngList.add(new LatLng(coordinates[i] / E7, coordinates[i + 1] / E7));
+      }
+      return latLngList;
+    }
     final List<?> data = toList(o);
     List<LatLng> latLngList = new ArrayList<>();
     for (int i=0; i<data.size(); i++) {
@@ -179,6 +201,64 @@ class Convert {
     return ((Number) o).longValue();
   }
 
+  /**
+   * Annotation ids are sent as strings by older clients and as numbers by newer ones.
+   */
+  static long toAnnotationId(Object o) {
+    if (o instanceof Number) {
+      return ((Number) o).longValue();
+    }
+    if (o instanceof String) {
+      try {
+        return Long.parseLong((String) o);
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+    }
+    throw new IllegalArgumentException("Cannot interpret " + o + " as annotation id");
+  }
+
+  /**
+   * Compares two option payloads field by field, including the typed arrays of compact options
+   * and geometries.
+   */
+  static boolean optionsEqual(Object a, Object b) {
+    if (a instanceof double[] && b instanceof double[]) {
+      return Arrays.equals((double[]) a, (double[]) b);
+    }
+    if (a instanceof int[] && b instanceof int[]) {
+      return Arrays.equals((int[]) a, (int[]) b);
+    }
+    if (a instanceof List && b instanceof List) {
+      final List<?> listA = (List<?>) a;
+      final List<?> listB = (List<?>) b;
+      if (listA.size() != listB.size()) {
+        return false;
+      }
+      for (int i = 0; i < listA.size(); i++) {
+        if (!optionsEqual(listA.get(i), listB.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (a instanceof Map && b instanceof Map) {
+      final Map<?, ?> mapA = (Map<?, ?>) a;
+      final Map<?, ?> mapB = (Map<?, ?>) b;
+      if (mapA.size() != mapB.size()) {
+        return false;
+      }
+      for (Map.Entry<?, ?> entry : mapA.entrySet()) {
+        if (!mapB.containsKey(entry.getKey())
+          || !optionsEqual(entry.getValue(), mapB.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return a == null ? b == null : a.equals(b);
+  }
+
   static Map<?, ?> toMap(Object o) {
     return (Map<?, ?>) o;
   }
@@ -238,6 +318,16 @@ class Convert {
     if (trackCameraPosition != null) {
       sink.setTrackCameraPosition(toBoolean(trackCameraPosition));
     }
+    final Object cameraMoveEventOptions = data.get("cameraMoveEventOptions");
+    if (cameraMoveEventOptions != null) {
+      final List<?> eventData = toList(cameraMoveEventOptions);
+      sink.setCameraMoveEventOptions(
+        toInt(eventData.get(0)),
+        toFloat(eventData.get(1)),
+        toFloat(eventData.get(2)),
+        toFloat(eventData.get(3)),
+        toBoolean(eventData.get(4)));
+    }
     final Object zoomGesturesEnabled = data.get("zoomGesturesEnabled");
     if (zoomGesturesEnabled != null) {
       sink.setZoomGesturesEnabled(toBoolean(zoomGesturesEnabled));
@@ -250,157 +340,319 @@ class Convert {
     if (myLocationTrackingMode != null) {
       sink.setMyLocationTrackingMode(toInt(myLocationTrackingMode));
     }
+    final Object annotationShards = data.get("annotationShards");
+    if (annotationShards != null) {
+      sink.setAnnotationShardCount(toInt(annotationShards));
+    }
   }
 
-  static void interpretSymbolOptions(Object o, SymbolOptionsSink sink) {
+  static void interpretSymbolClusterOptions(Object o, SymbolClusters symbolClusters) {
     final Map<?, ?> data = toMap(o);
-    final Object iconSize = data.get("iconSize");
-    if (iconSize != null) {
-      sink.setIconSize(toFloat(iconSize));
-    }
-    final Object iconImage = data.get("iconImage");
-    if (iconImage != null) {
-      sink.setIconImage(toString(iconImage));
-    }
-    final Object iconRotate = data.get("iconRotate");
-    if (iconRotate != null) {
-      sink.setIconRotate(toFloat(iconRotate));
-    }
-    final Object iconOffset = data.get("iconOffset");
-    if (iconOffset != null) {
-      sink.setIconOffset(new float[] {toFloat(toList(iconOffset).get(0)), toFloat(toList(iconOffset).get(1))});
-    }
-    final Object iconAnchor = data.get("iconAnchor");
-    if (iconAnchor != null) {
-      sink.setIconAnchor(toString(iconAnchor));
-    }
-    final Object textField = data.get("textField");
-    if (textField != null) {
-      sink.setTextField(toString(textField));
-    }
-    final Object textSize = data.get("textSize");
-    if (textSize != null) {
-      sink.setTextSize(toFloat(textSize));
-    }
-    final Object textMaxWidth = data.get("textMaxWidth");
-    if (textMaxWidth != null) {
-      sink.setTextMaxWidth(toFloat(textMaxWidth));
-    }
-    final Object textLetterSpacing = data.get("textLetterSpacing");
-    if (textLetterSpacing != null) {
-      sink.setTextLetterSpacing(toFloat(textLetterSpacing));
+    final Object radius = data.get("radius");
+    if (radius != null) {
+      symbolClusters.setRadius(toInt(radius));
     }
-    final Object textJustify = data.get("textJustify");
-    if (textJustify != null) {
-      sink.setTextJustify(toString(textJustify));
+    final Object maxZoom = data.get("maxZoom");
+    if (maxZoom != null) {
+      symbolClusters.setMaxZoom(toInt(maxZoom));
     }
-    final Object textAnchor = data.get("textAnchor");
-    if (textAnchor != null) {
-      sink.setTextAnchor(toString(textAnchor));
-    }
-    final Object textRotate = data.get("textRotate");
-    if (textRotate != null) {
-      sink.setTextRotate(toFloat(textRotate));
-    }
-    final Object textTransform = data.get("textTransform");
-    if (textTransform != null) {
-      sink.setTextTransform(toString(textTransform));
-    }
-    final Object textOffset = data.get("textOffset");
-    if (textOffset != null) {
-      sink.setTextOffset(new float[] {toFloat(toList(textOffset).get(0)), toFloat(toList(textOffset).get(1))});
-    }
-    final Object iconOpacity = data.get("iconOpacity");
-    if (iconOpacity != null) {
-      sink.setIconOpacity(toFloat(iconOpacity));
-    }
-    final Object iconColor = data.get("iconColor");
-    if (iconColor != null) {
-      sink.setIconColor(toString(iconColor));
-    }
-    final Object iconHaloColor = data.get("iconHaloColor");
-    if (iconHaloColor != null) {
-      sink.setIconHaloColor(toString(iconHaloColor));
-    }
-    final Object iconHaloWidth = data.get("iconHaloWidth");
-    if (iconHaloWidth != null) {
-      sink.setIconHaloWidth(toFloat(iconHaloWidth));
-    }
-    final Object iconHaloBlur = data.get("iconHaloBlur");
-    if (iconHaloBlur != null) {
-      sink.setIconHaloBlur(toFloat(iconHaloBlur));
-    }
-    final Object textOpacity = data.get("textOpacity");
-    if (textOpacity != null) {
-      sink.setTextOpacity(toFloat(textOpacity));
+    final Object color = data.get("color");
+    if (color != null) {
+      symbolClusters.setColor(toString(color));
     }
     final Object textColor = data.get("textColor");
     if (textColor != null) {
-      sink.setTextColor(toString(textColor));
-    }
-    final Object textHaloColor = data.get("textHaloColor");
-    if (textHaloColor != null) {
-      sink.setTextHaloColor(toString(textHaloColor));
+      symbolClusters.setTextColor(toString(textColor));
     }
-    final Object textHaloWidth = data.get("textHaloWidth");
-    if (textHaloWidth != null) {
-      sink.setTextHaloWidth(toFloat(textHaloWidth));
-    }
-    final Object textHaloBlur = data.get("textHaloBlur");
-    if (textHaloBlur != null) {
-      sink.setTextHaloBlur(toFloat(textHaloBlur));
-    }
-    final Object geometry = data.get("geometry");
-    if (geometry != null) {
-      sink.setGeometry(toLatLng(geometry));
-    }
-    final Object zIndex = data.get("zIndex");
-    if (zIndex != null) {
-      sink.setZIndex(toInt(zIndex));
-    }
-    final Object draggable = data.get("draggable");
-    if (draggable != null) {
-      sink.setDraggable(toBoolean(draggable));
+    final Object expandOnTap = data.get("expandOnTap");
+    if (expandOnTap != null) {
+      symbolClusters.setExpandOnTap(toBoolean(expandOnTap));
     }
   }
 
+  static void interpretSymbolOptions(Object o, SymbolOptionsSink sink) {
+    visitOptions(o, SYMBOL_FIELDS, SYMBOL_KINDS, (field, a, b, string) -> {
+      switch (SYMBOL_FIELDS[field]) {
+        case "iconSize":
+          sink.setIconSize((float) a);
+          break;
+        case "iconImage":
+          sink.setIconImage(string);
+          break;
+        case "iconRotate":
+          sink.setIconRotate((float) a);
+          break;
+        case "iconOffset":
+          sink.setIconOffset(new float[] {(float) a, (float) b});
+          break;
+        case "iconAnchor":
+          sink.setIconAnchor(string);
+          break;
+        case "textField":
+          sink.setTextField(string);
+          break;
+        case "textSize":
+          sink.setTextSize((float) a);
+          break;
+        case "textMaxWidth":
+          sink.setTextMaxWidth((float) a);
+          break;
+        case "textLetterSpacing":
+          sink.setTextLetterSpacing((float) a);
+          break;
+        case "textJustify":
+          sink.setTextJustify(string);
+          break;
+        case "textAnchor":
+          sink.setTextAnchor(string);
+          break;
+        case "textRotate":
+          sink.setTextRotate((float) a);
+          break;
+        case "textTransform":
+          sink.setTextTransform(string);
+          break;
+        case "textOffset":
+          sink.setTextOffset(new float[] {(float) a, (float) b});
+          break;
+        case "iconOpacity":
+          sink.setIconOpacity((float) a);
+          break;
+        case "iconColor":
+          sink.setIconColor(string);
+          break;
+        case "iconHaloColor":
+          sink.setIconHaloColor(string);
+          break;
+        case "iconHaloWidth":
+          sink.setIconHaloWidth((float) a);
+          break;
+        case "iconHaloBlur":
+          sink.setIconHaloBlur((float) a);
+          break;
+        case "textOpacity":
+          sink.setTextOpacity((float) a);
+          break;
+        case "textColor":
+          sink.setTextColor(string);
+          break;
+        case "textHaloColor":
+          sink.setTextHaloColor(string);
+          break;
+        case "textHaloWidth":
+          sink.setTextHaloWidth((float) a);
+          break;
+        case "textHaloBlur":
+          sink.setTextHaloBlur((float) a);
+          break;
+        case "geometry":
+          sink.setGeometry(new LatLng(a, b));
+          break;
+        case "zIndex":
+          sink.setZIndex((int) a);
+          break;
+        case "draggable":
+          sink.setDraggable(a != 0);
+          break;
+      }
+    });
+  }
+
   static void interpretCircleOptions(Object o, CircleOptionsSink sink) {
-    final Map<?, ?> data = toMap(o);
-    final Object circleRadius = data.get("circleRadius");
-    if (circleRadius != null) {
-      sink.setCircleRadius(toFloat(circleRadius));
-    }
-    final Object circleColor = data.get("circleColor");
-    if (circleColor != null) {
-      sink.setCircleColor(toString(circleColor));
-    }
-    final Object circleBlur = data.get("circleBlur");
-    if (circleBlur != null) {
-      sink.setCircleBlur(toFloat(circleBlur));
-    }
-    final Object circleOpacity = data.get("circleOpacity");
-    if (circleOpacity != null) {
-      sink.setCircleOpacity(toFloat(circleOpacity));
-    }
-    final Object circleStrokeWidth = data.get("circleStrokeWidth");
-    if (circleStrokeWidth != null) {
-      sink.setCircleStrokeWidth(toFloat(circleStrokeWidth));
-    }
-    final Object circleStrokeColor = data.get("circleStrokeColor");
-    if (circleStrokeColor != null) {
-      sink.setCircleStrokeColor(toString(circleStrokeColor));
-    }
-    final Object circleStrokeOpacity = data.get("circleStrokeOpacity");
-    if (circleStrokeOpacity != null) {
-      sink.setCircleStrokeOpacity(toFloat(circleStrokeOpacity));
+    visitOptions(o, CIRCLE_FIELDS, CIRCLE_KINDS, (field, a, b, string) -> {
+      switch (CIRCLE_FIELDS[field]) {
+        case "circleRadius":
+          sink.setCircleRadius((float) a);
+          break;
+        case "circleColor":
+          sink.setCircleColor(string);
+          break;
+        case "circleBlur":
+          sink.setCircleBlur((float) a);
+          break;
+        case "circleOpacity":
+          sink.setCircleOpacity((float) a);
+          break;
+        case "circleStrokeWidth":
+          sink.setCircleStrokeWidth((float) a);
+          break;
+        case "circleStrokeColor":
+          sink.setCircleStrokeColor(string);
+          break;
+        case "circleStrokeOpacity":
+          sink.setCircleStrokeOpacity((float) a);
+          break;
+        case "geometry":
+          sink.setGeometry(new LatLng(a, b));
+          break;
+        case "draggable":
+          sink.setDraggable(a != 0);
+          break;
+      }
+    });
+  }
+
+  // option names in the bit order of the compact forms, which the Dart side encodes them in, with
+  // the kind of each value: a number, a string, a pair of numbers or a boolean
+  private static final String[] SYMBOL_FIELDS = {
+    "iconSize", "iconImage", "iconRotate", "iconOffset", "iconAnchor", "textField", "textSize",
+    "textMaxWidth", "textLetterSpacing", "textJustify", "textAnchor", "textRotate",
+    "textTransform", "textOffset", "iconOpacity", "iconColor", "iconHaloColor", "iconHaloWidth",
+    "iconHaloBlur", "textOpacity", "textColor", "textHaloColor", "textHaloWidth", "textHaloBlur",
+    "geometry", "zIndex", "draggable"
+  };
+  private static final int SYMBOL_GEOMETRY_FIELD = Arrays.asList(SYMBOL_FIELDS).indexOf("geometry");
+  private static final String SYMBOL_KINDS = "nsnpssnnnssnspnssnnnssnnpnb";
+  private static final String[] CIRCLE_FIELDS = {
+    "circleRadius", "circleColor", "circleBlur", "circleOpacity", "circleStrokeWidth",
+    "circleStrokeColor", "circleStrokeOpacity", "geometry", "draggable"
+  };
+  private static final String CIRCLE_KINDS = "nsnnnsnpb";
+
+  /**
+   * Returns a copy of Symbol options in their map form, decoding the compact form.
+   */
+  static Map<Object, Object> toSymbolOptionsMap(Object o) {
+    return toOptionsMap(o, SYMBOL_FIELDS, SYMBOL_KINDS);
+  }
+
+  /**
+   * Returns a copy of Circle options in their map form, decoding the compact form.
+   */
+  static Map<Object, Object> toCircleOptionsMap(Object o) {
+    return toOptionsMap(o, CIRCLE_FIELDS, CIRCLE_KINDS);
+  }
+
+  /**
+   * Returns true if Symbol options, in either form, set the geometry.
+   */
+  static boolean hasSymbolGeometry(Object o) {
+    if (o instanceof List) {
+      return (toInt(toList(o).get(0)) & (1 << SYMBOL_GEOMETRY_FIELD)) != 0;
     }
-    final Object geometry = data.get("geometry");
-    if (geometry != null) {
-      sink.setGeometry(toLatLng(geometry));
+    return o != null && toMap(o).containsKey("geometry");
+  }
+
+  /**
+   * Returns true if Symbol options lack a field that the previous ones set, or if the previous
+   * options are unknown. Interpreting options only applies the fields that are present, so such
+   * a change cannot be applied to an existing symbol.
+   */
+  static boolean removesSymbolOptions(Object previous, Object options) {
+    return previous == null
+      || !toSymbolOptionsMap(options).keySet().containsAll(toSymbolOptionsMap(previous).keySet());
+  }
+
+  /**
+   * Returns true if Circle options lack a field that the previous ones set, see
+   * {@link #removesSymbolOptions}.
+   */
+  static boolean removesCircleOptions(Object previous, Object options) {
+    return previous == null
+      || !toCircleOptionsMap(options).keySet().containsAll(toCircleOptionsMap(previous).keySet());
+  }
+
+  /**
+   * Returns true if Line options lack a field that the previous ones set, see
+   * {@link #removesSymbolOptions}.
+   */
+  static boolean removesLineOptions(Object previous, Object options) {
+    return previous == null || !toMap(options).keySet().containsAll(toMap(previous).keySet());
+  }
+
+  private static Map<Object, Object> toOptionsMap(Object o, String[] fields, String kinds) {
+    if (!(o instanceof List)) {
+      return new HashMap<Object, Object>(toMap(o));
+    }
+    final Map<Object, Object> options = new HashMap<>();
+    visitOptions(o, fields, kinds, (field, a, b, string) -> {
+      switch (kinds.charAt(field)) {
+        case 's':
+          options.put(fields[field], string);
+          break;
+        case 'p':
+          options.put(fields[field], Arrays.asList(a, b));
+          break;
+        case 'b':
+          options.put(fields[field], a != 0);
+          break;
+        default:
+          options.put(fields[field], a);
+          break;
+      }
+    });
+    return options;
+  }
+
+  /**
+   * Receives the options present in either form, see {@link #visitOptions}.
+   */
+  private interface OptionVisitor {
+    /**
+     * Receives an option by its position in the field table, with its number or the first of its
+     * pair of numbers in {@code a}, the second one in {@code b} and its string in {@code string}.
+     * Booleans are 1 or 0.
+     */
+    void visit(int field, double a, double b, String string);
+  }
+
+  /**
+   * Passes the options present in either form to the visitor in the order of the field table,
+   * decoding each value by its kind.
+   * <p>
+   * The compact form holds a presence bitmask with one bit per option in table order, the
+   * numeric values of present options packed into a {@code double[]} and the string values of
+   * present options in a list.
+   */
+  private static void visitOptions(Object o, String[] fields, String kinds, OptionVisitor visitor) {
+    if (o instanceof List) {
+      final List<?> data = toList(o);
+      final int mask = toInt(data.get(0));
+      final double[] numbers = (double[]) data.get(1);
+      final List<?> strings = toList(data.get(2));
+      int n = 0;
+      int s = 0;
+      for (int field = 0; field < fields.length; field++) {
+        if ((mask & (1 << field)) == 0) {
+          continue;
+        }
+        switch (kinds.charAt(field)) {
+          case 's':
+            visitor.visit(field, 0, 0, toString(strings.get(s++)));
+            break;
+          case 'p':
+            visitor.visit(field, numbers[n], numbers[n + 1], null);
+            n += 2;
+            break;
+          default:
+            visitor.visit(field, numbers[n++], 0, null);
+            break;
+        }
+      }
+      return;
     }
-    final Object draggable = data.get("draggable");
-    if (draggable != null) {
-      sink.setDraggable(toBoolean(draggable));
+    final Map<?, ?> data = toMap(o);
+    for (int field = 0; field < fields.length; field++) {
+      final Object value = data.get(fields[field]);
+      if (value == null) {
+        continue;
+      }
+      switch (kinds.charAt(field)) {
+        case 's':
+          visitor.visit(field, 0, 0, toString(value));
+          break;
+        case 'p': {
+          final List<?> pair = toList(value);
+          visitor.visit(field, toDouble(pair.get(0)), toDouble(pair.get(1)), null);
+          break;
+        }
+        case 'b':
+          visitor.visit(field, toBoolean(value) ? 1 : 0, 0, null);
+          break;
+        default:
+          visitor.visit(field, toDouble(value), 0, null);
+          break;
+      }
     }
   }
 
@@ -9,21 +9,43 @@ package com.mapbox.mapboxgl;
 import java.util.List;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxsdk.geometry.LatLng;
-import com.mapbox.mapboxsdk.plugins.annotation.Line;
-import com.mapbox.mapboxsdk.plugins.annotation.LineManager;
 import com.mapbox.mapboxsdk.plugins.annotation.LineOptions;
 
 class LineBuilder implements LineOptionsSink {
-  private final LineManager lineManager;
   private final LineOptions lineOptions;
+  private final LineSimplifier simplifier;
+  private LatLng geometry;
+  private List<LatLng> latLngs;
+  private double[] ranks;
 
-  LineBuilder(LineManager lineManager) {
-    this.lineManager = lineManager;
+  LineBuilder(LineSimplifier simplifier) {
     this.lineOptions = new LineOptions();
+    this.simplifier = simplifier;
   }
 
-  Line build() {
-    return lineManager.create(lineOptions);
+  LineOptions getLineOptions() {
+    return lineOptions;
+  }
+
+  /**
+   * Returns the first point of the line, which decides its shard, see {@link AnnotationShards}.
+   */
+  LatLng getGeometry() {
+    return geometry;
+  }
+
+  /**
+   * Returns the full geometry of a simplified line, or null if the line is not simplified.
+   */
+  List<LatLng> getLatLngs() {
+    return latLngs;
+  }
+
+  /**
+   * Returns the vertex ranks of a simplified line, see {@link LineSimplifier#rank}.
+   */
+  double[] getRanks() {
+    return ranks;
   }
 
   @Override
@@ -68,7 +90,14 @@ class LineBuilder implements LineOptionsSink {
   
   @Override
   public void setGeometry(List<LatLng> geometry) {
-    lineOptions.withLatLngs(geometry);
+    this.geometry = geometry.isEmpty() ? null : geometry.get(0);
+    if (!simplifier.isEnabled()) {
+      lineOptions.withLatLngs(geometry);
+      return;
+    }
+    latLngs = geometry;
+    ranks = LineSimplifier.rank(geometry);
+    lineOptions.withLatLngs(simplifier.simplify(geometry, ranks, 0, simplifier.getZoom()));
   }
 
   @Override
@@ -6,7 +6,11 @@
 
 package com.mapbox.mapboxgl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import android.graphics.PointF;
 import android.util.Log;
@@ -21,25 +25,239 @@ import com.mapbox.mapboxsdk.utils.ColorUtils;
  * Controller of a single Line on the map.
  */
 class LineController implements LineOptionsSink {
+  // number of vertices at the end of a simplified line that are ranked again on every append
+  private static final int APPEND_CHUNK = 1024;
   private final Line line;
+  private final LineManager manager;
+  private final long key;
+  private final String clientId;
   private final OnLineTappedListener onTappedListener;
   private boolean consumeTapEvents;
+  private Object options;
+  private final LineSimplifier simplifier;
+  // the full geometry from geometryStart on once the line is simplified or appended to, trimming
+  // only advances geometryStart until more than half of the list is unused
+  private ArrayList<LatLng> geometry;
+  private int geometryStart;
+  // vertex ranks by index into geometry while the line is simplified, null otherwise
+  private double[] ranks;
+  // simplified geometries by zoom, for the generation of the simplifier they were made with
+  private List<LatLng>[] levels;
+  private int levelsGeneration;
+  private int level = -1;
+  // index into geometry of the first vertex ranked again on append, the vertices before it keep
+  // their ranks
+  private int appendChunk;
 
-  LineController(Line line, boolean consumeTapEvents, OnLineTappedListener onTappedListener) {
+  LineController(Line line, LineManager manager, long key, String clientId, boolean consumeTapEvents,
+    OnLineTappedListener onTappedListener, LineSimplifier simplifier) {
+    this.simplifier = simplifier;
     this.line = line;
+    this.manager = manager;
+    this.key = key;
+    this.clientId = clientId;
     this.consumeTapEvents = consumeTapEvents;
     this.onTappedListener = onTappedListener;
   }
 
   boolean onTap() {
     if (onTappedListener != null) {
-      onTappedListener.onLineTapped(line);
+      onTappedListener.onLineTapped(getId());
     }
     return consumeTapEvents;
   }
 
-  void remove(LineManager lineManager) {
-    lineManager.delete(line);
+  Line getLine() {
+    return line;
+  }
+
+  /**
+   * Returns the full geometry of the line, which differs from the one of its annotation while
+   * the line is simplified.
+   */
+  List<LatLng> getGeometry() {
+    return geometry != null ? geometry.subList(geometryStart, geometry.size()) : line.getLatLngs();
+  }
+
+  /**
+   * Sets the full geometry of a simplified line and shows the vertices of the current zoom.
+   */
+  void setSimplifiedGeometry(List<LatLng> geometry, double[] ranks) {
+    this.geometry = new ArrayList<>(geometry);
+    this.geometryStart = 0;
+    this.ranks = ranks;
+    this.levels = null;
+    this.level = -1;
+    this.appendChunk = 0;
+    applySimplification();
+  }
+
+  /**
+   * Appends vertices to the geometry, dropping the oldest vertices beyond {@code maxLength} if
+   * it is positive.
+   * <p>
+   * The vertices are appended to the geometry kept by this controller, so only the annotation is
+   * given a copy of the whole track. A simplified line only ranks the vertices from the start of
+   * its last chunk again, the chunk is closed once it holds {@link #APPEND_CHUNK} vertices and its
+   * last vertex is always kept from then on.
+   */
+  void appendPoints(List<LatLng> points, int maxLength) {
+    if (geometry == null) {
+      geometry = new ArrayList<>(line.getLatLngs());
+      geometryStart = 0;
+    }
+    final int chunk = Math.max(appendChunk, geometryStart);
+    geometry.addAll(points);
+    final int size = geometry.size();
+    if (maxLength > 0 && size - geometryStart > maxLength) {
+      geometryStart = size - maxLength;
+    }
+    if (!simplifier.isEnabled()) {
+      compactGeometry();
+      line.setLatLngs(getGeometry());
+      return;
+    }
+
+    if (ranks == null) {
+      rankGeometry();
+    } else {
+      final double[] chunkRanks = LineSimplifier.rank(geometry.subList(chunk, size));
+      if (ranks.length < size) {
+        ranks = Arrays.copyOf(ranks, Math.max(size, 2 * ranks.length));
+      }
+      System.arraycopy(chunkRanks, 0, ranks, chunk, chunkRanks.length);
+      if (geometryStart < size) {
+        ranks[geometryStart] = Double.POSITIVE_INFINITY;
+      }
+      appendChunk = Math.max(geometryStart, size - chunk > APPEND_CHUNK ? size - 1 : chunk);
+      compactGeometry();
+    }
+    levels = null;
+    level = -1;
+    applySimplification();
+  }
+
+  /**
+   * Shows the vertices of the current zoom if simplification is enabled, or the full geometry
+   * otherwise.
+   *
+   * @return true if the geometry of the annotation changed and it has to be updated
+   */
+  @SuppressWarnings("unchecked")
+  boolean applySimplification() {
+    if (!simplifier.isEnabled()) {
+      if (ranks == null) {
+        return false;
+      }
+      line.setLatLngs(getGeometry());
+      ranks = null;
+      levels = null;
+      level = -1;
+      return true;
+    }
+    if (ranks == null) {
+      if (geometry == null) {
+        geometry = new ArrayList<>(line.getLatLngs());
+        geometryStart = 0;
+      }
+      rankGeometry();
+    }
+    if (levels == null || levelsGeneration != simplifier.getGeneration()) {
+      levels = new List[LineSimplifier.MAX_ZOOM + 1];
+      levelsGeneration = simplifier.getGeneration();
+      level = -1;
+    }
+    final int zoom = simplifier.getZoom();
+    if (zoom == level) {
+      return false;
+    }
+    if (levels[zoom] == null) {
+      levels[zoom] = simplifier.simplify(geometry, ranks, geometryStart, zoom);
+    }
+    level = zoom;
+    line.setLatLngs(levels[zoom]);
+    return true;
+  }
+
+  /**
+   * Ranks the whole geometry from scratch, dropping the trimmed vertices first.
+   */
+  private void rankGeometry() {
+    geometry.subList(0, geometryStart).clear();
+    geometryStart = 0;
+    ranks = LineSimplifier.rank(geometry);
+    appendChunk = 0;
+  }
+
+  /**
+   * Drops the trimmed vertices once they make up more than half of the geometry, so that
+   * trimming costs amortized constant time per vertex.
+   */
+  private void compactGeometry() {
+    final int size = geometry.size();
+    if (geometryStart <= size - geometryStart) {
+      return;
+    }
+    geometry.subList(0, geometryStart).clear();
+    if (ranks != null) {
+      System.arraycopy(ranks, geometryStart, ranks, 0, size - geometryStart);
+    }
+    appendChunk = Math.max(0, appendChunk - geometryStart);
+    geometryStart = 0;
+  }
+
+  LineManager getManager() {
+    return manager;
+  }
+
+  /**
+   * Returns the registry key of the line, see {@link AnnotationShards}.
+   */
+  long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the id assigned by the client when adding the line, or null if it has none.
+   */
+  String getClientId() {
+    return clientId;
+  }
+
+  /**
+   * Returns the id the client knows this line by.
+   */
+  String getId() {
+    return clientId != null ? clientId : String.valueOf(key);
+  }
+
+  /**
+   * Returns the complete options the line was last configured with, or null if they are unknown.
+   */
+  Object getOptions() {
+    return options;
+  }
+
+  void setOptions(Object options) {
+    this.options = options;
+  }
+
+  /**
+   * Merges partial options into the complete ones, keeping them complete.
+   */
+  @SuppressWarnings("unchecked")
+  void mergeOptions(Object changes) {
+    if (!(options instanceof Map) || !(changes instanceof Map)) {
+      options = null;
+      return;
+    }
+    final Map<Object, Object> merged = new HashMap<>((Map<Object, Object>) options);
+    merged.putAll((Map<Object, Object>) changes);
+    options = merged;
+  }
+
+  void remove() {
+    manager.delete(line);
   }
 
   @Override
@@ -84,7 +302,12 @@ class LineController implements LineOptionsSink {
 
   @Override
   public void setGeometry(List<LatLng> geometry) {
-    line.setLatLngs(geometry);
+    if (simplifier.isEnabled()) {
+      setSimplifiedGeometry(geometry, LineSimplifier.rank(geometry));
+    } else {
+      this.geometry = null;
+      line.setLatLngs(geometry);
+    }
   }
 
   @Override
@@ -92,7 +315,7 @@ class LineController implements LineOptionsSink {
     line.setDraggable(draggable);
   }
 
-  public void update(LineManager lineManager) {
-    lineManager.update(line);
+  public void update(AnnotationUpdateScheduler updateScheduler) {
+    updateScheduler.markDirty(manager, line);
   }
 }
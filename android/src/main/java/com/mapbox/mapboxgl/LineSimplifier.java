@@ -0,0 +1,152 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zoom dependent simplification of line geometries, following Douglas-Peucker.
+ * <p>
+ * Douglas-Peucker keeps a vertex if it is further from the simplified line than the tolerance,
+ * and the vertices it keeps for a smaller tolerance are a superset of the ones it keeps for a
+ * larger one. So every vertex is ranked once by the largest tolerance at which it is still
+ * kept, and the geometry of a zoom, whose tolerance is a constant number of pixels, is the list
+ * of vertices ranked above it. Lines keep their full geometry and ranks and only swap the
+ * vertices handed to their manager when the integer zoom changes, see {@link LineController}.
+ */
+class LineSimplifier {
+  static final int MAX_ZOOM = 24;
+  // size of the world in logical pixels at zoom 0
+  private static final double WORLD_SIZE = 512;
+
+  private double tolerance;
+  private int zoom;
+  private int generation;
+
+  /**
+   * Sets the tolerance in logical pixels, or disables simplification if it is 0.
+   */
+  void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+    generation++;
+  }
+
+  boolean isEnabled() {
+    return tolerance > 0;
+  }
+
+  /**
+   * Changes with the tolerance, the geometries simplified for other generations are outdated.
+   */
+  int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Sets the camera zoom lines are simplified for.
+   *
+   * @return true if the integer zoom changed, in which case the lines have to be simplified again
+   */
+  boolean setZoom(double zoom) {
+    final int level = Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(zoom)));
+    if (level == this.zoom) {
+      return false;
+    }
+    this.zoom = level;
+    return true;
+  }
+
+  int getZoom() {
+    return zoom;
+  }
+
+  /**
+   * Returns the largest tolerance in web mercator units at which each vertex is kept, the end
+   * points are always kept.
+   */
+  static double[] rank(List<LatLng> geometry) {
+    final int count = geometry.size();
+    final double[] ranks = new double[count];
+    if (count == 0) {
+      return ranks;
+    }
+    final double[] xs = new double[count];
+    final double[] ys = new double[count];
+    for (int i = 0; i < count; i++) {
+      xs[i] = AnnotationIndex.x(geometry.get(i).getLongitude());
+      ys[i] = AnnotationIndex.y(geometry.get(i).getLatitude());
+    }
+    ranks[0] = Double.POSITIVE_INFINITY;
+    ranks[count - 1] = Double.POSITIVE_INFINITY;
+
+    // ranges still to split with the rank of the vertex they were split at, which bounds the
+    // ranks within them so that the rank of a vertex never exceeds the one of its parent
+    int[] ranges = new int[32];
+    double[] limits = new double[16];
+    int size = 0;
+    ranges[0] = 0;
+    ranges[1] = count - 1;
+    limits[0] = Double.POSITIVE_INFINITY;
+    size++;
+    while (size > 0) {
+      size--;
+      final int first = ranges[2 * size];
+      final int last = ranges[2 * size + 1];
+      final double limit = limits[size];
+      double max = -1;
+      int index = -1;
+      for (int i = first + 1; i < last; i++) {
+        final double distance = segmentDistance(xs[first], ys[first], xs[last], ys[last], xs[i], ys[i]);
+        if (distance > max) {
+          max = distance;
+          index = i;
+        }
+      }
+      if (index < 0) {
+        continue;
+      }
+      ranks[index] = Math.min(max, limit);
+      if (limits.length < size + 2) {
+        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        limits = Arrays.copyOf(limits, limits.length * 2);
+      }
+      ranges[2 * size] = first;
+      ranges[2 * size + 1] = index;
+      limits[size++] = ranks[index];
+      ranges[2 * size] = index;
+      ranges[2 * size + 1] = last;
+      limits[size++] = ranks[index];
+    }
+    return ranks;
+  }
+
+  /**
+   * Returns the vertices from {@code start} on kept at the given zoom, given their ranks by index
+   * into {@code geometry}.
+   */
+  List<LatLng> simplify(List<LatLng> geometry, double[] ranks, int start, int zoom) {
+    final double threshold = tolerance / (WORLD_SIZE * Math.pow(2, zoom));
+    final List<LatLng> simplified = new ArrayList<>();
+    for (int i = start; i < geometry.size(); i++) {
+      if (ranks[i] > threshold) {
+        simplified.add(geometry.get(i));
+      }
+    }
+    return simplified;
+  }
+
+  private static double segmentDistance(double ax, double ay, double bx, double by, double px, double py) {
+    final double dx = bx - ax;
+    final double dy = by - ay;
+    final double length2 = dx * dx + dy * dy;
+    double t = length2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / length2;
+    t = Math.max(0, Math.min(1, t));
+    return Math.hypot(ax + t * dx - px, ay + t * dy - py);
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long keys, the base of {@link LongObjectMap} and
+ * {@link LongLongMap}.
+ * <p>
+ * Entries are stored densely by position, in insertion order until an entry is removed, which
+ * moves the last entry into its position. A table of twice the capacity maps the hashes of the
+ * keys to the positions of their entries with linear probing, so lookups, insertions and
+ * removals take expected constant time whatever the keys, and neither keys nor values are boxed.
+ * Entries can be iterated by position with {@link #keyAt}, removing the entry at the current
+ * position while iterating from the last position down visits every other entry once.
+ */
+abstract class LongKeyedMap {
+  static final int MIN_CAPACITY = 8;
+
+  private long[] keys = new long[MIN_CAPACITY];
+  // the position of the entry plus one by slot, 0 for empty slots
+  private int[] slots = new int[2 * MIN_CAPACITY];
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Removes all entries, keeping the capacity.
+   */
+  void clear() {
+    for (int position = 0; position < size; position++) {
+      clearValue(position);
+    }
+    Arrays.fill(slots, 0);
+    size = 0;
+  }
+
+  long keyAt(int position) {
+    return keys[position];
+  }
+
+  /**
+   * Returns the position of the entry of a key, or -1 if there is none.
+   */
+  int indexOfKey(long key) {
+    final int mask = slots.length - 1;
+    for (int slot = slot(key, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+      if (keys[slots[slot] - 1] == key) {
+        return slots[slot] - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the position of the entry of a key, adding an entry at the end if there is none.
+   */
+  int insert(long key) {
+    final int position = indexOfKey(key);
+    if (position >= 0) {
+      return position;
+    }
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * size);
+      resizeValues(2 * size);
+      slots = new int[4 * size];
+      for (int i = 0; i < size; i++) {
+        slots[freeSlot(keys[i])] = i + 1;
+      }
+    }
+    keys[size] = key;
+    slots[freeSlot(key)] = size + 1;
+    return size++;
+  }
+
+  /**
+   * Removes the entry of a key, moving the last entry into its position.
+   *
+   * @return true if there was an entry
+   */
+  boolean delete(long key) {
+    final int mask = slots.length - 1;
+    int slot = slot(key, mask);
+    while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+      slot = (slot + 1) & mask;
+    }
+    if (slots[slot] == 0) {
+      return false;
+    }
+    final int position = slots[slot] - 1;
+    clearSlot(slot);
+    final int last = size - 1;
+    if (position != last) {
+      int lastSlot = slot(keys[last], mask);
+      while (slots[lastSlot] != last + 1) {
+        lastSlot = (lastSlot + 1) & mask;
+      }
+      slots[lastSlot] = position + 1;
+      keys[position] = keys[last];
+      moveValue(last, position);
+    }
+    clearValue(last);
+    size--;
+    return true;
+  }
+
+  /**
+   * Grows the value storage to the given capacity, keeping the values.
+   */
+  abstract void resizeValues(int capacity);
+
+  abstract void moveValue(int from, int to);
+
+  /**
+   * Releases the value at a position that is no longer used.
+   */
+  abstract void clearValue(int position);
+
+  /**
+   * Empties a slot, moving the entries probed past it back so that lookups still find them.
+   */
+  private void clearSlot(int slot) {
+    final int mask = slots.length - 1;
+    int hole = slot;
+    for (int next = (slot + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+      final int home = slot(keys[slots[next] - 1], mask);
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        slots[hole] = slots[next];
+        hole = next;
+      }
+    }
+    slots[hole] = 0;
+  }
+
+  private int freeSlot(long key) {
+    final int mask = slots.length - 1;
+    int slot = slot(key, mask);
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int slot(long key, int mask) {
+    // registry keys differ in their high bits by shard, mix them into the low ones
+    final long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to long values, see {@link LongKeyedMap}.
+ */
+class LongLongMap extends LongKeyedMap {
+  private long[] values = new long[MIN_CAPACITY];
+
+  /**
+   * Returns the value of a key, or {@code defaultValue} if it has none.
+   */
+  long get(long key, long defaultValue) {
+    final int position = indexOfKey(key);
+    return position >= 0 ? values[position] : defaultValue;
+  }
+
+  void put(long key, long value) {
+    // insert may grow the values
+    final int position = insert(key);
+    values[position] = value;
+  }
+
+  void remove(long key) {
+    delete(key);
+  }
+
+  long valueAt(int position) {
+    return values[position];
+  }
+
+  @Override
+  void resizeValues(int capacity) {
+    values = Arrays.copyOf(values, capacity);
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int position) {
+  }
+}
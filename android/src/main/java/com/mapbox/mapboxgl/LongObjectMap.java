@@ -0,0 +1,53 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to objects, used for the annotation registries keyed by
+ * {@link AnnotationShards} keys, see {@link LongKeyedMap}.
+ */
+class LongObjectMap<V> extends LongKeyedMap {
+  private Object[] values = new Object[MIN_CAPACITY];
+
+  /**
+   * Returns the value of a key, or null if it has none.
+   */
+  V get(long key) {
+    final int position = indexOfKey(key);
+    return position >= 0 ? valueAt(position) : null;
+  }
+
+  void put(long key, V value) {
+    // insert may grow the values
+    final int position = insert(key);
+    values[position] = value;
+  }
+
+  void remove(long key) {
+    delete(key);
+  }
+
+  @SuppressWarnings("unchecked")
+  V valueAt(int position) {
+    return (V) values[position];
+  }
+
+  @Override
+  void resizeValues(int capacity) {
+    values = Arrays.copyOf(values, capacity);
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int position) {
+    values[position] = null;
+  }
+}
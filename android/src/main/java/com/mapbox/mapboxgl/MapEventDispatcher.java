@@ -0,0 +1,127 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Delivers native map events to Flutter.
+ * <p>
+ * While Flutter listens on the event channel, events raised within a frame are sent together as
+ * one batch on the next Choreographer frame. A new batch is only sent once Flutter acknowledged
+ * the previous one; until then events keep accumulating, and a mergeable event replaces the
+ * pending event of the same type so Flutter only receives the latest state when it falls behind.
+ * Without a listener, events are sent one by one on the method channel.
+ */
+class MapEventDispatcher implements EventChannel.StreamHandler, Choreographer.FrameCallback {
+  private static final long ACK_TIMEOUT_MS = 500;
+  private final MethodChannel methodChannel;
+  private final List<Object> pendingEvents = new ArrayList<>();
+  private EventChannel.EventSink eventSink;
+  private boolean frameScheduled;
+  private int sequence;
+  private int awaitedSequence = -1;
+  private long sentTime;
+
+  MapEventDispatcher(MethodChannel methodChannel) {
+    this.methodChannel = methodChannel;
+  }
+
+  /**
+   * Queues an event. Mergeable events drop an older pending event with the same method, their
+   * arguments may therefore be reused by the caller between events.
+   */
+  void send(String method, Object arguments, boolean mergeable) {
+    if (eventSink == null) {
+      methodChannel.invokeMethod(method, arguments);
+      return;
+    }
+    if (mergeable) {
+      for (int i = 0; i < pendingEvents.size(); i++) {
+        if (method.equals(((List<?>) pendingEvents.get(i)).get(0))) {
+          pendingEvents.remove(i);
+          break;
+        }
+      }
+    }
+    pendingEvents.add(Arrays.asList(method, arguments));
+    scheduleFrame();
+  }
+
+  void send(String method, Object arguments) {
+    send(method, arguments, false);
+  }
+
+  /**
+   * Called when Flutter has processed the batch with the given sequence number.
+   */
+  void onAck(int ackedSequence) {
+    if (ackedSequence == awaitedSequence) {
+      awaitedSequence = -1;
+      if (!pendingEvents.isEmpty()) {
+        scheduleFrame();
+      }
+    }
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    eventSink = events;
+    awaitedSequence = -1;
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    eventSink = null;
+    pendingEvents.clear();
+    cancelFrame();
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    if (eventSink == null || pendingEvents.isEmpty()) {
+      return;
+    }
+    final long now = SystemClock.uptimeMillis();
+    if (awaitedSequence != -1 && now - sentTime < ACK_TIMEOUT_MS) {
+      // Flutter is still busy with the previous batch, keep merging until it catches up
+      scheduleFrame();
+      return;
+    }
+    awaitedSequence = sequence++;
+    sentTime = now;
+    eventSink.success(Arrays.asList(awaitedSequence, new ArrayList<>(pendingEvents)));
+    pendingEvents.clear();
+  }
+
+  void dispose() {
+    cancelFrame();
+    pendingEvents.clear();
+    eventSink = null;
+  }
+
+  private void scheduleFrame() {
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  private void cancelFrame() {
+    if (frameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(this);
+      frameScheduled = false;
+    }
+  }
+}
@@ -23,8 +23,14 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     .textureMode(true)
     .attributionEnabled(false);
   private boolean trackCameraPosition = false;
+  private int cameraMoveMaxEventsPerSecond = 0;
+  private float cameraMoveMinZoomDelta = 0;
+  private float cameraMoveMinBearingDelta = 0;
+  private float cameraMoveMinTargetDelta = 0;
+  private boolean cameraMoveOncePerFrame = false;
   private boolean myLocationEnabled = false;
   private int myLocationTrackingMode = 0;
+  private int annotationShardCount = 1;
   private String styleString = Style.MAPBOX_STREETS;
 
   MapboxMapController build(
@@ -35,6 +41,9 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     controller.setMyLocationEnabled(myLocationEnabled);
     controller.setMyLocationTrackingMode(myLocationTrackingMode);
     controller.setTrackCameraPosition(trackCameraPosition);
+    controller.setAnnotationShardCount(annotationShardCount);
+    controller.setCameraMoveEventOptions(cameraMoveMaxEventsPerSecond, cameraMoveMinZoomDelta,
+      cameraMoveMinBearingDelta, cameraMoveMinTargetDelta, cameraMoveOncePerFrame);
     return controller;
   }
 
@@ -75,6 +84,16 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     this.trackCameraPosition = trackCameraPosition;
   }
 
+  @Override
+  public void setCameraMoveEventOptions(int maxEventsPerSecond, float minZoomDelta, float minBearingDelta,
+                                        float minTargetDelta, boolean oncePerFrame) {
+    this.cameraMoveMaxEventsPerSecond = maxEventsPerSecond;
+    this.cameraMoveMinZoomDelta = minZoomDelta;
+    this.cameraMoveMinBearingDelta = minBearingDelta;
+    this.cameraMoveMinTargetDelta = minTargetDelta;
+    this.cameraMoveOncePerFrame = oncePerFrame;
+  }
+
   @Override
   public void setRotateGesturesEnabled(boolean rotateGesturesEnabled) {
     options.rotateGesturesEnabled(rotateGesturesEnabled);
@@ -105,4 +124,9 @@ class MapboxMapBuilder implements MapboxMapOptionsSink {
     this.myLocationTrackingMode = myLocationTrackingMode;
   }
 
+  @Override
+  public void setAnnotationShardCount(int annotationShardCount) {
+    this.annotationShardCount = annotationShardCount;
+  }
+
 }
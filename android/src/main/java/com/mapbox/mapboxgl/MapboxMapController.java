@@ -10,9 +10,11 @@ import android.app.Application;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.PointF;
-import android.graphics.RectF;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import android.util.Log;
 import android.view.View;
@@ -20,6 +22,7 @@ import android.view.View;
 import com.mapbox.mapboxsdk.Mapbox;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdate;
+import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
 
 import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngBounds;
@@ -32,26 +35,41 @@ import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.MapboxMapOptions;
 import com.mapbox.mapboxsdk.maps.Style;
-import com.mapbox.mapboxsdk.plugins.annotation.Annotation;
 import com.mapbox.mapboxsdk.plugins.annotation.Circle;
 import com.mapbox.mapboxsdk.plugins.annotation.CircleManager;
-import com.mapbox.mapboxsdk.plugins.annotation.OnAnnotationClickListener;
+import com.mapbox.mapboxsdk.plugins.annotation.CircleOptions;
 import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
 import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
+import com.mapbox.mapboxsdk.plugins.annotation.SymbolOptions;
 import com.mapbox.mapboxsdk.plugins.annotation.Line;
 import com.mapbox.mapboxsdk.plugins.annotation.LineManager;
-import com.mapbox.geojson.Feature;
+import com.mapbox.mapboxsdk.plugins.annotation.LineOptions;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.PluginRegistry;
+import io.flutter.plugin.common.StandardMessageCodec;
 import io.flutter.plugin.platform.PlatformView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.mapbox.mapboxgl.MapboxMapsPlugin.CREATED;
@@ -69,7 +87,6 @@ final class MapboxMapController
   MapboxMap.OnCameraIdleListener,
   MapboxMap.OnCameraMoveListener,
   MapboxMap.OnCameraMoveStartedListener,
-  OnAnnotationClickListener,
   MapboxMap.OnMapClickListener,
   MapboxMapOptionsSink,
   MethodChannel.MethodCallHandler,
@@ -78,20 +95,86 @@ final class MapboxMapController
   OnSymbolTappedListener,
   OnLineTappedListener,
   OnCircleTappedListener,
+  AnnotationAnimator.Listener,
   PlatformView {
   private static final String TAG = "MapboxMapController";
+  // delay coalescing symbol changes into a single cluster index build
+  private static final long CLUSTER_BUILD_DELAY_MS = 250;
+  // size of the world in logical pixels at zoom 0
+  private static final double WORLD_SIZE = 512;
+  // data driven layer properties scaled by the opacity of annotation groups
+  private static final String[] SYMBOL_OPACITY_PROPERTIES = {"icon-opacity", "text-opacity"};
+  private static final String[] LINE_OPACITY_PROPERTIES = {"line-opacity"};
+  private static final String[] CIRCLE_OPACITY_PROPERTIES =
+    {"circle-opacity", "circle-stroke-opacity"};
+  // one-way mutations only reply success, their failures are thrown
+  private static final MethodChannel.Result IGNORED_RESULT = new MethodChannel.Result() {
+    @Override
+    public void success(Object result) {
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+    }
+
+    @Override
+    public void notImplemented() {
+    }
+  };
   private final int id;
   private final AtomicInteger activityState;
   private final MethodChannel methodChannel;
+  private final BasicMessageChannel<Object> mutationChannel;
   private final PluginRegistry.Registrar registrar;
   private final MapView mapView;
   private MapboxMap mapboxMap;
-  private final Map<String, SymbolController> symbols;
-  private final Map<String, LineController> lines;
-  private final Map<String, CircleController> circles;
-  private SymbolManager symbolManager;
-  private LineManager lineManager;
-  private CircleManager circleManager;
+  private final LongObjectMap<SymbolController> symbols;
+  private final Map<String, Long> symbolClientIds = new HashMap<>();
+  private final LongObjectMap<LineController> lines;
+  private final Map<String, Long> lineClientIds = new HashMap<>();
+  private final LongObjectMap<CircleController> circles;
+  private final Map<String, Long> circleClientIds = new HashMap<>();
+  private final AnnotationShards<SymbolManager> symbolShards =
+    new AnnotationShards<>(this::createSymbolManager);
+  private final AnnotationShards<LineManager> lineShards =
+    new AnnotationShards<>(this::createLineManager);
+  private final AnnotationShards<CircleManager> circleShards =
+    new AnnotationShards<>(this::createCircleManager);
+  private final Map<String, AnnotationGroup> annotationGroups = new HashMap<>();
+  // re-apply the opacity of their group to the managers of groups, see reapplyGroupOpacity
+  private final Map<Object, Runnable> groupOpacityAppliers = new HashMap<>();
+  private final SymbolClusters symbolClusters = new SymbolClusters();
+  private final LineSimplifier lineSimplifier = new LineSimplifier();
+  private boolean clusterBuildScheduled;
+  private int clusterBuildGeneration;
+  // symbols and circles outside of the materialized region, kept out of their managers
+  private final AnnotationGrid symbolGrid = new AnnotationGrid();
+  private final AnnotationGrid circleGrid = new AnnotationGrid();
+  // attached symbols and circles while virtualization is enabled, so that detaching them only
+  // visits the cells outside of the materialized region
+  private final AnnotationGrid attachedSymbolGrid = new AnnotationGrid();
+  private final AnnotationGrid attachedCircleGrid = new AnnotationGrid();
+  // registry keys of re-created symbols and circles, by the key of their annotation id
+  private final LongLongMap symbolNativeKeys = new LongLongMap();
+  private final LongLongMap circleNativeKeys = new LongLongMap();
+  private boolean annotationVirtualization;
+  private double virtualizationMargin;
+  private AnnotationGrid.Region materializedRegion;
+  private long nextVirtualId = AnnotationShards.VIRTUAL_ID_BASE;
+  private boolean virtualizationUpdateScheduled;
+  // built on the first query after annotations changed
+  private AnnotationIndex annotationIndex;
+  private Style style;
+  private final RenderedFeaturesCache renderedFeaturesCache = new RenderedFeaturesCache();
+  private final StyleImages styleImages = new StyleImages();
+  private final AnnotationUpdateScheduler updateScheduler =
+    new AnnotationUpdateScheduler(this::onAnnotationsFlushed);
+  private final AnnotationAnimator annotationAnimator = new AnnotationAnimator(this);
+  private int styleGeneration;
+  private final CameraMoveEventThrottle cameraMoveEventThrottle;
+  private final MapEventDispatcher mapEvents;
+  private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
   private boolean trackCameraPosition = false;
   private boolean myLocationEnabled = false;
   private int myLocationTrackingMode = 0;
@@ -117,13 +200,21 @@ final class MapboxMapController
     this.registrar = registrar;
     this.styleStringInitial = styleStringInitial;
     this.mapView = new MapView(context, options);
-    this.symbols = new HashMap<>();
-    this.lines = new HashMap<>();
-    this.circles = new HashMap<>();
+    this.symbols = new LongObjectMap<>();
+    this.lines = new LongObjectMap<>();
+    this.circles = new LongObjectMap<>();
     this.density = context.getResources().getDisplayMetrics().density;
     methodChannel =
       new MethodChannel(registrar.messenger(), "plugins.flutter.io/mapbox_maps_" + id);
     methodChannel.setMethodCallHandler(this);
+    this.mapEvents = new MapEventDispatcher(methodChannel);
+    new EventChannel(registrar.messenger(), "plugins.flutter.io/mapbox_maps_events_" + id)
+      .setStreamHandler(mapEvents);
+    this.mutationChannel = new BasicMessageChannel<>(registrar.messenger(),
+      "plugins.flutter.io/mapbox_maps_mutations_" + id, StandardMessageCodec.INSTANCE);
+    mutationChannel.setMessageHandler(this::onMutations);
+    this.cameraMoveEventThrottle = new CameraMoveEventThrottle(density,
+      arguments -> mapEvents.send("camera#onMove", arguments, true));
     this.registrarActivityHashCode = registrar.activity().hashCode();
   }
 
@@ -199,17 +290,323 @@ final class MapboxMapController
   }
 
   private SymbolBuilder newSymbolBuilder() {
-    return new SymbolBuilder(symbolManager);
+    return new SymbolBuilder();
   }
   
-  private void removeSymbol(String symbolId) {
-    final SymbolController symbolController = symbols.remove(symbolId);
+  private void removeSymbol(long symbolId) {
+    final SymbolController symbolController = symbols.get(symbolId);
     if (symbolController != null) {
-      symbolController.remove(symbolManager);
+      unregisterSymbol(symbolController);
+      if (symbolController.isAttached()) {
+        updateScheduler.cancel(symbolController.getManager(), symbolController.getSymbol());
+      }
+      symbolController.remove();
+    }
+  }
+
+  private void unregisterSymbol(SymbolController symbolController) {
+    symbols.remove(symbolController.getKey());
+    annotationAnimator.cancel(symbolController.getKey());
+    if (symbolController.getClientId() != null) {
+      symbolClientIds.remove(symbolController.getClientId());
+    }
+    if (!symbolController.isAttached()) {
+      symbolGrid.remove(symbolController.getKey());
+      return;
+    }
+    attachedSymbolGrid.remove(symbolController.getKey());
+    if (symbolController.getNativeKey() != symbolController.getKey()) {
+      symbolNativeKeys.remove(symbolController.getNativeKey());
     }
   }
   
-  private SymbolController symbol(String symbolId) {
+  private String putSymbol(int shard, Symbol symbol, String clientId, Object options) {
+    final long key = AnnotationShards.key(shard, symbol.getId());
+    final SymbolController symbolController =
+      new SymbolController(symbol, symbolShards.manager(shard), key, clientId, true, this);
+    symbolController.setOptions(options);
+    symbols.put(key, symbolController);
+    if (clientId != null) {
+      symbolClientIds.put(clientId, key);
+    }
+    if (annotationVirtualization) {
+      attachedSymbolGrid.put(key, symbolController.getPosition());
+    }
+    return symbolController.getId();
+  }
+
+  /**
+   * Registers a symbol outside of the materialized region without adding it to its manager.
+   */
+  private String putVirtualSymbol(int shard, LatLng position, String clientId, Object options) {
+    final long key = AnnotationShards.key(shard, nextVirtualId++);
+    final SymbolController symbolController =
+      new SymbolController(null, symbolShards.manager(shard), key, clientId, true, this);
+    symbolController.setOptions(options);
+    symbolController.setPosition(position);
+    symbolGrid.put(key, position);
+    symbols.put(key, symbolController);
+    if (clientId != null) {
+      symbolClientIds.put(clientId, key);
+    }
+    return symbolController.getId();
+  }
+
+  /**
+   * Creates symbols in the shards of their groups or locations, with one create call per shard.
+   *
+   * @return the ids of the created symbols, in the order of {@code builders}
+   */
+  private List<String> createSymbols(
+    List<SymbolBuilder> builders, List<String> groups, List<String> clientIds, List<Object> options) {
+    final Map<Integer, List<Integer>> indicesByShard = new LinkedHashMap<>();
+    final String[] ids = new String[builders.size()];
+    for (int i = 0; i < builders.size(); i++) {
+      final LatLng geometry = builders.get(i).getGeometry();
+      final int shard = symbolShards.shard(itemAt(groups, i), geometry);
+      if (isVirtualized(geometry, itemAt(options, i))) {
+        ids[i] = putVirtualSymbol(shard, geometry, itemAt(clientIds, i), itemAt(options, i));
+        continue;
+      }
+      listFor(indicesByShard, shard).add(i);
+    }
+    for (Map.Entry<Integer, List<Integer>> entry : indicesByShard.entrySet()) {
+      final int shard = entry.getKey();
+      final List<Integer> indices = entry.getValue();
+      final List<SymbolOptions> symbolOptions = new ArrayList<>(indices.size());
+      for (int i : indices) {
+        symbolOptions.add(builders.get(i).getSymbolOptions());
+      }
+      final List<Symbol> created = symbolShards.manager(shard).create(symbolOptions);
+      reapplyGroupOpacity(symbolShards.manager(shard));
+      for (int j = 0; j < created.size(); j++) {
+        final int i = indices.get(j);
+        ids[i] = putSymbol(shard, created.get(j), itemAt(clientIds, i), itemAt(options, i));
+      }
+    }
+    return Arrays.asList(ids);
+  }
+
+  /**
+   * Pushes the changes of symbols right away, with one update call per manager.
+   */
+  private void updateSymbols(Collection<SymbolController> symbolControllers) {
+    final Map<SymbolManager, List<Symbol>> symbolsByManager = new LinkedHashMap<>();
+    for (SymbolController symbolController : symbolControllers) {
+      if (!symbolController.isAttached()) {
+        continue;
+      }
+      updateScheduler.cancel(symbolController.getManager(), symbolController.getSymbol());
+      listFor(symbolsByManager, symbolController.getManager()).add(symbolController.getSymbol());
+    }
+    for (Map.Entry<SymbolManager, List<Symbol>> entry : symbolsByManager.entrySet()) {
+      entry.getKey().update(entry.getValue());
+      reapplyGroupOpacity(entry.getKey());
+    }
+  }
+
+  /**
+   * Deletes the annotations of unregistered or detached symbols, with one delete call per manager.
+   */
+  private void deleteSymbols(Collection<SymbolController> symbolControllers) {
+    final Map<SymbolManager, List<Symbol>> symbolsByManager = new LinkedHashMap<>();
+    for (SymbolController symbolController : symbolControllers) {
+      if (!symbolController.isAttached()) {
+        continue;
+      }
+      updateScheduler.cancel(symbolController.getManager(), symbolController.getSymbol());
+      listFor(symbolsByManager, symbolController.getManager()).add(symbolController.getSymbol());
+    }
+    for (Map.Entry<SymbolManager, List<Symbol>> entry : symbolsByManager.entrySet()) {
+      entry.getKey().delete(entry.getValue());
+    }
+  }
+
+  /**
+   * Applies partial options to a symbol, the stored options have to be updated first. A detached
+   * symbol only keeps them and moves within the grid if its position changed.
+   *
+   * @return true if the symbol is attached and its annotation has to be updated
+   */
+  private boolean applySymbolOptions(SymbolController symbol, Object options) {
+    final boolean moved = Convert.hasSymbolGeometry(options);
+    if (moved) {
+      annotationAnimator.cancel(symbol.getKey());
+    }
+    if (symbol.isAttached()) {
+      Convert.interpretSymbolOptions(options, symbol);
+      if (moved && annotationVirtualization) {
+        attachedSymbolGrid.put(symbol.getKey(), symbol.getPosition());
+      }
+      return true;
+    }
+    final SymbolBuilder symbolBuilder = newSymbolBuilder();
+    Convert.interpretSymbolOptions(symbol.getOptions(), symbolBuilder);
+    final LatLng position = symbolBuilder.getGeometry();
+    if (position != null) {
+      moveDetachedSymbol(symbol, position);
+    }
+    return false;
+  }
+
+  private void moveDetachedSymbol(SymbolController symbol, LatLng position) {
+    if (position.equals(symbol.getPosition())) {
+      return;
+    }
+    symbol.setPosition(position);
+    symbolGrid.put(symbol.getKey(), position);
+    if (materializedRegion != null && materializedRegion.contains(position)) {
+      scheduleVirtualizationUpdate();
+    }
+  }
+
+  /**
+   * Starts animating symbols to the given positions, and bearings if given. Their stored options
+   * are updated to the targets right away. All ids are resolved first, so that an unknown id
+   * fails the call before any animation starts.
+   */
+  private void animateSymbols(List<Object> symbolIds, List<Object> positions, List<Object> bearings,
+                              long durationMs, int easing) {
+    if (positions.size() != symbolIds.size()
+      || (bearings != null && bearings.size() != symbolIds.size())) {
+      throw new IllegalArgumentException("Expected one position and bearing per symbol");
+    }
+    final List<SymbolController> animated = new ArrayList<>(symbolIds.size());
+    final List<LatLng> targets = new ArrayList<>(symbolIds.size());
+    for (int i = 0; i < symbolIds.size(); i++) {
+      animated.add(symbol(resolveAnnotationId(symbolIds.get(i), symbolClientIds)));
+      targets.add(Convert.toLatLng(positions.get(i)));
+    }
+    for (int i = 0; i < animated.size(); i++) {
+      final SymbolController symbol = animated.get(i);
+      final Object bearing = itemAt(bearings, i);
+      final Map<String, Object> target = new HashMap<>(2);
+      target.put("geometry", positions.get(i));
+      if (bearing != null) {
+        target.put("iconRotate", bearing);
+      }
+      final Float fromBearing = symbol.getIconRotate();
+      final LatLng from = symbol.getPosition();
+      symbol.mergeOptions(target);
+      annotationAnimator.animate(symbol.getKey(), from, targets.get(i),
+        fromBearing, bearing != null ? ((Number) bearing).floatValue() : null, durationMs, easing);
+    }
+  }
+
+  @Override
+  public void onAnimationStep(long key, LatLng position, Float bearing) {
+    final SymbolController symbol = symbols.get(key);
+    if (symbol == null) {
+      return;
+    }
+    if (!symbol.isAttached()) {
+      moveDetachedSymbol(symbol, position);
+      return;
+    }
+    symbol.setGeometry(position);
+    if (annotationVirtualization) {
+      attachedSymbolGrid.put(key, position);
+    }
+    if (bearing != null) {
+      symbol.setIconRotate(bearing);
+    }
+    symbol.update(updateScheduler);
+  }
+
+  @Override
+  public void onAnimationFrame(List<Long> finished) {
+    updateScheduler.flush();
+    if (finished.isEmpty()) {
+      return;
+    }
+    // the finished symbols go back into the index of the static annotations
+    annotationIndex = null;
+    if (symbolClusters.isEnabled()) {
+      scheduleSymbolClusterBuild();
+    }
+    final List<String> symbolIds = new ArrayList<>(finished.size());
+    for (Long key : finished) {
+      final SymbolController symbol = symbols.get(key);
+      if (symbol != null) {
+        symbolIds.add(symbol.getId());
+      }
+    }
+    final Map<String, Object> arguments = new HashMap<>(2);
+    arguments.put("symbols", symbolIds);
+    mapEvents.send("symbol#onAnimationEnd", arguments);
+  }
+
+  /**
+   * Moves the attached symbols outside of the given region into the grid, deleting their
+   * annotations. Symbols without complete options stay attached.
+   */
+  private void detachSymbols(AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    attachedSymbolGrid.queryOutside(region, keys);
+    final List<SymbolController> detached = new ArrayList<>();
+    for (long key : keys) {
+      final SymbolController symbolController = symbols.get(key);
+      if (symbolController.getOptions() != null) {
+        detached.add(symbolController);
+      }
+    }
+    deleteSymbols(detached);
+    for (SymbolController symbolController : detached) {
+      if (symbolController.getNativeKey() != symbolController.getKey()) {
+        symbolNativeKeys.remove(symbolController.getNativeKey());
+      }
+      attachedSymbolGrid.remove(symbolController.getKey());
+      symbolController.detach();
+      symbolGrid.put(symbolController.getKey(), symbolController.getPosition());
+    }
+  }
+
+  /**
+   * Re-creates the annotations of the detached symbols in the given region, with one create call
+   * per shard.
+   */
+  private void attachSymbols(AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    symbolGrid.query(region, keys);
+    if (keys.isEmpty()) {
+      return;
+    }
+    final Map<Integer, List<SymbolController>> symbolsByShard = new LinkedHashMap<>();
+    for (long key : keys) {
+      final SymbolController symbolController = symbols.get(key);
+      symbolGrid.remove(key);
+      listFor(symbolsByShard, AnnotationShards.shardOf(key)).add(symbolController);
+    }
+    final List<SymbolController> clustered = new ArrayList<>();
+    for (Map.Entry<Integer, List<SymbolController>> entry : symbolsByShard.entrySet()) {
+      final int shard = entry.getKey();
+      final List<SymbolController> symbolControllers = entry.getValue();
+      final List<SymbolOptions> symbolOptions = new ArrayList<>(symbolControllers.size());
+      for (SymbolController symbolController : symbolControllers) {
+        final SymbolBuilder symbolBuilder = newSymbolBuilder();
+        Convert.interpretSymbolOptions(symbolController.getOptions(), symbolBuilder);
+        symbolOptions.add(symbolBuilder.getSymbolOptions());
+      }
+      final List<Symbol> created = symbolShards.manager(shard).create(symbolOptions);
+      reapplyGroupOpacity(symbolShards.manager(shard));
+      for (int j = 0; j < created.size(); j++) {
+        final SymbolController symbolController = symbolControllers.get(j);
+        final long nativeKey = AnnotationShards.key(shard, created.get(j).getId());
+        if (symbolController.attach(created.get(j), nativeKey)) {
+          clustered.add(symbolController);
+        }
+        if (nativeKey != symbolController.getKey()) {
+          symbolNativeKeys.put(nativeKey, symbolController.getKey());
+        }
+        if (annotationVirtualization) {
+          attachedSymbolGrid.put(symbolController.getKey(), symbolController.getPosition());
+        }
+      }
+    }
+    updateSymbols(clustered);
+  }
+
+  private SymbolController symbol(long symbolId) {
     final SymbolController symbol = symbols.get(symbolId);
     if (symbol == null) {
       throw new IllegalArgumentException("Unknown symbol: " + symbolId);
@@ -218,17 +615,100 @@ final class MapboxMapController
   }
   
   private LineBuilder newLineBuilder() {
-    return new LineBuilder(lineManager);
+    return new LineBuilder(lineSimplifier);
   }
   
-  private void removeLine(String lineId) {
-    final LineController lineController = lines.remove(lineId);
+  private void removeLine(long lineId) {
+    final LineController lineController = lines.get(lineId);
     if (lineController != null) {
-      lineController.remove(lineManager);
+      unregisterLine(lineController);
+      updateScheduler.cancel(lineController.getManager(), lineController.getLine());
+      lineController.remove();
+    }
+  }
+
+  private void unregisterLine(LineController lineController) {
+    lines.remove(lineController.getKey());
+    if (lineController.getClientId() != null) {
+      lineClientIds.remove(lineController.getClientId());
     }
   }
   
-  private LineController line(String lineId) {
+  private String putLine(int shard, Line line, LineBuilder lineBuilder, String clientId, Object options) {
+    final long key = AnnotationShards.key(shard, line.getId());
+    final LineController lineController =
+      new LineController(line, lineShards.manager(shard), key, clientId, true, this, lineSimplifier);
+    if (lineBuilder.getRanks() != null) {
+      lineController.setSimplifiedGeometry(lineBuilder.getLatLngs(), lineBuilder.getRanks());
+    }
+    lineController.setOptions(options);
+    lines.put(key, lineController);
+    if (clientId != null) {
+      lineClientIds.put(clientId, key);
+    }
+    return lineController.getId();
+  }
+
+  /**
+   * Creates lines in the shards of their groups or locations, with one create call per shard.
+   *
+   * @return the ids of the created lines, in the order of {@code builders}
+   */
+  private List<String> createLines(
+    List<LineBuilder> builders, List<String> groups, List<String> clientIds, List<Object> options) {
+    final Map<Integer, List<Integer>> indicesByShard = new LinkedHashMap<>();
+    for (int i = 0; i < builders.size(); i++) {
+      final int shard = lineShards.shard(itemAt(groups, i), builders.get(i).getGeometry());
+      listFor(indicesByShard, shard).add(i);
+    }
+    final String[] ids = new String[builders.size()];
+    for (Map.Entry<Integer, List<Integer>> entry : indicesByShard.entrySet()) {
+      final int shard = entry.getKey();
+      final List<Integer> indices = entry.getValue();
+      final List<LineOptions> lineOptions = new ArrayList<>(indices.size());
+      for (int i : indices) {
+        lineOptions.add(builders.get(i).getLineOptions());
+      }
+      final List<Line> created = lineShards.manager(shard).create(lineOptions);
+      reapplyGroupOpacity(lineShards.manager(shard));
+      for (int j = 0; j < created.size(); j++) {
+        final int i = indices.get(j);
+        ids[i] = putLine(shard, created.get(j), builders.get(i), itemAt(clientIds, i), itemAt(options, i));
+      }
+    }
+    return Arrays.asList(ids);
+  }
+
+  /**
+   * Pushes the changes of lines right away, with one update call per manager.
+   */
+  private void updateLines(Collection<LineController> lineControllers) {
+    final Map<LineManager, List<Line>> linesByManager = new LinkedHashMap<>();
+    for (LineController lineController : lineControllers) {
+      updateScheduler.cancel(lineController.getManager(), lineController.getLine());
+      listFor(linesByManager, lineController.getManager()).add(lineController.getLine());
+    }
+    for (Map.Entry<LineManager, List<Line>> entry : linesByManager.entrySet()) {
+      entry.getKey().update(entry.getValue());
+      reapplyGroupOpacity(entry.getKey());
+    }
+  }
+
+  /**
+   * Deletes unregistered lines, with one delete call per manager.
+   */
+  private void deleteLines(Collection<LineController> lineControllers) {
+    final Map<LineManager, List<Line>> linesByManager = new LinkedHashMap<>();
+    for (LineController lineController : lineControllers) {
+      updateScheduler.cancel(lineController.getManager(), lineController.getLine());
+      listFor(linesByManager, lineController.getManager()).add(lineController.getLine());
+    }
+    for (Map.Entry<LineManager, List<Line>> entry : linesByManager.entrySet()) {
+      entry.getKey().delete(entry.getValue());
+    }
+  }
+
+  private LineController line(long lineId) {
     final LineController line = lines.get(lineId);
     if (line == null) {
       throw new IllegalArgumentException("Unknown line: " + lineId);
@@ -237,17 +717,231 @@ final class MapboxMapController
   }
 
   private CircleBuilder newCircleBuilder() {
-    return new CircleBuilder(circleManager);
+    return new CircleBuilder();
   }
     
-  private void removeCircle(String circleId) {
-    final CircleController circleController = circles.remove(circleId);
+  private void removeCircle(long circleId) {
+    final CircleController circleController = circles.get(circleId);
     if (circleController != null) {
-      circleController.remove(circleManager);
+      unregisterCircle(circleController);
+      if (circleController.isAttached()) {
+        updateScheduler.cancel(circleController.getManager(), circleController.getCircle());
+      }
+      circleController.remove();
     }
   }
 
-  private CircleController circle(String circleId) {
+  private void unregisterCircle(CircleController circleController) {
+    circles.remove(circleController.getKey());
+    if (circleController.getClientId() != null) {
+      circleClientIds.remove(circleController.getClientId());
+    }
+    if (!circleController.isAttached()) {
+      circleGrid.remove(circleController.getKey());
+      return;
+    }
+    attachedCircleGrid.remove(circleController.getKey());
+    if (circleController.getNativeKey() != circleController.getKey()) {
+      circleNativeKeys.remove(circleController.getNativeKey());
+    }
+  }
+
+  private String putCircle(int shard, Circle circle, String clientId, Object options) {
+    final long key = AnnotationShards.key(shard, circle.getId());
+    final CircleController circleController =
+      new CircleController(circle, circleShards.manager(shard), key, clientId, true, this);
+    circleController.setOptions(options);
+    circles.put(key, circleController);
+    if (clientId != null) {
+      circleClientIds.put(clientId, key);
+    }
+    if (annotationVirtualization) {
+      attachedCircleGrid.put(key, circleController.getPosition());
+    }
+    return circleController.getId();
+  }
+
+  /**
+   * Registers a circle outside of the materialized region without adding it to its manager.
+   */
+  private String putVirtualCircle(int shard, LatLng position, String clientId, Object options) {
+    final long key = AnnotationShards.key(shard, nextVirtualId++);
+    final CircleController circleController =
+      new CircleController(null, circleShards.manager(shard), key, clientId, true, this);
+    circleController.setOptions(options);
+    circleController.setPosition(position);
+    circleGrid.put(key, position);
+    circles.put(key, circleController);
+    if (clientId != null) {
+      circleClientIds.put(clientId, key);
+    }
+    return circleController.getId();
+  }
+
+  /**
+   * Creates circles in the shards of their groups or locations, with one create call per shard.
+   *
+   * @return the ids of the created circles, in the order of {@code builders}
+   */
+  private List<String> createCircles(
+    List<CircleBuilder> builders, List<String> groups, List<String> clientIds, List<Object> options) {
+    final Map<Integer, List<Integer>> indicesByShard = new LinkedHashMap<>();
+    final String[] ids = new String[builders.size()];
+    for (int i = 0; i < builders.size(); i++) {
+      final LatLng geometry = builders.get(i).getGeometry();
+      final int shard = circleShards.shard(itemAt(groups, i), geometry);
+      if (isVirtualized(geometry, itemAt(options, i))) {
+        ids[i] = putVirtualCircle(shard, geometry, itemAt(clientIds, i), itemAt(options, i));
+        continue;
+      }
+      listFor(indicesByShard, shard).add(i);
+    }
+    for (Map.Entry<Integer, List<Integer>> entry : indicesByShard.entrySet()) {
+      final int shard = entry.getKey();
+      final List<Integer> indices = entry.getValue();
+      final List<CircleOptions> circleOptions = new ArrayList<>(indices.size());
+      for (int i : indices) {
+        circleOptions.add(builders.get(i).getCircleOptions());
+      }
+      final List<Circle> created = circleShards.manager(shard).create(circleOptions);
+      reapplyGroupOpacity(circleShards.manager(shard));
+      for (int j = 0; j < created.size(); j++) {
+        final int i = indices.get(j);
+        ids[i] = putCircle(shard, created.get(j), itemAt(clientIds, i), itemAt(options, i));
+      }
+    }
+    return Arrays.asList(ids);
+  }
+
+  /**
+   * Pushes the changes of circles right away, with one update call per manager.
+   */
+  private void updateCircles(Collection<CircleController> circleControllers) {
+    final Map<CircleManager, List<Circle>> circlesByManager = new LinkedHashMap<>();
+    for (CircleController circleController : circleControllers) {
+      if (!circleController.isAttached()) {
+        continue;
+      }
+      updateScheduler.cancel(circleController.getManager(), circleController.getCircle());
+      listFor(circlesByManager, circleController.getManager()).add(circleController.getCircle());
+    }
+    for (Map.Entry<CircleManager, List<Circle>> entry : circlesByManager.entrySet()) {
+      entry.getKey().update(entry.getValue());
+      reapplyGroupOpacity(entry.getKey());
+    }
+  }
+
+  /**
+   * Deletes the annotations of unregistered or detached circles, with one delete call per manager.
+   */
+  private void deleteCircles(Collection<CircleController> circleControllers) {
+    final Map<CircleManager, List<Circle>> circlesByManager = new LinkedHashMap<>();
+    for (CircleController circleController : circleControllers) {
+      if (!circleController.isAttached()) {
+        continue;
+      }
+      updateScheduler.cancel(circleController.getManager(), circleController.getCircle());
+      listFor(circlesByManager, circleController.getManager()).add(circleController.getCircle());
+    }
+    for (Map.Entry<CircleManager, List<Circle>> entry : circlesByManager.entrySet()) {
+      entry.getKey().delete(entry.getValue());
+    }
+  }
+
+  /**
+   * Applies partial options to a circle, the stored options have to be updated first. A detached
+   * circle only keeps them and moves within the grid if its position changed.
+   *
+   * @return true if the circle is attached and its annotation has to be updated
+   */
+  private boolean applyCircleOptions(CircleController circle, Object options) {
+    if (circle.isAttached()) {
+      Convert.interpretCircleOptions(options, circle);
+      if (annotationVirtualization) {
+        attachedCircleGrid.put(circle.getKey(), circle.getPosition());
+      }
+      return true;
+    }
+    final CircleBuilder circleBuilder = newCircleBuilder();
+    Convert.interpretCircleOptions(circle.getOptions(), circleBuilder);
+    final LatLng position = circleBuilder.getGeometry();
+    if (position != null && !position.equals(circle.getPosition())) {
+      circle.setPosition(position);
+      circleGrid.put(circle.getKey(), position);
+      if (materializedRegion != null && materializedRegion.contains(position)) {
+        scheduleVirtualizationUpdate();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves the attached circles outside of the given region into the grid, deleting their
+   * annotations. Circles without complete options stay attached.
+   */
+  private void detachCircles(AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    attachedCircleGrid.queryOutside(region, keys);
+    final List<CircleController> detached = new ArrayList<>();
+    for (long key : keys) {
+      final CircleController circleController = circles.get(key);
+      if (circleController.getOptions() != null) {
+        detached.add(circleController);
+      }
+    }
+    deleteCircles(detached);
+    for (CircleController circleController : detached) {
+      if (circleController.getNativeKey() != circleController.getKey()) {
+        circleNativeKeys.remove(circleController.getNativeKey());
+      }
+      attachedCircleGrid.remove(circleController.getKey());
+      circleController.detach();
+      circleGrid.put(circleController.getKey(), circleController.getPosition());
+    }
+  }
+
+  /**
+   * Re-creates the annotations of the detached circles in the given region, with one create call
+   * per shard.
+   */
+  private void attachCircles(AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    circleGrid.query(region, keys);
+    if (keys.isEmpty()) {
+      return;
+    }
+    final Map<Integer, List<CircleController>> circlesByShard = new LinkedHashMap<>();
+    for (long key : keys) {
+      final CircleController circleController = circles.get(key);
+      circleGrid.remove(key);
+      listFor(circlesByShard, AnnotationShards.shardOf(key)).add(circleController);
+    }
+    for (Map.Entry<Integer, List<CircleController>> entry : circlesByShard.entrySet()) {
+      final int shard = entry.getKey();
+      final List<CircleController> circleControllers = entry.getValue();
+      final List<CircleOptions> circleOptions = new ArrayList<>(circleControllers.size());
+      for (CircleController circleController : circleControllers) {
+        final CircleBuilder circleBuilder = newCircleBuilder();
+        Convert.interpretCircleOptions(circleController.getOptions(), circleBuilder);
+        circleOptions.add(circleBuilder.getCircleOptions());
+      }
+      final List<Circle> created = circleShards.manager(shard).create(circleOptions);
+      reapplyGroupOpacity(circleShards.manager(shard));
+      for (int j = 0; j < created.size(); j++) {
+        final CircleController circleController = circleControllers.get(j);
+        final long nativeKey = AnnotationShards.key(shard, created.get(j).getId());
+        circleController.attach(created.get(j), nativeKey);
+        if (nativeKey != circleController.getKey()) {
+          circleNativeKeys.put(nativeKey, circleController.getKey());
+        }
+        if (annotationVirtualization) {
+          attachedCircleGrid.put(circleController.getKey(), circleController.getPosition());
+        }
+      }
+    }
+  }
+
+  private CircleController circle(long circleId) {
     final CircleController circle = circles.get(circleId);
     if (circle == null) {
       throw new IllegalArgumentException("Unknown symbol: " + circleId);
@@ -281,64 +975,572 @@ final class MapboxMapController
     }
   }
 
-  Style.OnStyleLoaded onStyleLoadedCallback = new Style.OnStyleLoaded() {
-    @Override
-    public void onStyleLoaded(@NonNull Style style) {
-      enableLineManager(style);
-      enableSymbolManager(style);
-      enableCircleManager(style);
-      enableLocationComponent(style);
-      // needs to be placed after SymbolManager#addClickListener,
-      // is fixed with 0.6.0 of annotations plugin
-      mapboxMap.addOnMapClickListener(MapboxMapController.this);
-    }
-  };
+  Style.OnStyleLoaded onStyleLoadedCallback = new Style.OnStyleLoaded() {
+    @Override
+    public void onStyleLoaded(@NonNull Style style) {
+      MapboxMapController.this.style = style;
+      styleGeneration++;
+      renderedFeaturesCache.invalidate();
+      restoreStyleImages(style);
+      enableLineManager(style);
+      enableSymbolManager(style);
+      enableCircleManager(style);
+      enableLocationComponent(style);
+      // needs to be placed after SymbolManager#addClickListener,
+      // is fixed with 0.6.0 of annotations plugin
+      mapboxMap.addOnMapClickListener(MapboxMapController.this);
+    }
+  };
+
+  @SuppressWarnings( {"MissingPermission"})
+  private void enableLocationComponent(@NonNull Style style) {
+    if (hasLocationPermission()) {
+      LocationComponentOptions locationComponentOptions = LocationComponentOptions.builder(context)
+        .trackingGesturesManagement(true)
+        .build();
+      locationComponent = mapboxMap.getLocationComponent();
+      locationComponent.activateLocationComponent(context, style, locationComponentOptions);
+      locationComponent.setLocationComponentEnabled(true);
+      locationComponent.setRenderMode(RenderMode.COMPASS);
+      updateMyLocationTrackingMode();
+      setMyLocationTrackingMode(this.myLocationTrackingMode);
+      locationComponent.addOnCameraTrackingChangedListener(this);
+    } else {
+      Log.e(TAG, "missing location permissions");
+    }
+  }
+
+  private void enableSymbolManager(@NonNull Style style) {
+    if (symbolShards.isEmpty()) {
+      // creates the manager of the default shard
+      symbolShards.shard(null, null);
+    }
+  }
+
+  private void enableLineManager(@NonNull Style style) {
+    if (lineShards.isEmpty()) {
+      lineShards.shard(null, null);
+    }
+  }
+    
+  private void enableCircleManager(@NonNull Style style) {
+    if (circleShards.isEmpty()) {
+      circleShards.shard(null, null);
+    }
+  }
+
+  private SymbolManager createSymbolManager(int shard, String group) {
+    final SymbolManager symbolManager = new SymbolManager(mapView, mapboxMap, style);
+    symbolManager.setIconAllowOverlap(true);
+    symbolManager.setIconIgnorePlacement(true);
+    symbolManager.setTextAllowOverlap(true);
+    symbolManager.setTextIgnorePlacement(true);
+    symbolManager.addClickListener(symbol -> onSymbolClick(AnnotationShards.key(shard, symbol.getId())));
+    if (group != null) {
+      putGroupOpacityApplier(
+        symbolManager, group, symbolManager.getLayerId(), SYMBOL_OPACITY_PROPERTIES);
+    }
+    final AnnotationGroup annotationGroup = annotationGroups.get(group);
+    if (annotationGroup != null) {
+      applyAnnotationGroup(symbolManager, annotationGroup);
+    } else if (symbolClusters.isEnabled()) {
+      symbolManager.setFilter(symbolFilter(null));
+    }
+    return symbolManager;
+  }
+
+  private void applyAnnotationGroup(SymbolManager symbolManager, AnnotationGroup annotationGroup) {
+    symbolManager.setFilter(symbolFilter(annotationGroup));
+    annotationGroup.applyTo(style.getLayer(symbolManager.getLayerId()), SYMBOL_OPACITY_PROPERTIES);
+  }
+
+  /**
+   * Returns the manager filter of the symbols of a group, hiding the clustered symbols while
+   * clustering is enabled.
+   */
+  private Expression symbolFilter(AnnotationGroup annotationGroup) {
+    final Expression filter = annotationGroup != null ? annotationGroup.getFilter() : Expression.literal(true);
+    return symbolClusters.isEnabled() ? Expression.all(filter, symbolClusters.getSymbolFilter()) : filter;
+  }
+
+  private void applySymbolFilters() {
+    for (int shard = 0; shard < symbolShards.getManagers().size(); shard++) {
+      final AnnotationGroup annotationGroup = annotationGroups.get(symbolShards.groupOf(shard));
+      symbolShards.manager(shard).setFilter(symbolFilter(annotationGroup));
+    }
+  }
+
+  private void setSymbolClustering(Object options) {
+    if (options == null) {
+      symbolClusters.disable(style);
+      clusterBuildGeneration++;
+    } else {
+      Convert.interpretSymbolClusterOptions(options, symbolClusters);
+      symbolClusters.enable(style);
+      scheduleSymbolClusterBuild();
+    }
+    applySymbolFilters();
+  }
+
+  private void scheduleSymbolClusterBuild() {
+    if (clusterBuildScheduled) {
+      return;
+    }
+    clusterBuildScheduled = true;
+    mainHandler.postDelayed(this::buildSymbolClusters, CLUSTER_BUILD_DELAY_MS);
+  }
+
+  /**
+   * Indexes the positions of all symbols in the background, builds started before the latest one
+   * are dropped once they complete.
+   */
+  private void buildSymbolClusters() {
+    clusterBuildScheduled = false;
+    if (disposed || !symbolClusters.isEnabled()) {
+      return;
+    }
+    final int count = symbols.size();
+    final long[] keys = new long[count];
+    final double[] longitudes = new double[count];
+    final double[] latitudes = new double[count];
+    for (int i = 0; i < count; i++) {
+      final LatLng position = symbols.valueAt(i).getPosition();
+      keys[i] = symbols.keyAt(i);
+      longitudes[i] = position.getLongitude();
+      latitudes[i] = position.getLatitude();
+    }
+    final int generation = ++clusterBuildGeneration;
+    backgroundExecutor.execute(() -> {
+      final SymbolClusterIndex index = symbolClusters.buildIndex(longitudes, latitudes);
+      mainHandler.post(() -> onSymbolClustersBuilt(generation, index, keys));
+    });
+  }
+
+  private void onSymbolClustersBuilt(int generation, SymbolClusterIndex index, long[] keys) {
+    if (disposed || generation != clusterBuildGeneration || !symbolClusters.isEnabled()) {
+      return;
+    }
+    symbolClusters.setIndex(index, keys);
+    final List<SymbolController> changed = new ArrayList<>();
+    for (int i = 0; i < keys.length; i++) {
+      final SymbolController symbolController = symbols.get(keys[i]);
+      if (symbolController != null && symbolController.setClusterZoom(index.getPointZoom(i))) {
+        changed.add(symbolController);
+      }
+    }
+    updateSymbols(changed);
+    renderedFeaturesCache.invalidate();
+    symbolClusters.render(mapboxMap.getCameraPosition().zoom);
+    applySymbolFilters();
+  }
+
+  private void onClusterTap(Feature feature) {
+    final long clusterId = feature.getNumberProperty(SymbolClusters.CLUSTER_ID).longValue();
+    final Point point = (Point) feature.geometry();
+    final SymbolClusterIndex index = symbolClusters.getIndex();
+    final int expansionZoom = index.getExpansionZoom(clusterId);
+    final Map<String, Object> arguments = new HashMap<>(6);
+    arguments.put("cluster", clusterId);
+    arguments.put("count", feature.getNumberProperty(SymbolClusters.POINT_COUNT).intValue());
+    arguments.put("lat", point.latitude());
+    arguments.put("lng", point.longitude());
+    arguments.put("expansionZoom", expansionZoom);
+    mapEvents.send("cluster#onTap", arguments);
+    if (!symbolClusters.isExpandOnTap()) {
+      return;
+    }
+
+    final List<String> symbolIds = new ArrayList<>();
+    for (int leaf : index.getLeaves(clusterId)) {
+      final SymbolController symbolController = symbols.get(symbolClusters.getKey(leaf));
+      if (symbolController != null) {
+        symbolIds.add(symbolController.getId());
+      }
+    }
+    mapboxMap.animateCamera(CameraUpdateFactory.newLatLngZoom(
+      new LatLng(point.latitude(), point.longitude()), expansionZoom));
+    final Map<String, Object> expansion = new HashMap<>(arguments);
+    expansion.put("symbols", symbolIds);
+    mapEvents.send("cluster#onExpand", expansion);
+  }
+
+  private LineManager createLineManager(int shard, String group) {
+    final LineManager lineManager = new LineManager(mapView, mapboxMap, style);
+    lineManager.addClickListener(line -> onLineClick(AnnotationShards.key(shard, line.getId())));
+    if (group != null) {
+      putGroupOpacityApplier(lineManager, group, lineManager.getLayerId(), LINE_OPACITY_PROPERTIES);
+    }
+    final AnnotationGroup annotationGroup = annotationGroups.get(group);
+    if (annotationGroup != null) {
+      applyAnnotationGroup(lineManager, annotationGroup);
+    }
+    return lineManager;
+  }
+
+  private void applyAnnotationGroup(LineManager lineManager, AnnotationGroup annotationGroup) {
+    lineManager.setFilter(annotationGroup.getFilter());
+    annotationGroup.applyTo(style.getLayer(lineManager.getLayerId()), LINE_OPACITY_PROPERTIES);
+  }
+
+  private CircleManager createCircleManager(int shard, String group) {
+    final CircleManager circleManager = new CircleManager(mapView, mapboxMap, style);
+    circleManager.addClickListener(circle -> onCircleClick(AnnotationShards.key(shard, circle.getId())));
+    if (group != null) {
+      putGroupOpacityApplier(
+        circleManager, group, circleManager.getLayerId(), CIRCLE_OPACITY_PROPERTIES);
+    }
+    final AnnotationGroup annotationGroup = annotationGroups.get(group);
+    if (annotationGroup != null) {
+      applyAnnotationGroup(circleManager, annotationGroup);
+    }
+    return circleManager;
+  }
+
+  private void applyAnnotationGroup(CircleManager circleManager, AnnotationGroup annotationGroup) {
+    circleManager.setFilter(annotationGroup.getFilter());
+    annotationGroup.applyTo(style.getLayer(circleManager.getLayerId()), CIRCLE_OPACITY_PROPERTIES);
+  }
+
+  private AnnotationGroup annotationGroup(String group) {
+    AnnotationGroup annotationGroup = annotationGroups.get(group);
+    if (annotationGroup == null) {
+      annotationGroup = new AnnotationGroup();
+      annotationGroups.put(group, annotationGroup);
+    }
+    return annotationGroup;
+  }
+
+  /**
+   * Applies the state of a group to its symbol, line and circle managers, the annotations
+   * themselves are left untouched.
+   */
+  private void applyAnnotationGroup(String group) {
+    final AnnotationGroup annotationGroup = annotationGroup(group);
+    final SymbolManager symbolManager = symbolShards.groupManager(group);
+    if (symbolManager != null) {
+      applyAnnotationGroup(symbolManager, annotationGroup);
+    }
+    final LineManager lineManager = lineShards.groupManager(group);
+    if (lineManager != null) {
+      applyAnnotationGroup(lineManager, annotationGroup);
+    }
+    final CircleManager circleManager = circleShards.groupManager(group);
+    if (circleManager != null) {
+      applyAnnotationGroup(circleManager, annotationGroup);
+    }
+  }
+
+  /**
+   * Re-applies the opacity of the group of a manager after it created or updated annotations, as
+   * managers replace a data driven layer property when one of their annotations first uses it.
+   */
+  private void reapplyGroupOpacity(Object manager) {
+    final Runnable applier = groupOpacityAppliers.get(manager);
+    if (applier != null) {
+      applier.run();
+    }
+  }
+
+  private void putGroupOpacityApplier(Object manager, String group, String layerId,
+                                      String... opacityProperties) {
+    groupOpacityAppliers.put(manager, () -> {
+      final AnnotationGroup annotationGroup = annotationGroups.get(group);
+      if (annotationGroup != null && annotationGroup.hasOpacity()) {
+        annotationGroup.applyTo(style.getLayer(layerId), opacityProperties);
+      }
+    });
+  }
+
+  private boolean isVirtualized(LatLng geometry, Object options) {
+    return materializedRegion != null && geometry != null && options != null
+      && !materializedRegion.contains(geometry);
+  }
+
+  private void setAnnotationVirtualization(boolean enabled, double margin) {
+    final boolean wasEnabled = annotationVirtualization;
+    annotationVirtualization = enabled;
+    virtualizationMargin = margin;
+    if (enabled) {
+      if (!wasEnabled) {
+        indexAttachedAnnotations();
+      }
+      updateMaterializedAnnotations();
+      return;
+    }
+    materializedRegion = null;
+    final AnnotationGrid.Region world = new AnnotationGrid.Region(-180, -90, 180, 90);
+    attachSymbols(world);
+    attachCircles(world);
+    attachedSymbolGrid.clear();
+    attachedCircleGrid.clear();
+  }
+
+  /**
+   * Puts the attached symbols and circles into their grids once virtualization gets enabled,
+   * they are kept up to date from then on.
+   */
+  private void indexAttachedAnnotations() {
+    for (int i = 0; i < symbols.size(); i++) {
+      final SymbolController symbol = symbols.valueAt(i);
+      if (symbol.isAttached()) {
+        attachedSymbolGrid.put(symbol.getKey(), symbol.getPosition());
+      }
+    }
+    for (int i = 0; i < circles.size(); i++) {
+      final CircleController circle = circles.valueAt(i);
+      if (circle.isAttached()) {
+        attachedCircleGrid.put(circle.getKey(), circle.getPosition());
+      }
+    }
+  }
+
+  private void scheduleVirtualizationUpdate() {
+    if (virtualizationUpdateScheduled) {
+      return;
+    }
+    virtualizationUpdateScheduled = true;
+    mainHandler.post(() -> {
+      virtualizationUpdateScheduled = false;
+      updateMaterializedAnnotations();
+    });
+  }
+
+  private AnnotationGrid.Region visibleRegion() {
+    return AnnotationGrid.Region.of(mapboxMap.getProjection().getVisibleRegion().latLngBounds);
+  }
+
+  /**
+   * Keeps only the symbols and circles inside the visible bounds, grown by the virtualization
+   * margin, in their managers and the others in the annotation grids.
+   * <p>
+   * Every manager change re-serializes all annotations of the manager, so off screen
+   * annotations are only stored by position until the camera gets close to them. Lines are
+   * always materialized.
+   */
+  private void updateMaterializedAnnotations() {
+    if (disposed || !annotationVirtualization || mapboxMap == null || style == null) {
+      return;
+    }
+    materializedRegion = visibleRegion().expand(virtualizationMargin);
+    detachSymbols(materializedRegion);
+    detachCircles(materializedRegion);
+    attachSymbols(materializedRegion);
+    attachCircles(materializedRegion);
+    renderedFeaturesCache.invalidate();
+  }
+
+  /**
+   * Returns the spatial index over the geometries of all registered symbols, lines and circles,
+   * including the virtualized ones, except for the animated symbols.
+   */
+  private AnnotationIndex annotationIndex() {
+    if (annotationIndex == null) {
+      final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+      for (int i = 0; i < symbols.size(); i++) {
+        final long key = symbols.keyAt(i);
+        if (!annotationAnimator.isAnimating(key)) {
+          builder.addPoint(AnnotationIndex.SYMBOL, key, symbols.valueAt(i).getPosition());
+        }
+      }
+      for (int i = 0; i < lines.size(); i++) {
+        builder.addLine(AnnotationIndex.LINE, lines.keyAt(i), lines.valueAt(i).getGeometry());
+      }
+      for (int i = 0; i < circles.size(); i++) {
+        builder.addPoint(AnnotationIndex.CIRCLE, circles.keyAt(i), circles.valueAt(i).getPosition());
+      }
+      annotationIndex = builder.build();
+    }
+    return annotationIndex;
+  }
+
+  /**
+   * Returns an index over the current positions of the animated symbols. They move every frame,
+   * so they are indexed for each query rather than rebuilding the index of all annotations.
+   */
+  private AnnotationIndex animatedSymbolIndex() {
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    for (long key : annotationAnimator.keys()) {
+      final SymbolController symbol = symbols.get(key);
+      if (symbol != null) {
+        builder.addPoint(AnnotationIndex.SYMBOL, key, symbol.getPosition());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Converts index hits to the reply of an annotation query, with distances in logical pixels at
+   * the current zoom.
+   */
+  private List<Object> toAnnotationHits(List<AnnotationIndex.Hit> hits, Integer limit, double worldSize) {
+    final int size = limit != null ? Math.min(limit, hits.size()) : hits.size();
+    final List<Object> reply = new ArrayList<>(size);
+    for (AnnotationIndex.Hit hit : hits.subList(0, size)) {
+      final Map<String, Object> annotation = new HashMap<>(3);
+      switch (hit.type) {
+        case AnnotationIndex.SYMBOL:
+          annotation.put("type", "symbol");
+          annotation.put("id", symbols.get(hit.key).getId());
+          break;
+        case AnnotationIndex.LINE:
+          annotation.put("type", "line");
+          annotation.put("id", lines.get(hit.key).getId());
+          break;
+        default:
+          annotation.put("type", "circle");
+          annotation.put("id", circles.get(hit.key).getId());
+          break;
+      }
+      annotation.put("distance", hit.distance * worldSize);
+      reply.add(annotation);
+    }
+    return reply;
+  }
+
+  /**
+   * Simplifies lines for the given tolerance in logical pixels, or shows their full geometry
+   * again if it is 0.
+   */
+  private void setLineSimplification(double tolerance) {
+    lineSimplifier.setTolerance(tolerance);
+    lineSimplifier.setZoom(mapboxMap.getCameraPosition().zoom);
+    simplifyLines();
+  }
+
+  /**
+   * Swaps in the level of detail of the current zoom for all lines, with one update call per
+   * manager.
+   */
+  private void simplifyLines() {
+    final List<LineController> changed = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i++) {
+      if (lines.valueAt(i).applySimplification()) {
+        changed.add(lines.valueAt(i));
+      }
+    }
+    updateLines(changed);
+  }
+
+  /**
+   * Reads and decodes images in the background, then registers them and adds them to the style.
+   * An image replaces any image of the same name, and the reply fails without registering any of
+   * the images if one of them cannot be read.
+   */
+  private void addStyleImages(List<Object> images, MethodChannel.Result result) {
+    backgroundExecutor.execute(() -> {
+      final List<StyleImages.Image> loaded = new ArrayList<>(images.size());
+      final List<Bitmap> bitmaps = new ArrayList<>(images.size());
+      try {
+        for (Object image : images) {
+          final StyleImages.Image styleImage = readStyleImage(Convert.toMap(image));
+          bitmaps.add(styleImages.decode(styleImage));
+          loaded.add(styleImage);
+        }
+      } catch (IOException | RuntimeException e) {
+        mainHandler.post(() -> result.error("addImages", e.getMessage(), null));
+        return;
+      }
+      mainHandler.post(() -> {
+        if (disposed) {
+          result.error("addImages", "The map was disposed", null);
+          return;
+        }
+        for (int i = 0; i < loaded.size(); i++) {
+          styleImages.put(loaded.get(i));
+          if (style != null) {
+            style.addImage(loaded.get(i).name, bitmaps.get(i), loaded.get(i).sdf);
+          }
+        }
+        renderedFeaturesCache.invalidate();
+        result.success(null);
+      });
+    });
+  }
 
-  @SuppressWarnings( {"MissingPermission"})
-  private void enableLocationComponent(@NonNull Style style) {
-    if (hasLocationPermission()) {
-      LocationComponentOptions locationComponentOptions = LocationComponentOptions.builder(context)
-        .trackingGesturesManagement(true)
-        .build();
-      locationComponent = mapboxMap.getLocationComponent();
-      locationComponent.activateLocationComponent(context, style, locationComponentOptions);
-      locationComponent.setLocationComponentEnabled(true);
-      locationComponent.setRenderMode(RenderMode.COMPASS);
-      updateMyLocationTrackingMode();
-      setMyLocationTrackingMode(this.myLocationTrackingMode);
-      locationComponent.addOnCameraTrackingChangedListener(this);
-    } else {
-      Log.e(TAG, "missing location permissions");
+  private StyleImages.Image readStyleImage(Map<?, ?> image) throws IOException {
+    final String name = (String) image.get("name");
+    final Number pixelRatio = (Number) image.get("pixelRatio");
+    byte[] data = (byte[]) image.get("bytes");
+    if (data == null) {
+      final String asset = (String) image.get("asset");
+      final String assetPackage = (String) image.get("package");
+      if (asset == null) {
+        throw new IllegalArgumentException("Image without bytes or asset: " + name);
+      }
+      data = readAsset(assetPackage != null
+        ? registrar.lookupKeyForAsset(asset, assetPackage) : registrar.lookupKeyForAsset(asset));
     }
+    return new StyleImages.Image(name, data, Boolean.TRUE.equals(image.get("sdf")),
+      pixelRatio != null ? pixelRatio.floatValue() : null);
   }
 
-  private void enableSymbolManager(@NonNull Style style) {
-    if (symbolManager == null) {
-      symbolManager = new SymbolManager(mapView, mapboxMap, style);
-      symbolManager.setIconAllowOverlap(true);
-      symbolManager.setIconIgnorePlacement(true);
-      symbolManager.setTextAllowOverlap(true);
-      symbolManager.setTextIgnorePlacement(true);
-      symbolManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+  private byte[] readAsset(String key) throws IOException {
+    try (InputStream in = context.getAssets().open(key)) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
     }
   }
 
-  private void enableLineManager(@NonNull Style style) {
-    if (lineManager == null) {
-      lineManager = new LineManager(mapView, mapboxMap, style);
-      lineManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+  /**
+   * Adds the registered images to a newly loaded style, decoding the ones whose bitmaps were
+   * evicted in the background.
+   */
+  private void restoreStyleImages(Style style) {
+    final List<StyleImages.Image> evicted = new ArrayList<>();
+    for (StyleImages.Image image : styleImages.getImages()) {
+      final Bitmap bitmap = styleImages.getCached(image);
+      if (bitmap != null) {
+        style.addImage(image.name, bitmap, image.sdf);
+      } else {
+        evicted.add(image);
+      }
+    }
+    if (evicted.isEmpty()) {
+      return;
     }
+    final int generation = styleGeneration;
+    backgroundExecutor.execute(() -> {
+      final List<Bitmap> bitmaps = new ArrayList<>(evicted.size());
+      for (StyleImages.Image image : evicted) {
+        bitmaps.add(styleImages.decode(image));
+      }
+      mainHandler.post(() -> {
+        // a newer style restores the images itself
+        if (disposed || generation != styleGeneration) {
+          return;
+        }
+        for (int i = 0; i < evicted.size(); i++) {
+          // skip images removed or replaced in the meantime
+          if (styleImages.get(evicted.get(i).name) == evicted.get(i)) {
+            style.addImage(evicted.get(i).name, bitmaps.get(i), evicted.get(i).sdf);
+          }
+        }
+        renderedFeaturesCache.invalidate();
+      });
+    });
   }
-    
-  private void enableCircleManager(@NonNull Style style) {
-    if (circleManager == null) {
-      circleManager = new CircleManager(mapView, mapboxMap, style);
-      circleManager.addClickListener(MapboxMapController.this::onAnnotationClick);
+
+  private void onAnnotationsFlushed(List<Object> managers) {
+    renderedFeaturesCache.invalidate();
+    for (Object manager : managers) {
+      reapplyGroupOpacity(manager);
     }
   }
 
   @Override
   public void onMethodCall(MethodCall call, MethodChannel.Result result) {
+    if (changesAnnotations(call.method)) {
+      renderedFeaturesCache.invalidate();
+      annotationIndex = null;
+    }
+    if (symbolClusters.isEnabled() && movesSymbols(call)) {
+      scheduleSymbolClusterBuild();
+    }
     switch (call.method) {
       case "map#waitForMap":
         if (mapboxMap != null) {
@@ -371,102 +1573,302 @@ final class MapboxMapController
         break;
       }
       case "map#queryRenderedFeatures": {
-        Map<String, Object> reply = new HashMap<>();
-        List<Feature> features;
-
-        String[] layerIds = ((List<String>) call.argument("layerIds")).toArray(new String[0]);
-
-        String filter = (String) call.argument("filter");
-
-        Expression filterExpression = filter == null ? null : new Expression(filter);
-        if (call.hasArgument("x")) {
-          Double x = call.argument("x");
-          Double y = call.argument("y");
-          PointF pixel = new PointF(x.floatValue(), y.floatValue());
-          features = mapboxMap.queryRenderedFeatures(pixel, filterExpression, layerIds);
-        } else {
-          Double left = call.argument("left");
-          Double top = call.argument("top");
-          Double right = call.argument("right");
-          Double bottom = call.argument("bottom");
-          RectF rectF = new RectF(left.floatValue(), top.floatValue(), right.floatValue(), bottom.floatValue());
-          features = mapboxMap.queryRenderedFeatures(rectF, filterExpression, layerIds);
+        final RenderedFeaturesQuery query = new RenderedFeaturesQuery(call);
+        final String cacheKey = query.cacheKey(mapboxMap.getCameraPosition(), styleGeneration);
+        final Map<String, Object> cachedReply = renderedFeaturesCache.get(cacheKey);
+        if (cachedReply != null) {
+          result.success(cachedReply);
+          break;
+        }
+        final int cacheGeneration = renderedFeaturesCache.generation();
+        // only the query itself needs the main thread, serialization runs in the background
+        final List<Feature> features;
+        try {
+          features = query.run(mapboxMap);
+        } catch (IllegalArgumentException e) {
+          result.error("queryRenderedFeatures", e.getMessage(), null);
+          break;
+        }
+        backgroundExecutor.execute(() -> {
+          try {
+            final Map<String, Object> reply = query.toReply(features);
+            mainHandler.post(() -> {
+              renderedFeaturesCache.put(cacheGeneration, cacheKey, reply);
+              result.success(reply);
+            });
+          } catch (RuntimeException e) {
+            mainHandler.post(() -> result.error("queryRenderedFeatures", e.getMessage(), null));
+          }
+        });
+        break;
+      }
+      case "events#ack": {
+        mapEvents.onAck(Convert.toInt(call.argument("sequence")));
+        result.success(null);
+        break;
+      }
+      case "style#addImages": {
+        addStyleImages(call.argument("images"), result);
+        break;
+      }
+      case "style#removeImage": {
+        final String name = call.argument("name");
+        if (styleImages.remove(name) && style != null) {
+          style.removeImage(name);
+          renderedFeaturesCache.invalidate();
         }
-        List<String> featuresJson = new ArrayList<>();
-        for (Feature feature : features) {
-          featuresJson.add(feature.toJson());
+        result.success(null);
+        break;
+      }
+      case "map#getStats": {
+        final Map<String, Object> stats = updateScheduler.getStats();
+        stats.putAll(renderedFeaturesCache.getStats());
+        stats.put("virtualizedSymbols", symbolGrid.size());
+        stats.put("virtualizedCircles", circleGrid.size());
+        stats.put("animatedSymbols", annotationAnimator.size());
+        stats.putAll(styleImages.getStats());
+        result.success(stats);
+        break;
+      }
+      case "annotationGroup#setVisibility": {
+        final String group = call.argument("group");
+        final Boolean visible = call.argument("visible");
+        annotationGroup(group).setVisible(visible);
+        applyAnnotationGroup(group);
+        result.success(null);
+        break;
+      }
+      case "annotationGroup#setOpacity": {
+        final String group = call.argument("group");
+        final Number opacity = call.argument("opacity");
+        annotationGroup(group).setOpacity(opacity.floatValue());
+        applyAnnotationGroup(group);
+        result.success(null);
+        break;
+      }
+      case "annotationGroup#setFilter": {
+        final String group = call.argument("group");
+        final String filter = call.argument("filter");
+        final Expression expression;
+        try {
+          expression = filter != null ? RenderedFeaturesQuery.parseFilter(filter) : null;
+        } catch (IllegalArgumentException e) {
+          result.error("annotationGroup#setFilter", e.getMessage(), null);
+          break;
         }
-        reply.put("features", featuresJson);
-        result.success(reply);
+        annotationGroup(group).setFilter(expression);
+        applyAnnotationGroup(group);
+        result.success(null);
+        break;
+      }
+      case "symbol#setClustering": {
+        setSymbolClustering(call.argument("options"));
+        result.success(null);
+        break;
+      }
+      case "annotations#queryPoint": {
+        final LatLng point = Convert.toLatLng(call.argument("point"));
+        final Number radius = call.argument("radius");
+        final double worldSize = WORLD_SIZE * Math.pow(2, mapboxMap.getCameraPosition().zoom);
+        final List<AnnotationIndex.Hit> hits =
+          annotationIndex().queryPoint(point, radius.doubleValue() / worldSize);
+        hits.addAll(animatedSymbolIndex().queryPoint(point, radius.doubleValue() / worldSize));
+        Collections.sort(hits);
+        result.success(toAnnotationHits(hits, call.argument("limit"), worldSize));
+        break;
+      }
+      case "annotations#queryBounds": {
+        final List<?> bounds = call.argument("bounds");
+        final LatLng southwest = Convert.toLatLng(bounds.get(0));
+        final LatLng northeast = Convert.toLatLng(bounds.get(1));
+        final double worldSize = WORLD_SIZE * Math.pow(2, mapboxMap.getCameraPosition().zoom);
+        final List<AnnotationIndex.Hit> hits = annotationIndex().queryBounds(southwest.getLatitude(),
+          southwest.getLongitude(), northeast.getLatitude(), northeast.getLongitude());
+        hits.addAll(animatedSymbolIndex().queryBounds(southwest.getLatitude(),
+          southwest.getLongitude(), northeast.getLatitude(), northeast.getLongitude()));
+        Collections.sort(hits);
+        result.success(toAnnotationHits(hits, call.argument("limit"), worldSize));
+        break;
+      }
+      case "line#appendPoints": {
+        final long lineId = resolveAnnotationId(call.argument("line"), lineClientIds);
+        final LineController line = line(lineId);
+        final Number maxLength = call.argument("maxLength");
+        line.appendPoints(Convert.toLatLngList(call.argument("points")),
+          maxLength != null ? maxLength.intValue() : 0);
+        // the stored options no longer hold the geometry of the line
+        line.setOptions(null);
+        line.update(updateScheduler);
+        result.success(null);
+        break;
+      }
+      case "line#setSimplification": {
+        final Number tolerance = call.argument("tolerance");
+        setLineSimplification(tolerance != null ? tolerance.doubleValue() : 0);
+        result.success(null);
+        break;
+      }
+      case "annotations#setVirtualization": {
+        final Boolean enabled = call.argument("enabled");
+        final Number margin = call.argument("margin");
+        setAnnotationVirtualization(enabled, margin.doubleValue());
+        result.success(null);
+        break;
+      }
+      case "annotations#apply": {
+        final List<Object> operations = call.argument("operations");
+        result.success(applyAnnotationOperations(operations));
         break;
       }
       case "symbol#add": {
         final SymbolBuilder symbolBuilder = newSymbolBuilder();
         Convert.interpretSymbolOptions(call.argument("options"), symbolBuilder);
-        final Symbol symbol = symbolBuilder.build();
-        final String symbolId = String.valueOf(symbol.getId());
-        symbols.put(symbolId, new SymbolController(symbol, true, this));
-        result.success(symbolId);
+        final String clientId = call.argument("id");
+        checkClientIds(Collections.singletonList(clientId), symbolClientIds, Collections.emptySet(), "symbol");
+        final List<String> symbolIds = createSymbols(Collections.singletonList(symbolBuilder),
+          Collections.singletonList(call.argument("group")), Collections.singletonList(clientId),
+          Collections.singletonList(call.argument("options")));
+        result.success(symbolIds.get(0));
+        break;
+      }
+      case "symbol#addAll": {
+        final List<Object> options = call.argument("options");
+        final List<SymbolBuilder> builders = new ArrayList<>(options.size());
+        for (Object o : options) {
+          final SymbolBuilder symbolBuilder = newSymbolBuilder();
+          Convert.interpretSymbolOptions(o, symbolBuilder);
+          builders.add(symbolBuilder);
+        }
+        final List<String> clientIds = call.argument("ids");
+        if (clientIds != null) {
+          checkClientIds(clientIds, symbolClientIds, Collections.emptySet(), "symbol");
+        }
+        // a single create call per shard regenerates each annotation source once for the batch
+        result.success(createSymbols(builders, call.argument("groups"), clientIds, options));
+        break;
+      }
+      case "symbol#set": {
+        setSymbols(call.argument("ids"), call.argument("groups"), call.argument("options"));
+        result.success(null);
         break;
       }
       case "symbol#remove": {
-        final String symbolId = call.argument("symbol");
+        final long symbolId = resolveAnnotationId(call.argument("symbol"), symbolClientIds);
         removeSymbol(symbolId);
         result.success(null);
         break;
       }
       case "symbol#update": {
-        final String symbolId = call.argument("symbol");
+        final long symbolId = resolveAnnotationId(call.argument("symbol"), symbolClientIds);
         final SymbolController symbol = symbol(symbolId);
-        Convert.interpretSymbolOptions(call.argument("options"), symbol);
-        symbol.update(symbolManager);
+        symbol.mergeOptions(call.argument("options"));
+        if (applySymbolOptions(symbol, call.argument("options"))) {
+          symbol.update(updateScheduler);
+        }
+        result.success(null);
+        break;
+      }
+      case "symbol#animate": {
+        final Number duration = call.argument("duration");
+        final Number easing = call.argument("easing");
+        animateSymbols(call.argument("symbols"), call.argument("positions"), call.argument("bearings"),
+          duration.longValue(), easing.intValue());
         result.success(null);
         break;
       }
       case "line#add": {
         final LineBuilder lineBuilder = newLineBuilder();
         Convert.interpretLineOptions(call.argument("options"), lineBuilder);
-        final Line line = lineBuilder.build();
-        final String lineId = String.valueOf(line.getId());
-        lines.put(lineId, new LineController(line, true, this));
-        result.success(lineId);
+        final String clientId = call.argument("id");
+        checkClientIds(Collections.singletonList(clientId), lineClientIds, Collections.emptySet(), "line");
+        final List<String> lineIds = createLines(Collections.singletonList(lineBuilder),
+          Collections.singletonList(call.argument("group")), Collections.singletonList(clientId),
+          Collections.singletonList(call.argument("options")));
+        result.success(lineIds.get(0));
+        break;
+      }
+      case "line#addAll": {
+        final List<Object> options = call.argument("options");
+        final List<LineBuilder> builders = new ArrayList<>(options.size());
+        for (Object o : options) {
+          final LineBuilder lineBuilder = newLineBuilder();
+          Convert.interpretLineOptions(o, lineBuilder);
+          builders.add(lineBuilder);
+        }
+        final List<String> clientIds = call.argument("ids");
+        if (clientIds != null) {
+          checkClientIds(clientIds, lineClientIds, Collections.emptySet(), "line");
+        }
+        // a single create call per shard regenerates each annotation source once for the batch
+        result.success(createLines(builders, call.argument("groups"), clientIds, options));
+        break;
+      }
+      case "line#set": {
+        setLines(call.argument("ids"), call.argument("groups"), call.argument("options"));
+        result.success(null);
         break;
       }
       case "line#remove": {
-        final String lineId = call.argument("line");
+        final long lineId = resolveAnnotationId(call.argument("line"), lineClientIds);
         removeLine(lineId);
         result.success(null);
         break;
       }
       case "line#update": {
-        final String lineId = call.argument("line");
+        final long lineId = resolveAnnotationId(call.argument("line"), lineClientIds);
         final LineController line = line(lineId);
+        line.mergeOptions(call.argument("options"));
         Convert.interpretLineOptions(call.argument("options"), line);
-        line.update(lineManager);
+        line.update(updateScheduler);
         result.success(null);
         break;
       }
       case "circle#add": {
         final CircleBuilder circleBuilder = newCircleBuilder();
         Convert.interpretCircleOptions(call.argument("options"), circleBuilder);
-        final Circle circle = circleBuilder.build();
-        final String circleId = String.valueOf(circle.getId());
-        circles.put(circleId, new CircleController(circle, true, this));
-        result.success(circleId);
+        final String clientId = call.argument("id");
+        checkClientIds(Collections.singletonList(clientId), circleClientIds, Collections.emptySet(), "circle");
+        final List<String> circleIds = createCircles(Collections.singletonList(circleBuilder),
+          Collections.singletonList(call.argument("group")), Collections.singletonList(clientId),
+          Collections.singletonList(call.argument("options")));
+        result.success(circleIds.get(0));
+        break;
+      }
+      case "circle#addAll": {
+        final List<Object> options = call.argument("options");
+        final List<CircleBuilder> builders = new ArrayList<>(options.size());
+        for (Object o : options) {
+          final CircleBuilder circleBuilder = newCircleBuilder();
+          Convert.interpretCircleOptions(o, circleBuilder);
+          builders.add(circleBuilder);
+        }
+        final List<String> clientIds = call.argument("ids");
+        if (clientIds != null) {
+          checkClientIds(clientIds, circleClientIds, Collections.emptySet(), "circle");
+        }
+        // a single create call per shard regenerates each annotation source once for the batch
+        result.success(createCircles(builders, call.argument("groups"), clientIds, options));
+        break;
+      }
+      case "circle#set": {
+        setCircles(call.argument("ids"), call.argument("groups"), call.argument("options"));
+        result.success(null);
         break;
       }
       case "circle#remove": {
-        final String circleId = call.argument("circle");
+        final long circleId = resolveAnnotationId(call.argument("circle"), circleClientIds);
         removeCircle(circleId);
         result.success(null);
         break;
       }
       case "circle#update": {
         Log.e(TAG, "update circle");
-        final String circleId = call.argument("circle");
+        final long circleId = resolveAnnotationId(call.argument("circle"), circleClientIds);
         final CircleController circle = circle(circleId);
-        Convert.interpretCircleOptions(call.argument("options"), circle);
-        circle.update(circleManager);
+        circle.mergeOptions(call.argument("options"));
+        if (applyCircleOptions(circle, call.argument("options"))) {
+          circle.update(updateScheduler);
+        }
         result.success(null);
         break;
       }
@@ -475,27 +1877,582 @@ final class MapboxMapController
     }
   }
 
+  /**
+   * Applies a list of one-way annotation updates and removals sent on the mutation channel.
+   * <p>
+   * Each mutation is a {@code [method, arguments]} pair handled like the method call of the same
+   * name, but without a reply per call. Failures are collected and reported in a single
+   * {@code mutations#onError} event.
+   */
+  private void onMutations(Object message, BasicMessageChannel.Reply<Object> reply) {
+    final List<Object> errors = new ArrayList<>();
+    for (Object o : (List<?>) message) {
+      final List<?> mutation = (List<?>) o;
+      final String method = (String) mutation.get(0);
+      final Map<?, ?> arguments = Convert.toMap(mutation.get(1));
+      try {
+        if (!isMutation(method)) {
+          throw new IllegalArgumentException("Unsupported mutation: " + method);
+        }
+        onMethodCall(new MethodCall(method, arguments), IGNORED_RESULT);
+      } catch (RuntimeException e) {
+        final Map<String, Object> error = new HashMap<>(3);
+        error.put("method", method);
+        error.put("id", String.valueOf(arguments.get(method.substring(0, method.indexOf('#')))));
+        error.put("message", e.getMessage());
+        errors.add(error);
+      }
+    }
+    if (!errors.isEmpty()) {
+      final Map<String, Object> arguments = new HashMap<>(1);
+      arguments.put("errors", errors);
+      mapEvents.send("mutations#onError", arguments);
+    }
+    reply.reply(null);
+  }
+
+  private static boolean isMutation(String method) {
+    switch (method) {
+      case "symbol#update":
+      case "symbol#remove":
+      case "line#update":
+      case "line#remove":
+      case "line#appendPoints":
+      case "circle#update":
+      case "circle#remove":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Replaces all symbols with the given keyed symbols, applying only the differences.
+   * <p>
+   * Symbols are matched by their client assigned id. Matched symbols are only updated if their
+   * options differ from the ones they were last configured with, unmatched ones are created and
+   * symbols missing from {@code ids} are removed, with one delete, update and create call per
+   * shard. A matched symbol whose group changed is re-created in the shard of its new group, and
+   * so is one whose options lost a field, as updates only apply the fields that are present.
+   */
+  private void setSymbols(List<String> ids, List<String> groups, List<Object> options) {
+    checkClientIds(ids, Collections.emptyMap(), Collections.emptySet(), "symbol");
+    final List<SymbolBuilder> toAdd = new ArrayList<>();
+    final List<String> groupsToAdd = new ArrayList<>();
+    final List<String> clientIdsToAdd = new ArrayList<>();
+    final List<Object> optionsToAdd = new ArrayList<>();
+    final List<SymbolController> updated = new ArrayList<>();
+    final Set<String> keys = new HashSet<>();
+    for (int i = 0; i < ids.size(); i++) {
+      final String group = itemAt(groups, i);
+      final Long key = symbolClientIds.get(ids.get(i));
+      final SymbolController symbol = key != null ? symbols.get(key) : null;
+      final boolean changed =
+        symbol != null && !Convert.optionsEqual(symbol.getOptions(), options.get(i));
+      if (symbol == null || !equals(group, symbolShards.groupOf(AnnotationShards.shardOf(key)))
+        || (changed && Convert.removesSymbolOptions(symbol.getOptions(), options.get(i)))) {
+        final SymbolBuilder symbolBuilder = newSymbolBuilder();
+        Convert.interpretSymbolOptions(options.get(i), symbolBuilder);
+        toAdd.add(symbolBuilder);
+        groupsToAdd.add(group);
+        clientIdsToAdd.add(ids.get(i));
+        optionsToAdd.add(options.get(i));
+        continue;
+      }
+      keys.add(ids.get(i));
+      if (changed) {
+        symbol.setOptions(options.get(i));
+        if (applySymbolOptions(symbol, options.get(i))) {
+          updated.add(symbol);
+        }
+      }
+    }
+
+    final List<SymbolController> removed = new ArrayList<>();
+    for (int i = symbols.size() - 1; i >= 0; i--) {
+      final SymbolController symbol = symbols.valueAt(i);
+      if (symbol.getClientId() == null || !keys.contains(symbol.getClientId())) {
+        unregisterSymbol(symbol);
+        removed.add(symbol);
+      }
+    }
+
+    deleteSymbols(removed);
+    updateSymbols(updated);
+    createSymbols(toAdd, groupsToAdd, clientIdsToAdd, optionsToAdd);
+  }
+
+
+  /**
+   * Replaces all lines with the given keyed lines, applying only the differences.
+   * <p>
+   * Lines are matched by their client assigned id. Matched lines are only updated if their
+   * options differ from the ones they were last configured with, unmatched ones are created and
+   * lines missing from {@code ids} are removed, with one delete, update and create call per
+   * shard. A matched line whose group changed is re-created in the shard of its new group, and
+   * so is one whose options lost a field, as updates only apply the fields that are present.
+   */
+  private void setLines(List<String> ids, List<String> groups, List<Object> options) {
+    checkClientIds(ids, Collections.emptyMap(), Collections.emptySet(), "line");
+    final List<LineBuilder> toAdd = new ArrayList<>();
+    final List<String> groupsToAdd = new ArrayList<>();
+    final List<String> clientIdsToAdd = new ArrayList<>();
+    final List<Object> optionsToAdd = new ArrayList<>();
+    final List<LineController> updated = new ArrayList<>();
+    final Set<String> keys = new HashSet<>();
+    for (int i = 0; i < ids.size(); i++) {
+      final String group = itemAt(groups, i);
+      final Long key = lineClientIds.get(ids.get(i));
+      final LineController line = key != null ? lines.get(key) : null;
+      final boolean changed =
+        line != null && !Convert.optionsEqual(line.getOptions(), options.get(i));
+      if (line == null || !equals(group, lineShards.groupOf(AnnotationShards.shardOf(key)))
+        || (changed && Convert.removesLineOptions(line.getOptions(), options.get(i)))) {
+        final LineBuilder lineBuilder = newLineBuilder();
+        Convert.interpretLineOptions(options.get(i), lineBuilder);
+        toAdd.add(lineBuilder);
+        groupsToAdd.add(group);
+        clientIdsToAdd.add(ids.get(i));
+        optionsToAdd.add(options.get(i));
+        continue;
+      }
+      keys.add(ids.get(i));
+      if (changed) {
+        Convert.interpretLineOptions(options.get(i), line);
+        line.setOptions(options.get(i));
+        updated.add(line);
+      }
+    }
+
+    final List<LineController> removed = new ArrayList<>();
+    for (int i = lines.size() - 1; i >= 0; i--) {
+      final LineController line = lines.valueAt(i);
+      if (line.getClientId() == null || !keys.contains(line.getClientId())) {
+        unregisterLine(line);
+        removed.add(line);
+      }
+    }
+
+    deleteLines(removed);
+    updateLines(updated);
+    createLines(toAdd, groupsToAdd, clientIdsToAdd, optionsToAdd);
+  }
+
+
+  /**
+   * Replaces all circles with the given keyed circles, applying only the differences.
+   * <p>
+   * Circles are matched by their client assigned id. Matched circles are only updated if their
+   * options differ from the ones they were last configured with, unmatched ones are created and
+   * circles missing from {@code ids} are removed, with one delete, update and create call per
+   * shard. A matched circle whose group changed is re-created in the shard of its new group, and
+   * so is one whose options lost a field, as updates only apply the fields that are present.
+   */
+  private void setCircles(List<String> ids, List<String> groups, List<Object> options) {
+    checkClientIds(ids, Collections.emptyMap(), Collections.emptySet(), "circle");
+    final List<CircleBuilder> toAdd = new ArrayList<>();
+    final List<String> groupsToAdd = new ArrayList<>();
+    final List<String> clientIdsToAdd = new ArrayList<>();
+    final List<Object> optionsToAdd = new ArrayList<>();
+    final List<CircleController> updated = new ArrayList<>();
+    final Set<String> keys = new HashSet<>();
+    for (int i = 0; i < ids.size(); i++) {
+      final String group = itemAt(groups, i);
+      final Long key = circleClientIds.get(ids.get(i));
+      final CircleController circle = key != null ? circles.get(key) : null;
+      final boolean changed =
+        circle != null && !Convert.optionsEqual(circle.getOptions(), options.get(i));
+      if (circle == null || !equals(group, circleShards.groupOf(AnnotationShards.shardOf(key)))
+        || (changed && Convert.removesCircleOptions(circle.getOptions(), options.get(i)))) {
+        final CircleBuilder circleBuilder = newCircleBuilder();
+        Convert.interpretCircleOptions(options.get(i), circleBuilder);
+        toAdd.add(circleBuilder);
+        groupsToAdd.add(group);
+        clientIdsToAdd.add(ids.get(i));
+        optionsToAdd.add(options.get(i));
+        continue;
+      }
+      keys.add(ids.get(i));
+      if (changed) {
+        circle.setOptions(options.get(i));
+        if (applyCircleOptions(circle, options.get(i))) {
+          updated.add(circle);
+        }
+      }
+    }
+
+    final List<CircleController> removed = new ArrayList<>();
+    for (int i = circles.size() - 1; i >= 0; i--) {
+      final CircleController circle = circles.valueAt(i);
+      if (circle.getClientId() == null || !keys.contains(circle.getClientId())) {
+        unregisterCircle(circle);
+        removed.add(circle);
+      }
+    }
+
+    deleteCircles(removed);
+    updateCircles(updated);
+    createCircles(toAdd, groupsToAdd, clientIdsToAdd, optionsToAdd);
+  }
+
+
+  /**
+   * Applies an ordered list of symbol, line and circle operations as one batch.
+   * <p>
+   * Each operation is a map holding a {@code type} (symbol, line or circle), an {@code op}
+   * (add, update or remove), the annotation {@code id} for updates and removes, and the
+   * {@code options} for adds and updates. Options are interpreted in order, after which every
+   * manager receives at most one delete, one update and one create call, so each layer source is
+   * refreshed once per batch. Updates are only validated against throwaway builders while the
+   * batch is interpreted and applied to the registered annotations once every operation has
+   * been interpreted, so a malformed batch leaves the registered annotations untouched.
+   *
+   * @return the ids of the added annotations, in the order of the add operations
+   */
+  private List<String> applyAnnotationOperations(List<Object> operations) {
+    final List<SymbolBuilder> symbolsToAdd = new ArrayList<>();
+    // options of the updates of each annotation in request order, applied after validation
+    final Map<Long, List<Object>> symbolChanges = new LinkedHashMap<>();
+    final Map<Long, SymbolController> symbolsToRemove = new LinkedHashMap<>();
+    final List<String> symbolGroupsToAdd = new ArrayList<>();
+    final List<String> symbolClientIdsToAdd = new ArrayList<>();
+    final List<Object> symbolOptionsToAdd = new ArrayList<>();
+    final List<LineBuilder> linesToAdd = new ArrayList<>();
+    // options of the updates of each annotation in request order, applied after validation
+    final Map<Long, List<Object>> lineChanges = new LinkedHashMap<>();
+    final Map<Long, LineController> linesToRemove = new LinkedHashMap<>();
+    final List<String> lineGroupsToAdd = new ArrayList<>();
+    final List<String> lineClientIdsToAdd = new ArrayList<>();
+    final List<Object> lineOptionsToAdd = new ArrayList<>();
+    final List<CircleBuilder> circlesToAdd = new ArrayList<>();
+    // options of the updates of each annotation in request order, applied after validation
+    final Map<Long, List<Object>> circleChanges = new LinkedHashMap<>();
+    final Map<Long, CircleController> circlesToRemove = new LinkedHashMap<>();
+    final List<String> circleGroupsToAdd = new ArrayList<>();
+    final List<String> circleClientIdsToAdd = new ArrayList<>();
+    final List<Object> circleOptionsToAdd = new ArrayList<>();
+    // type of every add operation, used to interleave the created ids in request order
+    final List<String> addedTypes = new ArrayList<>();
+
+    for (Object o : operations) {
+      final Map<?, ?> operation = Convert.toMap(o);
+      final String type = (String) operation.get("type");
+      final String op = (String) operation.get("op");
+      final Object id = operation.get("id");
+      final Object options = operation.get("options");
+      switch (type + "#" + op) {
+        case "symbol#add": {
+          final SymbolBuilder symbolBuilder = newSymbolBuilder();
+          Convert.interpretSymbolOptions(options, symbolBuilder);
+          symbolsToAdd.add(symbolBuilder);
+          symbolGroupsToAdd.add((String) operation.get("group"));
+          symbolClientIdsToAdd.add((String) id);
+          symbolOptionsToAdd.add(options);
+          addedTypes.add(type);
+          break;
+        }
+        case "symbol#update": {
+          final long annotationId = resolveAnnotationId(id, symbolClientIds);
+          if (symbolsToRemove.containsKey(annotationId)) {
+            throw new IllegalArgumentException("Unknown symbol: " + annotationId);
+          }
+          symbol(annotationId);
+          Convert.interpretSymbolOptions(options, newSymbolBuilder());
+          listFor(symbolChanges, annotationId).add(options);
+          break;
+        }
+        case "symbol#remove": {
+          final long annotationId = resolveAnnotationId(id, symbolClientIds);
+          final SymbolController symbol = symbols.get(annotationId);
+          if (symbol != null) {
+            symbolChanges.remove(annotationId);
+            symbolsToRemove.put(annotationId, symbol);
+          }
+          break;
+        }
+        case "line#add": {
+          final LineBuilder lineBuilder = newLineBuilder();
+          Convert.interpretLineOptions(options, lineBuilder);
+          linesToAdd.add(lineBuilder);
+          lineGroupsToAdd.add((String) operation.get("group"));
+          lineClientIdsToAdd.add((String) id);
+          lineOptionsToAdd.add(options);
+          addedTypes.add(type);
+          break;
+        }
+        case "line#update": {
+          final long annotationId = resolveAnnotationId(id, lineClientIds);
+          if (linesToRemove.containsKey(annotationId)) {
+            throw new IllegalArgumentException("Unknown line: " + annotationId);
+          }
+          line(annotationId);
+          // a builder without simplification, which only needs to validate the options
+          Convert.interpretLineOptions(options, new LineBuilder(new LineSimplifier()));
+          listFor(lineChanges, annotationId).add(options);
+          break;
+        }
+        case "line#remove": {
+          final long annotationId = resolveAnnotationId(id, lineClientIds);
+          final LineController line = lines.get(annotationId);
+          if (line != null) {
+            lineChanges.remove(annotationId);
+            linesToRemove.put(annotationId, line);
+          }
+          break;
+        }
+        case "circle#add": {
+          final CircleBuilder circleBuilder = newCircleBuilder();
+          Convert.interpretCircleOptions(options, circleBuilder);
+          circlesToAdd.add(circleBuilder);
+          circleGroupsToAdd.add((String) operation.get("group"));
+          circleClientIdsToAdd.add((String) id);
+          circleOptionsToAdd.add(options);
+          addedTypes.add(type);
+          break;
+        }
+        case "circle#update": {
+          final long annotationId = resolveAnnotationId(id, circleClientIds);
+          if (circlesToRemove.containsKey(annotationId)) {
+            throw new IllegalArgumentException("Unknown circle: " + annotationId);
+          }
+          circle(annotationId);
+          Convert.interpretCircleOptions(options, newCircleBuilder());
+          listFor(circleChanges, annotationId).add(options);
+          break;
+        }
+        case "circle#remove": {
+          final long annotationId = resolveAnnotationId(id, circleClientIds);
+          final CircleController circle = circles.get(annotationId);
+          if (circle != null) {
+            circleChanges.remove(annotationId);
+            circlesToRemove.put(annotationId, circle);
+          }
+          break;
+        }
+        default:
+          throw new IllegalArgumentException("Cannot interpret " + o + " as annotation operation");
+      }
+    }
+
+    checkClientIds(symbolClientIdsToAdd, symbolClientIds, symbolsToRemove.keySet(), "symbol");
+    checkClientIds(lineClientIdsToAdd, lineClientIds, linesToRemove.keySet(), "line");
+    checkClientIds(circleClientIdsToAdd, circleClientIds, circlesToRemove.keySet(), "circle");
+
+    final List<SymbolController> symbolsToUpdate = new ArrayList<>(symbolChanges.size());
+    for (Map.Entry<Long, List<Object>> entry : symbolChanges.entrySet()) {
+      final SymbolController symbol = symbols.get(entry.getKey());
+      boolean attached = false;
+      for (Object options : entry.getValue()) {
+        symbol.mergeOptions(options);
+        attached = applySymbolOptions(symbol, options);
+      }
+      if (attached) {
+        symbolsToUpdate.add(symbol);
+      }
+    }
+    final List<LineController> linesToUpdate = new ArrayList<>(lineChanges.size());
+    for (Map.Entry<Long, List<Object>> entry : lineChanges.entrySet()) {
+      final LineController line = lines.get(entry.getKey());
+      for (Object options : entry.getValue()) {
+        line.mergeOptions(options);
+        Convert.interpretLineOptions(options, line);
+      }
+      linesToUpdate.add(line);
+    }
+    final List<CircleController> circlesToUpdate = new ArrayList<>(circleChanges.size());
+    for (Map.Entry<Long, List<Object>> entry : circleChanges.entrySet()) {
+      final CircleController circle = circles.get(entry.getKey());
+      boolean attached = false;
+      for (Object options : entry.getValue()) {
+        circle.mergeOptions(options);
+        attached = applyCircleOptions(circle, options);
+      }
+      if (attached) {
+        circlesToUpdate.add(circle);
+      }
+    }
+
+    for (SymbolController symbol : symbolsToRemove.values()) {
+      unregisterSymbol(symbol);
+    }
+    deleteSymbols(symbolsToRemove.values());
+    updateSymbols(symbolsToUpdate);
+    final List<String> symbolIds =
+      createSymbols(symbolsToAdd, symbolGroupsToAdd, symbolClientIdsToAdd, symbolOptionsToAdd);
+
+    for (LineController line : linesToRemove.values()) {
+      unregisterLine(line);
+    }
+    deleteLines(linesToRemove.values());
+    updateLines(linesToUpdate);
+    final List<String> lineIds =
+      createLines(linesToAdd, lineGroupsToAdd, lineClientIdsToAdd, lineOptionsToAdd);
+
+    for (CircleController circle : circlesToRemove.values()) {
+      unregisterCircle(circle);
+    }
+    deleteCircles(circlesToRemove.values());
+    updateCircles(circlesToUpdate);
+    final List<String> circleIds =
+      createCircles(circlesToAdd, circleGroupsToAdd, circleClientIdsToAdd, circleOptionsToAdd);
+
+    final List<String> addedIds = new ArrayList<>(addedTypes.size());
+    int symbolIndex = 0;
+    int lineIndex = 0;
+    int circleIndex = 0;
+    for (String type : addedTypes) {
+      switch (type) {
+        case "symbol":
+          addedIds.add(symbolIds.get(symbolIndex++));
+          break;
+        case "line":
+          addedIds.add(lineIds.get(lineIndex++));
+          break;
+        default:
+          addedIds.add(circleIds.get(circleIndex++));
+          break;
+      }
+    }
+    return addedIds;
+  }
+
+  /**
+   * Resolves an annotation id sent by the client, which is either a client assigned id or the
+   * id of the native annotation.
+   */
+  private static long resolveAnnotationId(Object id, Map<String, Long> clientIds) {
+    if (id instanceof String) {
+      final Long annotationId = clientIds.get(id);
+      if (annotationId != null) {
+        return annotationId;
+      }
+    }
+    return Convert.toAnnotationId(id);
+  }
+
+  private static <T> T itemAt(List<T> items, int index) {
+    return items != null ? items.get(index) : null;
+  }
+
+  private static <K, V> List<V> listFor(Map<K, List<V>> lists, K key) {
+    List<V> list = lists.get(key);
+    if (list == null) {
+      list = new ArrayList<>();
+      lists.put(key, list);
+    }
+    return list;
+  }
+
+  private static boolean equals(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Checks that the client assigned ids of new annotations are unique and not numeric, as a
+   * numeric id would shadow the native id it spells. Ids of annotations that are about to be
+   * removed may be reused.
+   */
+  private static void checkClientIds(
+    List<String> ids, Map<String, Long> clientIds, Set<Long> removedIds, String type) {
+    final Set<String> seen = new HashSet<>();
+    for (String id : ids) {
+      if (id == null) {
+        continue;
+      }
+      if (isNumeric(id)) {
+        throw new IllegalArgumentException("Numeric " + type + " id: " + id);
+      }
+      final Long annotationId = clientIds.get(id);
+      if (!seen.add(id) || (annotationId != null && !removedIds.contains(annotationId))) {
+        throw new IllegalArgumentException("Duplicate " + type + ": " + id);
+      }
+    }
+  }
+
+  private static boolean isNumeric(String id) {
+    try {
+      Long.parseLong(id);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns true if a call adds, removes or moves symbols, which outdates the cluster index.
+   * Animated symbols are indexed again once their animations finish.
+   */
+  private static boolean movesSymbols(MethodCall call) {
+    switch (call.method) {
+      case "symbol#add":
+      case "symbol#addAll":
+      case "symbol#set":
+      case "symbol#remove":
+        return true;
+      case "symbol#update":
+        return Convert.hasSymbolGeometry(call.argument("options"));
+      case "annotations#apply":
+        for (Object o : (List<?>) call.argument("operations")) {
+          final Map<?, ?> operation = Convert.toMap(o);
+          if ("symbol".equals(operation.get("type")) && (!"update".equals(operation.get("op"))
+            || Convert.hasSymbolGeometry(operation.get("options")))) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean changesAnnotations(String method) {
+    return method.startsWith("symbol#")
+      || method.startsWith("line#")
+      || method.startsWith("circle#")
+      || (method.startsWith("annotations#") && !method.startsWith("annotations#query"))
+      || method.startsWith("annotationGroup#");
+  }
+
   @Override
   public void onCameraMoveStarted(int reason) {
     final Map<String, Object> arguments = new HashMap<>(2);
     boolean isGesture = reason == MapboxMap.OnCameraMoveStartedListener.REASON_API_GESTURE;
     arguments.put("isGesture", isGesture);
-    methodChannel.invokeMethod("camera#onMoveStarted", arguments);
+    mapEvents.send("camera#onMoveStarted", arguments);
   }
 
   @Override
   public void onCameraMove() {
+    renderedFeaturesCache.invalidate();
+    if (symbolClusters.render(mapboxMap.getCameraPosition().zoom)) {
+      applySymbolFilters();
+    }
+    if (lineSimplifier.isEnabled() && lineSimplifier.setZoom(mapboxMap.getCameraPosition().zoom)) {
+      simplifyLines();
+    }
+    // only materialize during a move once the screen leaves the materialized region
+    if (materializedRegion != null && !materializedRegion.contains(visibleRegion())) {
+      updateMaterializedAnnotations();
+    }
     if (!trackCameraPosition) {
       return;
     }
-    final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("position", Convert.toJson(mapboxMap.getCameraPosition()));
-    methodChannel.invokeMethod("camera#onMove", arguments);
+    cameraMoveEventThrottle.onCameraMove(mapboxMap);
   }
 
   @Override
   public void onCameraIdle() {
-    methodChannel.invokeMethod("camera#onIdle", Collections.singletonMap("map", id));
+    if (symbolClusters.render(mapboxMap.getCameraPosition().zoom)) {
+      applySymbolFilters();
+    }
+    if (lineSimplifier.isEnabled() && lineSimplifier.setZoom(mapboxMap.getCameraPosition().zoom)) {
+      simplifyLines();
+    }
+    updateMaterializedAnnotations();
+    if (trackCameraPosition) {
+      cameraMoveEventThrottle.onCameraIdle();
+    }
+    mapEvents.send("camera#onIdle", Collections.singletonMap("map", id));
   }
 
   @Override
@@ -504,63 +2461,67 @@ final class MapboxMapController
 
   @Override
   public void onCameraTrackingDismissed() {
-    methodChannel.invokeMethod("map#onCameraTrackingDismissed", new HashMap<>());
+    mapEvents.send("map#onCameraTrackingDismissed", new HashMap<>());
   }
 
-  @Override
-  public void onAnnotationClick(Annotation annotation) {
-    if (annotation instanceof Symbol) {
-      final SymbolController symbolController = symbols.get(String.valueOf(annotation.getId()));
-      if (symbolController != null) {
-        symbolController.onTap();
-      }
+  private void onSymbolClick(long nativeKey) {
+    final SymbolController symbolController = symbols.get(symbolNativeKeys.get(nativeKey, nativeKey));
+    if (symbolController != null) {
+      symbolController.onTap();
     }
+  }
 
-    if (annotation instanceof Line) {
-      final LineController lineController = lines.get(String.valueOf(annotation.getId()));
-      if (lineController != null) {
-        lineController.onTap();
-      }
+  private void onLineClick(long key) {
+    final LineController lineController = lines.get(key);
+    if (lineController != null) {
+      lineController.onTap();
     }
-    
-    if (annotation instanceof Circle) {
-      final CircleController circleController = circles.get(String.valueOf(annotation.getId()));
-      if (circleController != null) {
-        circleController.onTap();
-      }
+  }
+
+  private void onCircleClick(long nativeKey) {
+    final CircleController circleController = circles.get(circleNativeKeys.get(nativeKey, nativeKey));
+    if (circleController != null) {
+      circleController.onTap();
     }
   }
 
   @Override
-  public void onSymbolTapped(Symbol symbol) {
+  public void onSymbolTapped(String symbolId) {
     final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("symbol", String.valueOf(symbol.getId()));
-    methodChannel.invokeMethod("symbol#onTap", arguments);
+    arguments.put("symbol", symbolId);
+    mapEvents.send("symbol#onTap", arguments);
   }
 
   @Override
-  public void onLineTapped(Line line) {
+  public void onLineTapped(String lineId) {
     final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("line", String.valueOf(line.getId()));
-    methodChannel.invokeMethod("line#onTap", arguments);
+    arguments.put("line", lineId);
+    mapEvents.send("line#onTap", arguments);
   }
 
   @Override
-  public void onCircleTapped(Circle circle) {
+  public void onCircleTapped(String circleId) {
     final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("circle", String.valueOf(circle.getId()));
-    methodChannel.invokeMethod("circle#onTap", arguments);
+    arguments.put("circle", circleId);
+    mapEvents.send("circle#onTap", arguments);
   }
 
   @Override
   public boolean onMapClick(@NonNull LatLng point) {
     PointF pointf = mapboxMap.getProjection().toScreenLocation(point);
+    if (symbolClusters.isEnabled()) {
+      final List<Feature> clusters = mapboxMap.queryRenderedFeatures(pointf, SymbolClusters.CIRCLE_LAYER_ID);
+      if (!clusters.isEmpty()) {
+        onClusterTap(clusters.get(0));
+        return true;
+      }
+    }
     final Map<String, Object> arguments = new HashMap<>(5);
     arguments.put("x", pointf.x);
     arguments.put("y", pointf.y);
     arguments.put("lng", point.getLongitude());
     arguments.put("lat", point.getLatitude());
-    methodChannel.invokeMethod("map#onMapClick", arguments);
+    mapEvents.send("map#onMapClick", arguments);
     return true;
   }
 
@@ -570,16 +2531,22 @@ final class MapboxMapController
       return;
     }
     disposed = true;
+    updateScheduler.dispose();
+    annotationAnimator.dispose();
+    cameraMoveEventThrottle.dispose();
+    mapEvents.dispose();
+    mutationChannel.setMessageHandler(null);
+    backgroundExecutor.shutdown();
     if (locationComponent != null) {
       locationComponent.setLocationComponentEnabled(false);
     }
-    if (symbolManager != null) {
+    for (SymbolManager symbolManager : symbolShards.getManagers()) {
       symbolManager.onDestroy();
     }
-    if (lineManager != null) {
+    for (LineManager lineManager : lineShards.getManagers()) {
       lineManager.onDestroy();
     }
-    if (circleManager != null) {
+    for (CircleManager circleManager : circleShards.getManagers()) {
       circleManager.onDestroy();
     }
 
@@ -660,6 +2627,13 @@ final class MapboxMapController
     this.trackCameraPosition = trackCameraPosition;
   }
 
+  @Override
+  public void setCameraMoveEventOptions(int maxEventsPerSecond, float minZoomDelta, float minBearingDelta,
+                                        float minTargetDelta, boolean oncePerFrame) {
+    cameraMoveEventThrottle.setOptions(
+      maxEventsPerSecond, minZoomDelta, minBearingDelta, minTargetDelta, oncePerFrame);
+  }
+
   @Override
   public void setRotateGesturesEnabled(boolean rotateGesturesEnabled) {
     mapboxMap.getUiSettings().setRotateGesturesEnabled(rotateGesturesEnabled);
@@ -713,6 +2687,13 @@ final class MapboxMapController
     }
   }
 
+  @Override
+  public void setAnnotationShardCount(int annotationShardCount) {
+    symbolShards.setTileShardCount(annotationShardCount);
+    lineShards.setTileShardCount(annotationShardCount);
+    circleShards.setTileShardCount(annotationShardCount);
+  }
+
   private void updateMyLocationEnabled() {
     //TODO: call location initialization if changed to true and not initialized yet.;
     //Show/Hide use location as needed
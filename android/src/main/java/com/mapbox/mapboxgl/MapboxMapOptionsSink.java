@@ -27,9 +27,14 @@ interface MapboxMapOptionsSink {
 
   void setTrackCameraPosition(boolean trackCameraPosition);
 
+  void setCameraMoveEventOptions(int maxEventsPerSecond, float minZoomDelta, float minBearingDelta,
+                                 float minTargetDelta, boolean oncePerFrame);
+
   void setZoomGesturesEnabled(boolean zoomGesturesEnabled);
 
   void setMyLocationEnabled(boolean myLocationEnabled);
 
   void setMyLocationTrackingMode(int myLocationTrackingMode);
+
+  void setAnnotationShardCount(int annotationShardCount);
 }
@@ -4,8 +4,6 @@
 
 package com.mapbox.mapboxgl;
 
-import com.mapbox.mapboxsdk.plugins.annotation.Circle;
-
 interface OnCircleTappedListener {
-  void onCircleTapped(Circle circle);
+  void onCircleTapped(String circleId);
 }
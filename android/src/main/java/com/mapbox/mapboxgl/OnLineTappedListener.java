@@ -4,8 +4,6 @@
 
 package com.mapbox.mapboxgl;
 
-import com.mapbox.mapboxsdk.plugins.annotation.Line;
-
 interface OnLineTappedListener {
-  void onLineTapped(Line line);
+  void onLineTapped(String lineId);
 }
@@ -4,8 +4,6 @@
 
 package com.mapbox.mapboxgl;
 
-import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
-
 interface OnSymbolTappedListener {
-  void onSymbolTapped(Symbol symbol);
+  void onSymbolTapped(String symbolId);
 }
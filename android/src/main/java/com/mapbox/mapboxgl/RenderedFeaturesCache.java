@@ -0,0 +1,58 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of {@code map#queryRenderedFeatures} replies.
+ * <p>
+ * Replies are keyed by the query parameters, camera position and style generation, and the cache
+ * is invalidated whenever the rendered content may have changed: on camera moves, style loads
+ * and annotation changes. Replies are computed asynchronously, so a reply is only stored if no
+ * invalidation happened since its query ran.
+ */
+class RenderedFeaturesCache {
+  private static final int MAX_ENTRIES = 32;
+  private final LruCache<String, Map<String, Object>> replies = new LruCache<>(MAX_ENTRIES);
+  private int generation;
+  private long invalidations;
+
+  Map<String, Object> get(String key) {
+    return replies.get(key);
+  }
+
+  /**
+   * Returns the current generation, to be passed to {@link #put} once the reply is ready.
+   */
+  int generation() {
+    return generation;
+  }
+
+  void put(int generation, String key, Map<String, Object> reply) {
+    if (generation == this.generation) {
+      replies.put(key, reply);
+    }
+  }
+
+  void invalidate() {
+    generation++;
+    if (replies.size() > 0) {
+      invalidations++;
+      replies.evictAll();
+    }
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(3);
+    stats.put("queryCacheHits", replies.hitCount());
+    stats.put("queryCacheMisses", replies.missCount());
+    stats.put("queryCacheInvalidations", invalidations);
+    return stats;
+  }
+}
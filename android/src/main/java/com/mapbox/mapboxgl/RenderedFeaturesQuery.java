@@ -0,0 +1,158 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+
+/**
+ * A {@code map#queryRenderedFeatures} request.
+ * <p>
+ * Besides the query geometry, layers and filter, a request can restrict the reply to a whitelist
+ * of feature properties, leave out feature geometries and page through the matches with a limit
+ * and offset, so that only the requested data is serialized and sent to Flutter.
+ */
+class RenderedFeaturesQuery {
+  private static final int MAX_FILTER_EXPRESSIONS = 64;
+  private static final LruCache<String, Expression> filterExpressions =
+    new LruCache<>(MAX_FILTER_EXPRESSIONS);
+  private final String[] layerIds;
+  private final String filter;
+  private final PointF point;
+  private final RectF rect;
+  private final List<String> properties;
+  private final boolean includeGeometry;
+  private final int limit;
+  private final int offset;
+
+  RenderedFeaturesQuery(MethodCall call) {
+    final List<String> layerIdList = call.argument("layerIds");
+    this.layerIds = layerIdList.toArray(new String[0]);
+    this.filter = call.argument("filter");
+    if (call.hasArgument("x")) {
+      final Double x = call.argument("x");
+      final Double y = call.argument("y");
+      this.point = new PointF(x.floatValue(), y.floatValue());
+      this.rect = null;
+    } else {
+      final Double left = call.argument("left");
+      final Double top = call.argument("top");
+      final Double right = call.argument("right");
+      final Double bottom = call.argument("bottom");
+      this.point = null;
+      this.rect = new RectF(left.floatValue(), top.floatValue(), right.floatValue(), bottom.floatValue());
+    }
+    this.properties = call.argument("properties");
+    final Boolean includeGeometry = call.argument("includeGeometry");
+    this.includeGeometry = includeGeometry == null || includeGeometry;
+    final Number limit = call.argument("limit");
+    this.limit = limit == null ? 0 : limit.intValue();
+    final Number offset = call.argument("offset");
+    this.offset = offset == null ? 0 : offset.intValue();
+  }
+
+  /**
+   * Returns a key identifying the reply of this query for the given camera and style.
+   */
+  String cacheKey(CameraPosition camera, int styleGeneration) {
+    final StringBuilder key = new StringBuilder();
+    key.append(styleGeneration)
+      .append('|').append(camera.target.getLatitude())
+      .append(',').append(camera.target.getLongitude())
+      .append(',').append(camera.zoom)
+      .append(',').append(camera.bearing)
+      .append(',').append(camera.tilt)
+      .append('|').append(Arrays.toString(layerIds))
+      .append('|').append(filter);
+    if (point != null) {
+      key.append('|').append(point.x).append(',').append(point.y);
+    } else {
+      key.append('|').append(rect.left).append(',').append(rect.top)
+        .append(',').append(rect.right).append(',').append(rect.bottom);
+    }
+    key.append('|').append(properties)
+      .append('|').append(includeGeometry)
+      .append('|').append(limit)
+      .append('|').append(offset);
+    return key.toString();
+  }
+
+  /**
+   * Runs the query against the renderer, must be called on the main thread.
+   */
+  List<Feature> run(MapboxMap mapboxMap) {
+    final Expression filterExpression = filter == null ? null : parseFilter(filter);
+    if (point != null) {
+      return mapboxMap.queryRenderedFeatures(point, filterExpression, layerIds);
+    }
+    return mapboxMap.queryRenderedFeatures(rect, filterExpression, layerIds);
+  }
+
+  /**
+   * Returns the expression tree of a JSON filter, parsing each distinct filter only once.
+   */
+  static Expression parseFilter(String filter) {
+    Expression expression = filterExpressions.get(filter);
+    if (expression == null) {
+      try {
+        expression = Expression.Converter.convert(filter);
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Invalid filter: " + filter, e);
+      }
+      filterExpressions.put(filter, expression);
+    }
+    return expression;
+  }
+
+  /**
+   * Serializes the requested page of features, projected to the requested fields.
+   */
+  Map<String, Object> toReply(List<Feature> features) {
+    final int from = Math.min(offset, features.size());
+    final int to = limit > 0 ? Math.min(from + limit, features.size()) : features.size();
+    final List<String> featuresJson = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      featuresJson.add(project(features.get(i)).toJson());
+    }
+    final Map<String, Object> reply = new HashMap<>(1);
+    reply.put("features", featuresJson);
+    return reply;
+  }
+
+  private Feature project(Feature feature) {
+    if (properties == null && includeGeometry) {
+      return feature;
+    }
+    JsonObject projectedProperties = feature.properties();
+    if (properties != null) {
+      projectedProperties = new JsonObject();
+      final JsonObject featureProperties = feature.properties();
+      if (featureProperties != null) {
+        for (String property : properties) {
+          if (featureProperties.has(property)) {
+            projectedProperties.add(property, featureProperties.get(property));
+          }
+        }
+      }
+    }
+    return Feature.fromGeometry(
+      includeGeometry ? feature.geometry() : null, projectedProperties, feature.id());
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Images added to the style at runtime, see {@code style#addImages}.
+ * <p>
+ * Decoded bitmaps are kept in an LRU cache bounded by their size in bytes and keyed by the hash
+ * of their encoded content, so an image added under several names or added again is only decoded
+ * once. Registered images keep their encoded content, which is much smaller than the bitmap, as
+ * every style load drops the images of the previous style and evicted bitmaps have to be decoded
+ * again to add them back.
+ * <p>
+ * Images are registered and looked up on the main thread, decoding is thread safe.
+ */
+class StyleImages {
+  // fraction of the heap the decoded bitmaps may use
+  private static final int CACHE_HEAP_FRACTION = 16;
+
+  static final class Image {
+    final String name;
+    final byte[] data;
+    final boolean sdf;
+    // image pixels per logical pixel, or null to draw every image pixel as a device pixel
+    final Float pixelRatio;
+    final String cacheKey;
+
+    Image(String name, byte[] data, boolean sdf, Float pixelRatio) {
+      this.name = name;
+      this.data = data;
+      this.sdf = sdf;
+      this.pixelRatio = pixelRatio;
+      this.cacheKey = hash(data) + (pixelRatio != null ? "@" + pixelRatio : "");
+    }
+  }
+
+  /**
+   * Lock of a content being decoded.
+   */
+  private static final class Decoding {
+    // threads decoding the content or waiting for it, guarded by the map of decodings
+    int threads;
+    // guarded by this
+    Bitmap bitmap;
+  }
+
+  private final LruCache<String, Bitmap> bitmaps = new LruCache<String, Bitmap>(
+    (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / CACHE_HEAP_FRACTION)) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getByteCount();
+      }
+    };
+  private final Map<String, Image> images = new LinkedHashMap<>();
+  // the content being decoded by cache key, guarded by itself
+  private final Map<String, Decoding> decoding = new HashMap<>();
+
+  /**
+   * Returns the bitmap of an image, decoding it if it is not cached. Concurrent calls for the
+   * same content decode it once, the others wait for the bitmap.
+   *
+   * @throws IllegalArgumentException if the data is not a supported image format
+   */
+  Bitmap decode(Image image) {
+    final Bitmap cached = bitmaps.get(image.cacheKey);
+    if (cached != null) {
+      return cached;
+    }
+    Decoding lock;
+    synchronized (decoding) {
+      lock = decoding.get(image.cacheKey);
+      if (lock == null) {
+        lock = new Decoding();
+        decoding.put(image.cacheKey, lock);
+      }
+      lock.threads++;
+    }
+    try {
+      synchronized (lock) {
+        if (lock.bitmap == null) {
+          lock.bitmap = decodeUncached(image);
+        }
+        return lock.bitmap;
+      }
+    } finally {
+      synchronized (decoding) {
+        if (--lock.threads == 0) {
+          decoding.remove(image.cacheKey);
+        }
+      }
+    }
+  }
+
+  private Bitmap decodeUncached(Image image) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inScaled = false;
+    final Bitmap bitmap = BitmapFactory.decodeByteArray(image.data, 0, image.data.length, options);
+    if (bitmap == null) {
+      throw new IllegalArgumentException("Unsupported image format: " + image.name);
+    }
+    if (image.pixelRatio != null) {
+      bitmap.setDensity(Math.round(DisplayMetrics.DENSITY_DEFAULT * image.pixelRatio));
+    }
+    bitmaps.put(image.cacheKey, bitmap);
+    return bitmap;
+  }
+
+  /**
+   * Returns the bitmap of an image if it is cached.
+   */
+  Bitmap getCached(Image image) {
+    return bitmaps.get(image.cacheKey);
+  }
+
+  void put(Image image) {
+    images.put(image.name, image);
+  }
+
+  Image get(String name) {
+    return images.get(name);
+  }
+
+  /**
+   * Unregisters an image, its bitmap stays cached as long as the cache has room for it.
+   */
+  boolean remove(String name) {
+    return images.remove(name) != null;
+  }
+
+  List<Image> getImages() {
+    return new ArrayList<>(images.values());
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(4);
+    stats.put("imageCacheHits", bitmaps.hitCount());
+    stats.put("imageCacheMisses", bitmaps.missCount());
+    stats.put("imageCacheBytes", bitmaps.size());
+    stats.put("images", images.size());
+    return stats;
+  }
+
+  private static String hash(byte[] data) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    final StringBuilder hash = new StringBuilder(40);
+    for (byte b : digest.digest(data)) {
+      hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hash.toString();
+  }
+}
@@ -8,21 +8,25 @@ package com.mapbox.mapboxgl;
 
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxsdk.geometry.LatLng;
-import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
-import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
 import com.mapbox.mapboxsdk.plugins.annotation.SymbolOptions;
 
 class SymbolBuilder implements SymbolOptionsSink {
-  private final SymbolManager symbolManager;
   private final SymbolOptions symbolOptions;
+  private LatLng geometry;
 
-  SymbolBuilder(SymbolManager symbolManager) {
-    this.symbolManager = symbolManager;
+  SymbolBuilder() {
     this.symbolOptions = new SymbolOptions();
   }
 
-  Symbol build() {
-    return symbolManager.create(symbolOptions);
+  SymbolOptions getSymbolOptions() {
+    return symbolOptions;
+  }
+
+  /**
+   * Returns the location of the symbol, which decides its shard, see {@link AnnotationShards}.
+   */
+  LatLng getGeometry() {
+    return geometry;
   }
 
   @Override
@@ -147,6 +151,7 @@ class SymbolBuilder implements SymbolOptionsSink {
 
   @Override
   public void setGeometry(LatLng geometry) {
+    this.geometry = geometry;
     symbolOptions.withGeometry(Point.fromLngLat(geometry.getLongitude(), geometry.getLatitude()));
   }
 
@@ -0,0 +1,365 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical greedy clustering of points, following the supercluster algorithm.
+ * <p>
+ * Points are clustered once per zoom level, from the maximum zoom down, every level clustering
+ * the clusters of the level above within a radius of constant screen size. Each level keeps a
+ * KD-tree of its clusters, so the clusters of a zoom, the children of a cluster and the zoom a
+ * cluster breaks up at are looked up without clustering again. Clustering only merges going
+ * down, so a point that is not part of a cluster at some zoom is not part of one at any higher
+ * zoom either.
+ * <p>
+ * Instances are immutable once built and may be built off the main thread.
+ */
+class SymbolClusterIndex {
+  private static final int NODE_SIZE = 64;
+
+  static final class Cluster {
+    /** Web mercator position, between 0 and 1. */
+    final double x;
+    final double y;
+    final int count;
+    /** The point index for single points, an id encoding origin zoom and index for clusters. */
+    final long id;
+    // the lowest zoom this cluster was processed at, and the cluster it was merged into there
+    private int zoom = Integer.MAX_VALUE;
+    private long parentId = -1;
+
+    private Cluster(double x, double y, int count, long id) {
+      this.x = x;
+      this.y = y;
+      this.count = count;
+      this.id = id;
+    }
+
+    boolean isPoint() {
+      return count == 1;
+    }
+
+    double getLongitude() {
+      return x * 360 - 180;
+    }
+
+    double getLatitude() {
+      final double y2 = (180 - y * 360) * Math.PI / 180;
+      return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+    }
+  }
+
+  private final int radius;
+  private final int extent;
+  private final int minZoom;
+  private final int maxZoom;
+  private final int pointCount;
+  // indexed by zoom, the clusters of maxZoom + 1 are the input points
+  private final Tree[] trees;
+  private final int[] pointZooms;
+
+  /**
+   * Clusters the given points.
+   *
+   * @param radius cluster radius in pixels of a tile of the given extent
+   */
+  SymbolClusterIndex(double[] longitudes, double[] latitudes, int radius, int extent, int minZoom,
+                     int maxZoom) {
+    this.radius = radius;
+    this.extent = extent;
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    this.pointCount = longitudes.length;
+    this.trees = new Tree[maxZoom + 2];
+    this.pointZooms = new int[pointCount];
+    Arrays.fill(pointZooms, maxZoom + 1);
+
+    final List<Cluster> points = new ArrayList<>(pointCount);
+    for (int i = 0; i < pointCount; i++) {
+      points.add(new Cluster(lngX(longitudes[i]), latY(latitudes[i]), 1, i));
+    }
+    trees[maxZoom + 1] = new Tree(points);
+    for (int z = maxZoom; z >= minZoom; z--) {
+      trees[z] = new Tree(cluster(trees[z + 1], z));
+    }
+  }
+
+  /**
+   * Returns the clusters and points visible at the given zoom.
+   */
+  Cluster[] getClusters(int zoom) {
+    return trees[clampZoom(zoom)].clusters;
+  }
+
+  /**
+   * Returns the lowest zoom at which the point of the given index is not part of a cluster.
+   */
+  int getPointZoom(int pointIndex) {
+    return pointZooms[pointIndex];
+  }
+
+  /**
+   * Returns the zoom at which the given cluster breaks up into several children.
+   */
+  int getExpansionZoom(long clusterId) {
+    int expansionZoom = originZoom(clusterId) - 1;
+    while (expansionZoom <= maxZoom) {
+      final List<Cluster> children = getChildren(clusterId);
+      expansionZoom++;
+      if (children.size() != 1) {
+        break;
+      }
+      clusterId = children.get(0).id;
+    }
+    return expansionZoom;
+  }
+
+  /**
+   * Returns the indices of all points of the given cluster.
+   */
+  List<Integer> getLeaves(long clusterId) {
+    final List<Integer> leaves = new ArrayList<>();
+    appendLeaves(clusterId, leaves);
+    return leaves;
+  }
+
+  private void appendLeaves(long clusterId, List<Integer> leaves) {
+    for (Cluster child : getChildren(clusterId)) {
+      if (child.isPoint()) {
+        leaves.add((int) child.id);
+      } else {
+        appendLeaves(child.id, leaves);
+      }
+    }
+  }
+
+  /**
+   * Returns the clusters and points the given cluster was merged from, or an empty list if the
+   * id does not belong to a cluster of this index.
+   */
+  List<Cluster> getChildren(long clusterId) {
+    final List<Cluster> children = new ArrayList<>();
+    final int originZoom = originZoom(clusterId);
+    final long originIndex = (clusterId - pointCount) >> 5;
+    if (clusterId < pointCount || originZoom <= minZoom || originZoom > maxZoom + 1) {
+      return children;
+    }
+    final Tree tree = trees[originZoom];
+    if (originIndex >= tree.clusters.length) {
+      return children;
+    }
+    final Cluster origin = tree.clusters[(int) originIndex];
+    final List<Cluster> neighbors = new ArrayList<>();
+    tree.within(origin.x, origin.y, radius / (extent * Math.pow(2, originZoom - 1)), neighbors);
+    for (Cluster neighbor : neighbors) {
+      if (neighbor.parentId == clusterId) {
+        children.add(neighbor);
+      }
+    }
+    return children;
+  }
+
+  int getMaxZoom() {
+    return maxZoom;
+  }
+
+  int clampZoom(int zoom) {
+    return Math.max(minZoom, Math.min(zoom, maxZoom + 1));
+  }
+
+  private int originZoom(long clusterId) {
+    return (int) ((clusterId - pointCount) % 32);
+  }
+
+  private List<Cluster> cluster(Tree tree, int zoom) {
+    final double r = radius / (extent * Math.pow(2, zoom));
+    final List<Cluster> clusters = new ArrayList<>();
+    final List<Cluster> neighbors = new ArrayList<>();
+    for (int i = 0; i < tree.clusters.length; i++) {
+      final Cluster p = tree.clusters[i];
+      if (p.zoom <= zoom) {
+        continue;
+      }
+      p.zoom = zoom;
+
+      neighbors.clear();
+      tree.within(p.x, p.y, r, neighbors);
+      int count = p.count;
+      for (Cluster b : neighbors) {
+        if (b.zoom > zoom) {
+          count += b.count;
+        }
+      }
+      if (count == p.count) {
+        if (p.isPoint()) {
+          pointZooms[(int) p.id] = zoom;
+        }
+        clusters.add(p);
+        continue;
+      }
+
+      double wx = p.x * p.count;
+      double wy = p.y * p.count;
+      final long id = ((long) i << 5) + (zoom + 1) + pointCount;
+      for (Cluster b : neighbors) {
+        if (b.zoom <= zoom) {
+          continue;
+        }
+        b.zoom = zoom;
+        wx += b.x * b.count;
+        wy += b.y * b.count;
+        b.parentId = id;
+      }
+      p.parentId = id;
+      clusters.add(new Cluster(wx / count, wy / count, count, id));
+    }
+    return clusters;
+  }
+
+  private static double lngX(double longitude) {
+    return longitude / 360 + 0.5;
+  }
+
+  private static double latY(double latitude) {
+    final double sin = Math.sin(latitude * Math.PI / 180);
+    final double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return y < 0 ? 0 : y > 1 ? 1 : y;
+  }
+
+  /**
+   * Static KD-tree over the positions of one zoom level.
+   */
+  private static final class Tree {
+    final Cluster[] clusters;
+    private final int[] ids;
+    private final double[] coords;
+
+    Tree(List<Cluster> clusters) {
+      this.clusters = clusters.toArray(new Cluster[0]);
+      this.ids = new int[this.clusters.length];
+      this.coords = new double[this.clusters.length * 2];
+      for (int i = 0; i < this.clusters.length; i++) {
+        ids[i] = i;
+        coords[2 * i] = this.clusters[i].x;
+        coords[2 * i + 1] = this.clusters[i].y;
+      }
+      sort(0, ids.length - 1, 0);
+    }
+
+    void within(double qx, double qy, double r, List<Cluster> result) {
+      final double r2 = r * r;
+      int[] stack = new int[48];
+      int size = 0;
+      stack[size++] = 0;
+      stack[size++] = ids.length - 1;
+      stack[size++] = 0;
+      while (size > 0) {
+        final int axis = stack[--size];
+        final int right = stack[--size];
+        final int left = stack[--size];
+
+        if (right - left <= NODE_SIZE) {
+          for (int i = left; i <= right; i++) {
+            if (squareDistance(coords[2 * i], coords[2 * i + 1], qx, qy) <= r2) {
+              result.add(clusters[ids[i]]);
+            }
+          }
+          continue;
+        }
+
+        final int m = (left + right) >> 1;
+        final double x = coords[2 * m];
+        final double y = coords[2 * m + 1];
+        if (squareDistance(x, y, qx, qy) <= r2) {
+          result.add(clusters[ids[m]]);
+        }
+        if (stack.length < size + 6) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        if (axis == 0 ? qx - r <= x : qy - r <= y) {
+          stack[size++] = left;
+          stack[size++] = m - 1;
+          stack[size++] = 1 - axis;
+        }
+        if (axis == 0 ? qx + r >= x : qy + r >= y) {
+          stack[size++] = m + 1;
+          stack[size++] = right;
+          stack[size++] = 1 - axis;
+        }
+      }
+    }
+
+    private void sort(int left, int right, int axis) {
+      if (right - left <= NODE_SIZE) {
+        return;
+      }
+      final int m = (left + right) >> 1;
+      select(m, left, right, axis);
+      sort(left, m - 1, 1 - axis);
+      sort(m + 1, right, 1 - axis);
+    }
+
+    /**
+     * Partially sorts the range so that the k-th element is in place, with smaller coordinates
+     * on the given axis before it and larger ones after it.
+     */
+    private void select(int k, int left, int right, int axis) {
+      while (right > left) {
+        final double pivot = coords[2 * k + axis];
+        int i = left;
+        int j = right;
+        swap(left, k);
+        if (coords[2 * right + axis] > pivot) {
+          swap(left, right);
+        }
+        while (i < j) {
+          swap(i, j);
+          i++;
+          j--;
+          while (coords[2 * i + axis] < pivot) {
+            i++;
+          }
+          while (coords[2 * j + axis] > pivot) {
+            j--;
+          }
+        }
+        if (coords[2 * left + axis] == pivot) {
+          swap(left, j);
+        } else {
+          j++;
+          swap(j, right);
+        }
+        if (j <= k) {
+          left = j + 1;
+        }
+        if (k <= j) {
+          right = j - 1;
+        }
+      }
+    }
+
+    private void swap(int i, int j) {
+      final int id = ids[i];
+      ids[i] = ids[j];
+      ids[j] = id;
+      final double x = coords[2 * i];
+      final double y = coords[2 * i + 1];
+      coords[2 * i] = coords[2 * j];
+      coords[2 * i + 1] = coords[2 * j + 1];
+      coords[2 * j] = x;
+      coords[2 * j + 1] = y;
+    }
+
+    private static double squareDistance(double ax, double ay, double bx, double by) {
+      final double dx = ax - bx;
+      final double dy = ay - by;
+      return dx * dx + dy * dy;
+    }
+  }
+}
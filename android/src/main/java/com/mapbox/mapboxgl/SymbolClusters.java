@@ -0,0 +1,210 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.coalesce;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.lte;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.step;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.stop;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.circleRadius;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textAllowOverlap;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textField;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textIgnorePlacement;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.textSize;
+
+/**
+ * Renders the symbols of a map as clusters, see {@link SymbolClusterIndex}.
+ * <p>
+ * Clusters of several symbols are drawn by a circle and a count layer on a dedicated source.
+ * Clustered symbols stay in their managers: every symbol carries the lowest zoom at which it is
+ * not part of a cluster in its data, and the managers filter out the symbols that are clustered
+ * at the rendered zoom. The features of a zoom are created on first use and cached until the
+ * index is replaced, and the source and filters only change when the integer zoom changes.
+ */
+class SymbolClusters {
+  static final String SOURCE_ID = "mapbox-gl-symbol-clusters";
+  static final String CIRCLE_LAYER_ID = "mapbox-gl-symbol-clusters";
+  static final String COUNT_LAYER_ID = "mapbox-gl-symbol-cluster-counts";
+  static final String CLUSTER_ID = "cluster_id";
+  static final String POINT_COUNT = "point_count";
+  /** Key of the cluster zoom in the data of a symbol. */
+  static final String CLUSTER_ZOOM = "cluster-zoom";
+  private static final String POINT_COUNT_ABBREVIATED = "point_count_abbreviated";
+  // annotation plugin property holding the data of an annotation
+  private static final String CUSTOM_DATA = "custom_data";
+  private static final int EXTENT = 512;
+
+  private int radius = 50;
+  private int maxZoom = 16;
+  private String color = "#51bbd6";
+  private String textColor = "#ffffff";
+  private boolean expandOnTap = true;
+  private GeoJsonSource source;
+  private SymbolClusterIndex index;
+  private long[] keys;
+  private FeatureCollection[] features;
+  private int renderedZoom = -1;
+
+  void setRadius(int radius) {
+    this.radius = radius;
+  }
+
+  void setMaxZoom(int maxZoom) {
+    this.maxZoom = maxZoom;
+  }
+
+  void setColor(String color) {
+    this.color = color;
+  }
+
+  void setTextColor(String textColor) {
+    this.textColor = textColor;
+  }
+
+  void setExpandOnTap(boolean expandOnTap) {
+    this.expandOnTap = expandOnTap;
+  }
+
+  boolean isExpandOnTap() {
+    return expandOnTap;
+  }
+
+  boolean isEnabled() {
+    return source != null;
+  }
+
+  /**
+   * Adds the cluster source and layers to the style, replacing the ones of previous options.
+   */
+  void enable(Style style) {
+    disable(style);
+    source = new GeoJsonSource(SOURCE_ID);
+    style.addSource(source);
+    style.addLayer(new CircleLayer(CIRCLE_LAYER_ID, SOURCE_ID).withProperties(
+      circleColor(color),
+      circleRadius(step(get(POINT_COUNT), literal(15), stop(100, 20), stop(1000, 25), stop(10000, 30)))
+    ));
+    style.addLayer(new SymbolLayer(COUNT_LAYER_ID, SOURCE_ID).withProperties(
+      textField(get(POINT_COUNT_ABBREVIATED)),
+      textColor(textColor),
+      textSize(12f),
+      textAllowOverlap(true),
+      textIgnorePlacement(true)
+    ));
+  }
+
+  void disable(Style style) {
+    if (source == null) {
+      return;
+    }
+    style.removeLayer(COUNT_LAYER_ID);
+    style.removeLayer(CIRCLE_LAYER_ID);
+    style.removeSource(SOURCE_ID);
+    source = null;
+    index = null;
+    keys = null;
+    features = null;
+    renderedZoom = -1;
+  }
+
+  /**
+   * Builds an index over the given symbol positions, to be called off the main thread.
+   */
+  SymbolClusterIndex buildIndex(double[] longitudes, double[] latitudes) {
+    return new SymbolClusterIndex(longitudes, latitudes, radius, EXTENT, 0, maxZoom);
+  }
+
+  /**
+   * Replaces the index, {@code keys} holds the registry key of each indexed symbol.
+   */
+  void setIndex(SymbolClusterIndex index, long[] keys) {
+    this.index = index;
+    this.keys = keys;
+    this.features = new FeatureCollection[index.getMaxZoom() + 2];
+    this.renderedZoom = -1;
+  }
+
+  SymbolClusterIndex getIndex() {
+    return index;
+  }
+
+  long getKey(int pointIndex) {
+    return keys[pointIndex];
+  }
+
+  /**
+   * Shows the clusters of the given camera zoom if its integer zoom differs from the rendered one.
+   *
+   * @return true if the rendered zoom changed, in which case the symbol filter has to be re-applied
+   */
+  boolean render(double zoom) {
+    if (source == null || index == null) {
+      return false;
+    }
+    final int clusterZoom = index.clampZoom((int) Math.floor(zoom));
+    if (clusterZoom == renderedZoom) {
+      return false;
+    }
+    renderedZoom = clusterZoom;
+    if (features[clusterZoom] == null) {
+      features[clusterZoom] = createFeatures(index.getClusters(clusterZoom));
+    }
+    source.setGeoJson(features[clusterZoom]);
+    return true;
+  }
+
+  /**
+   * Returns the filter hiding the symbols that are part of a cluster at the rendered zoom.
+   */
+  Expression getSymbolFilter() {
+    if (renderedZoom < 0) {
+      return literal(true);
+    }
+    return lte(coalesce(get(CLUSTER_ZOOM, get(CUSTOM_DATA)), literal(0)), literal(renderedZoom));
+  }
+
+  private static FeatureCollection createFeatures(SymbolClusterIndex.Cluster[] clusters) {
+    final List<Feature> features = new ArrayList<>();
+    for (SymbolClusterIndex.Cluster cluster : clusters) {
+      if (cluster.isPoint()) {
+        continue;
+      }
+      final Feature feature =
+        Feature.fromGeometry(Point.fromLngLat(cluster.getLongitude(), cluster.getLatitude()));
+      feature.addNumberProperty(CLUSTER_ID, cluster.id);
+      feature.addNumberProperty(POINT_COUNT, cluster.count);
+      feature.addStringProperty(POINT_COUNT_ABBREVIATED, abbreviate(cluster.count));
+      features.add(feature);
+    }
+    return FeatureCollection.fromFeatures(features);
+  }
+
+  private static String abbreviate(int count) {
+    if (count >= 10000) {
+      return (count / 1000) + "k";
+    }
+    if (count >= 1000) {
+      final int hundreds = count / 100;
+      return hundreds % 10 == 0 ? (hundreds / 10) + "k" : (hundreds / 10) + "." + (hundreds % 10) + "k";
+    }
+    return String.valueOf(count);
+  }
+}
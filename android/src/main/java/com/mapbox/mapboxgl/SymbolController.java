@@ -8,34 +8,197 @@ package com.mapbox.mapboxgl;
 
 import android.graphics.Color;
 import android.graphics.PointF;
+import com.google.gson.JsonObject;
 import com.mapbox.geojson.Point;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.plugins.annotation.Symbol;
 import com.mapbox.mapboxsdk.plugins.annotation.SymbolManager;
 
+import java.util.Map;
+
 /**
  * Controller of a single Symbol on the map.
  */
 class SymbolController implements SymbolOptionsSink {
-  private final Symbol symbol;
+  private Symbol symbol;
+  private final SymbolManager manager;
+  private final long key;
+  private final String clientId;
   private final OnSymbolTappedListener onTappedListener;
   private boolean consumeTapEvents;
+  private Object options;
+  private long nativeKey;
+  private LatLng position;
+  private int clusterZoom;
 
-  SymbolController(Symbol symbol, boolean consumeTapEvents, OnSymbolTappedListener onTappedListener) {
+  SymbolController(Symbol symbol, SymbolManager manager, long key, String clientId, boolean consumeTapEvents,
+    OnSymbolTappedListener onTappedListener) {
     this.symbol = symbol;
+    this.manager = manager;
+    this.key = key;
+    this.nativeKey = key;
+    this.clientId = clientId;
     this.consumeTapEvents = consumeTapEvents;
     this.onTappedListener = onTappedListener;
   }
 
   boolean onTap() {
     if (onTappedListener != null) {
-      onTappedListener.onSymbolTapped(symbol);
+      onTappedListener.onSymbolTapped(getId());
     }
     return consumeTapEvents;
   }
 
-  void remove(SymbolManager symbolManager) {
-    symbolManager.delete(symbol);
+  /**
+   * Returns the annotation of this symbol, or null if it is only kept in the annotation grid.
+   */
+  Symbol getSymbol() {
+    return symbol;
+  }
+
+  boolean isAttached() {
+    return symbol != null;
+  }
+
+  /**
+   * Binds this symbol to an annotation created for it by its manager.
+   *
+   * @param nativeKey the key of the annotation id, see {@link AnnotationShards}
+   * @return true if the symbol carries a cluster zoom and has to be updated
+   */
+  boolean attach(Symbol symbol, long nativeKey) {
+    this.symbol = symbol;
+    this.nativeKey = nativeKey;
+    if (clusterZoom != 0) {
+      final JsonObject data = new JsonObject();
+      data.addProperty(SymbolClusters.CLUSTER_ZOOM, clusterZoom);
+      symbol.setData(data);
+    }
+    return clusterZoom != 0;
+  }
+
+  /**
+   * Releases the annotation of this symbol after it has been deleted from its manager, keeping
+   * only its position.
+   */
+  void detach() {
+    position = getPosition();
+    symbol = null;
+  }
+
+  /**
+   * Returns the key of the annotation id of an attached symbol, which differs from the registry
+   * key once it has been re-created.
+   */
+  long getNativeKey() {
+    return nativeKey;
+  }
+
+  LatLng getPosition() {
+    if (symbol == null) {
+      return position;
+    }
+    final Point point = symbol.getGeometry();
+    return new LatLng(point.latitude(), point.longitude());
+  }
+
+  /**
+   * Returns the icon rotation of the symbol, taken from the stored options while it is detached,
+   * or null if it is unknown.
+   */
+  Float getIconRotate() {
+    if (symbol != null) {
+      return symbol.getIconRotate();
+    }
+    if (options != null) {
+      final Object iconRotate = Convert.toSymbolOptionsMap(options).get("iconRotate");
+      if (iconRotate instanceof Number) {
+        return ((Number) iconRotate).floatValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sets the position of a detached symbol.
+   */
+  void setPosition(LatLng position) {
+    this.position = position;
+  }
+
+  SymbolManager getManager() {
+    return manager;
+  }
+
+  /**
+   * Returns the registry key of the symbol, see {@link AnnotationShards}.
+   */
+  long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the id assigned by the client when adding the symbol, or null if it has none.
+   */
+  String getClientId() {
+    return clientId;
+  }
+
+  /**
+   * Returns the id the client knows this symbol by.
+   */
+  String getId() {
+    return clientId != null ? clientId : String.valueOf(key);
+  }
+
+  /**
+   * Stores the lowest zoom at which the symbol is not part of a cluster in its data, see
+   * {@link SymbolClusters}.
+   *
+   * @return true if the zoom of an attached symbol changed and it has to be updated
+   */
+  boolean setClusterZoom(int clusterZoom) {
+    if (this.clusterZoom == clusterZoom) {
+      return false;
+    }
+    this.clusterZoom = clusterZoom;
+    if (symbol == null) {
+      return false;
+    }
+    final JsonObject data = new JsonObject();
+    data.addProperty(SymbolClusters.CLUSTER_ZOOM, clusterZoom);
+    symbol.setData(data);
+    return true;
+  }
+
+  /**
+   * Returns the complete options the symbol was last configured with, or null if they are unknown.
+   */
+  Object getOptions() {
+    return options;
+  }
+
+  void setOptions(Object options) {
+    this.options = options;
+  }
+
+  /**
+   * Merges partial options into the complete ones, keeping them complete. Both may be in the
+   * map or the compact form, the merged options are stored in the map form.
+   */
+  void mergeOptions(Object changes) {
+    if (options == null || changes == null) {
+      return;
+    }
+    final Map<Object, Object> merged = Convert.toSymbolOptionsMap(options);
+    merged.putAll(Convert.toSymbolOptionsMap(changes));
+    options = merged;
+  }
+
+  void remove() {
+    if (symbol != null) {
+      manager.delete(symbol);
+    }
   }
 
   @Override
@@ -173,7 +336,9 @@ class SymbolController implements SymbolOptionsSink {
     symbol.setDraggable(draggable);
   }
 
-  public void update(SymbolManager symbolManager) {
-    symbolManager.update(symbol);
+  public void update(AnnotationUpdateScheduler updateScheduler) {
+    if (symbol != null) {
+      updateScheduler.markDirty(manager, symbol);
+    }
   }
 }
@@ -0,0 +1,141 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AnnotationGridTest {
+  @Test
+  public void emptyGrid() {
+    final AnnotationGrid grid = new AnnotationGrid();
+
+    assertEquals(0, grid.size());
+    assertTrue(query(grid, new AnnotationGrid.Region(-180, -90, 180, 90)).isEmpty());
+    assertTrue(queryOutside(grid, new AnnotationGrid.Region(0, 0, 1, 1)).isEmpty());
+    grid.remove(1);
+    assertEquals(0, grid.size());
+  }
+
+  @Test
+  public void putMovesAndRemoveForgets() {
+    final AnnotationGrid grid = new AnnotationGrid();
+    final AnnotationGrid.Region region = new AnnotationGrid.Region(-10, -10, 10, 10);
+    grid.put(1, new LatLng(0, 0));
+    grid.put(2, new LatLng(0, 0));
+    grid.put(1, new LatLng(50, 50));
+
+    assertEquals(2, grid.size());
+    assertEquals(keys(2), query(grid, region));
+    assertEquals(keys(1), queryOutside(grid, region));
+
+    grid.remove(2);
+    assertEquals(1, grid.size());
+    assertTrue(query(grid, region).isEmpty());
+
+    grid.clear();
+    assertEquals(0, grid.size());
+    assertTrue(queryOutside(grid, region).isEmpty());
+  }
+
+  @Test
+  public void regionCrossingTheAntimeridian() {
+    final AnnotationGrid grid = new AnnotationGrid();
+    grid.put(1, new LatLng(0, 179.5));
+    grid.put(2, new LatLng(0, -179.5));
+    grid.put(3, new LatLng(0, 0));
+    grid.put(4, new LatLng(20, -179.5));
+    final AnnotationGrid.Region region = new AnnotationGrid.Region(170, -10, 190, 10);
+
+    assertTrue(region.contains(new LatLng(0, -179.5)));
+    assertFalse(region.contains(new LatLng(0, 0)));
+    assertEquals(keys(1, 2), query(grid, region));
+    assertEquals(keys(3, 4), queryOutside(grid, region));
+  }
+
+  @Test
+  public void positionsBeyondTheMercatorLimit() {
+    final AnnotationGrid grid = new AnnotationGrid();
+    grid.put(1, new LatLng(89, 10));
+    grid.put(2, new LatLng(84, 10));
+    final AnnotationGrid.Region region = new AnnotationGrid.Region(0, -85.06, 20, 85.06);
+
+    assertEquals(keys(2), query(grid, region));
+    assertEquals(keys(1), queryOutside(grid, region));
+  }
+
+  @Test
+  public void queriesMatchBruteForce() {
+    final Random random = new Random(42);
+    final AnnotationGrid grid = new AnnotationGrid();
+    final Map<Long, LatLng> positions = new HashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      final long key = random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        grid.remove(key);
+        positions.remove(key);
+      } else {
+        final LatLng position =
+          new LatLng(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+        grid.put(key, position);
+        positions.put(key, position);
+      }
+    }
+    assertEquals(positions.size(), grid.size());
+
+    for (int query = 0; query < 100; query++) {
+      final double west = random.nextDouble() * 360 - 180;
+      final double south = random.nextDouble() * 120 - 85;
+      final AnnotationGrid.Region region = new AnnotationGrid.Region(
+        west, south, west + random.nextDouble() * 90, south + random.nextDouble() * 50);
+      final Set<Long> inside = new HashSet<>();
+      final Set<Long> outside = new HashSet<>();
+      for (Map.Entry<Long, LatLng> entry : positions.entrySet()) {
+        (region.contains(entry.getValue()) ? inside : outside).add(entry.getKey());
+      }
+      assertEquals(inside, query(grid, region));
+      assertEquals(outside, queryOutside(grid, region));
+    }
+  }
+
+  private static Set<Long> keys(long... keys) {
+    final Set<Long> set = new HashSet<>();
+    for (long key : keys) {
+      set.add(key);
+    }
+    return set;
+  }
+
+  private static Set<Long> query(AnnotationGrid grid, AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    grid.query(region, keys);
+    return toSet(keys);
+  }
+
+  private static Set<Long> queryOutside(AnnotationGrid grid, AnnotationGrid.Region region) {
+    final List<Long> keys = new ArrayList<>();
+    grid.queryOutside(region, keys);
+    return toSet(keys);
+  }
+
+  private static Set<Long> toSet(List<Long> keys) {
+    final Set<Long> set = new HashSet<>(keys);
+    assertEquals("duplicate keys", keys.size(), set.size());
+    return set;
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AnnotationIndexTest {
+  @Test
+  public void emptyIndexHasNoHits() {
+    final AnnotationIndex index = new AnnotationIndex.Builder().build();
+
+    assertEquals(0, index.size());
+    assertTrue(index.queryPoint(new LatLng(0, 0), 1).isEmpty());
+    assertTrue(index.queryBounds(-90, -180, 90, 180).isEmpty());
+    assertTrue(index.queryBounds(-10, 170, 10, -170).isEmpty());
+  }
+
+  @Test
+  public void singleEntry() {
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    builder.addPoint(AnnotationIndex.CIRCLE, 7, new LatLng(10, 20));
+    final AnnotationIndex index = builder.build();
+
+    assertEquals(1, index.size());
+    final List<AnnotationIndex.Hit> hits = index.queryPoint(new LatLng(10, 20), 0.001);
+    assertEquals(1, hits.size());
+    assertEquals(AnnotationIndex.CIRCLE, hits.get(0).type);
+    assertEquals(7, hits.get(0).key);
+    assertEquals(0, hits.get(0).distance, 1e-12);
+    assertTrue(index.queryPoint(new LatLng(-10, -20), 0.001).isEmpty());
+    assertEquals(keys(7), keysOf(index.queryBounds(0, 10, 20, 30)));
+    assertTrue(index.queryBounds(20, 10, 30, 30).isEmpty());
+  }
+
+  @Test
+  public void pointHitsAreSortedByDistance() {
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    builder.addPoint(AnnotationIndex.SYMBOL, 1, new LatLng(0, 0.3));
+    builder.addPoint(AnnotationIndex.SYMBOL, 2, new LatLng(0, 0.1));
+    builder.addPoint(AnnotationIndex.SYMBOL, 3, new LatLng(0, 0.2));
+    final List<AnnotationIndex.Hit> hits = builder.build().queryPoint(new LatLng(0, 0), 0.01);
+
+    assertEquals(3, hits.size());
+    assertEquals(2, hits.get(0).key);
+    assertEquals(3, hits.get(1).key);
+    assertEquals(1, hits.get(2).key);
+  }
+
+  @Test
+  public void boundsCrossingTheAntimeridian() {
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    builder.addPoint(AnnotationIndex.SYMBOL, 1, new LatLng(0, 179.5));
+    builder.addPoint(AnnotationIndex.SYMBOL, 2, new LatLng(0, -179.5));
+    builder.addPoint(AnnotationIndex.SYMBOL, 3, new LatLng(0, 0));
+    builder.addPoint(AnnotationIndex.SYMBOL, 4, new LatLng(20, 179.5));
+    builder.addLine(
+      AnnotationIndex.LINE, 5, Arrays.asList(new LatLng(-5, -175), new LatLng(5, -175)));
+    final AnnotationIndex index = builder.build();
+
+    assertEquals(keys(1, 2, 5), keysOf(index.queryBounds(-10, 170, 10, -170)));
+    assertEquals(keys(3), keysOf(index.queryBounds(-10, -170, 10, 170)));
+  }
+
+  @Test
+  public void lineCrossingBoundsWithoutVertexInside() {
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    builder.addLine(AnnotationIndex.LINE, 1, Arrays.asList(new LatLng(-10, 0), new LatLng(10, 0)));
+    builder.addLine(AnnotationIndex.LINE, 2, Arrays.asList(new LatLng(-10, 5), new LatLng(10, 5)));
+    final AnnotationIndex index = builder.build();
+
+    assertEquals(keys(1), keysOf(index.queryBounds(-1, -1, 1, 1)));
+    assertEquals(keys(1), keysOf(index.queryPoint(new LatLng(0, 0), 0.001)));
+  }
+
+  @Test
+  public void boundsMatchBruteForce() {
+    final Random random = new Random(42);
+    final AnnotationIndex.Builder builder = new AnnotationIndex.Builder();
+    final double[] latitudes = new double[1000];
+    final double[] longitudes = new double[1000];
+    for (int i = 0; i < latitudes.length; i++) {
+      latitudes[i] = random.nextDouble() * 160 - 80;
+      longitudes[i] = random.nextDouble() * 360 - 180;
+      builder.addPoint(AnnotationIndex.SYMBOL, i, new LatLng(latitudes[i], longitudes[i]));
+    }
+    final AnnotationIndex index = builder.build();
+
+    for (int query = 0; query < 100; query++) {
+      final double south = random.nextDouble() * 120 - 80;
+      final double north = Math.min(80, south + random.nextDouble() * 40);
+      final double west = random.nextDouble() * 360 - 180;
+      final double east = ((west + random.nextDouble() * 60) + 180) % 360 - 180;
+      final Set<Long> expected = new HashSet<>();
+      for (int i = 0; i < latitudes.length; i++) {
+        final boolean insideLongitude = west <= east
+          ? longitudes[i] >= west && longitudes[i] <= east
+          : longitudes[i] >= west || longitudes[i] <= east;
+        if (insideLongitude && latitudes[i] >= south && latitudes[i] <= north) {
+          expected.add((long) i);
+        }
+      }
+      assertEquals(expected, keysOf(index.queryBounds(south, west, north, east)));
+    }
+  }
+
+  private static Set<Long> keys(long... keys) {
+    final Set<Long> set = new HashSet<>();
+    for (long key : keys) {
+      set.add(key);
+    }
+    return set;
+  }
+
+  private static Set<Long> keysOf(List<AnnotationIndex.Hit> hits) {
+    final Set<Long> set = new HashSet<>();
+    for (AnnotationIndex.Hit hit : hits) {
+      set.add(hit.key);
+    }
+    assertEquals("duplicate hits", hits.size(), set.size());
+    return set;
+  }
+}
@@ -0,0 +1,173 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.plugins.annotation.Line;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class LineSimplifierTest {
+  private static final int ZOOM = 8;
+
+  @Test
+  public void rankKeepsEndPointsAndDropsCollinearVertices() {
+    assertEquals(0, LineSimplifier.rank(Collections.<LatLng>emptyList()).length);
+
+    final double[] single = LineSimplifier.rank(Collections.singletonList(new LatLng(0, 0)));
+    assertEquals(Double.POSITIVE_INFINITY, single[0], 0);
+
+    final double[] ranks = LineSimplifier.rank(
+      Arrays.asList(new LatLng(0, 0), new LatLng(0, 1), new LatLng(0, 2), new LatLng(1, 3)));
+    assertEquals(Double.POSITIVE_INFINITY, ranks[0], 0);
+    assertEquals(Double.POSITIVE_INFINITY, ranks[3], 0);
+    assertEquals(0, ranks[1], 0);
+    assertTrue(ranks[2] > 0);
+  }
+
+  @Test
+  public void simplifyDropsVerticesBelowTheTolerance() {
+    final List<LatLng> geometry = Arrays.asList(new LatLng(0, 0), new LatLng(0.0001, 1),
+      new LatLng(0, 2), new LatLng(1, 3), new LatLng(0, 4));
+    final double[] ranks = LineSimplifier.rank(geometry);
+    final LineSimplifier simplifier = new LineSimplifier();
+    simplifier.setTolerance(1);
+
+    assertEquals(
+      Arrays.asList(geometry.get(0), geometry.get(2), geometry.get(3), geometry.get(4)),
+      simplifier.simplify(geometry, ranks, 0, ZOOM));
+    final int maxZoom = LineSimplifier.MAX_ZOOM;
+    assertEquals(geometry, simplifier.simplify(geometry, ranks, 0, maxZoom));
+    assertEquals(geometry.subList(2, 5), simplifier.simplify(geometry, ranks, 2, maxZoom));
+  }
+
+  @Test
+  public void appendsMatchSimplifyingFromScratch() {
+    final LineSimplifier simplifier = simplifier();
+    final Line line = mock(Line.class);
+    final LineController controller = newController(line, simplifier);
+    final List<LatLng> geometry = randomWalk(900);
+    controller.setSimplifiedGeometry(geometry.subList(0, 2), rank(geometry.subList(0, 2)));
+
+    for (int start = 2; start < geometry.size(); start += 7) {
+      final int end = Math.min(geometry.size(), start + 7);
+      controller.appendPoints(geometry.subList(start, end), 0);
+
+      final List<LatLng> appended = geometry.subList(0, end);
+      assertEquals(appended, controller.getGeometry());
+      assertEquals(simplifier.simplify(appended, rank(appended), 0, ZOOM), shownGeometry(line));
+    }
+  }
+
+  @Test
+  public void appendsBeyondAChunkKeepTheGeometryAndItsEnds() {
+    final LineSimplifier simplifier = simplifier();
+    final Line line = mock(Line.class);
+    final LineController controller = newController(line, simplifier);
+    final List<LatLng> geometry = randomWalk(5000);
+    controller.setSimplifiedGeometry(geometry.subList(0, 2), rank(geometry.subList(0, 2)));
+
+    for (int start = 2; start < geometry.size(); start += 100) {
+      controller.appendPoints(geometry.subList(start, Math.min(geometry.size(), start + 100)), 0);
+    }
+
+    assertEquals(geometry, controller.getGeometry());
+    assertOrderedSubsetWithEnds(geometry, shownGeometry(line));
+  }
+
+  @Test
+  public void appendsTrimToTheMaxLength() {
+    final LineSimplifier simplifier = simplifier();
+    final Line line = mock(Line.class);
+    final LineController controller = newController(line, simplifier);
+    final List<LatLng> geometry = randomWalk(3000);
+    controller.setSimplifiedGeometry(geometry.subList(0, 2), rank(geometry.subList(0, 2)));
+
+    for (int start = 2; start < geometry.size(); start += 50) {
+      final int end = Math.min(geometry.size(), start + 50);
+      controller.appendPoints(geometry.subList(start, end), 500);
+
+      final List<LatLng> kept = geometry.subList(Math.max(0, end - 500), end);
+      assertEquals(kept, controller.getGeometry());
+      assertOrderedSubsetWithEnds(kept, shownGeometry(line));
+    }
+  }
+
+  @Test
+  public void appendsWithoutSimplificationShowTheWholeGeometry() {
+    final LineSimplifier simplifier = new LineSimplifier();
+    final Line line = mock(Line.class);
+    final LineController controller = newController(line, simplifier);
+    final List<LatLng> geometry = randomWalk(100);
+    controller.setSimplifiedGeometry(geometry.subList(0, 2), null);
+
+    controller.appendPoints(geometry.subList(2, 100), 0);
+
+    assertEquals(geometry, controller.getGeometry());
+    assertEquals(geometry, shownGeometry(line));
+  }
+
+  private static LineController newController(Line line, LineSimplifier simplifier) {
+    return new LineController(line, null, 0, null, false, null, simplifier);
+  }
+
+  private static double[] rank(List<LatLng> geometry) {
+    return LineSimplifier.rank(geometry);
+  }
+
+  private static LineSimplifier simplifier() {
+    final LineSimplifier simplifier = new LineSimplifier();
+    simplifier.setTolerance(1);
+    simplifier.setZoom(ZOOM);
+    return simplifier;
+  }
+
+  private static List<LatLng> randomWalk(int count) {
+    final Random random = new Random(42);
+    final List<LatLng> geometry = new ArrayList<>(count);
+    double latitude = 0;
+    double longitude = 0;
+    for (int i = 0; i < count; i++) {
+      latitude += random.nextDouble() * 0.01 - 0.004;
+      longitude += random.nextDouble() * 0.01 - 0.004;
+      geometry.add(new LatLng(latitude, longitude));
+    }
+    return geometry;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<LatLng> shownGeometry(Line line) {
+    final ArgumentCaptor<List> geometry = ArgumentCaptor.forClass(List.class);
+    verify(line, atLeastOnce()).setLatLngs(geometry.capture());
+    return new ArrayList<>(geometry.getValue());
+  }
+
+  private static void assertOrderedSubsetWithEnds(List<LatLng> geometry, List<LatLng> simplified) {
+    assertTrue(simplified.size() >= 2);
+    assertEquals(geometry.get(0), simplified.get(0));
+    assertEquals(geometry.get(geometry.size() - 1), simplified.get(simplified.size() - 1));
+    int index = 0;
+    for (LatLng position : simplified) {
+      while (index < geometry.size() && geometry.get(index) != position) {
+        index++;
+      }
+      assertTrue("vertex out of order", index < geometry.size());
+      index++;
+    }
+  }
+}
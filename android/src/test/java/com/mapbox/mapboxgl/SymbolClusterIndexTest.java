@@ -0,0 +1,144 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package com.mapbox.mapboxgl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SymbolClusterIndexTest {
+  private static final int RADIUS = 50;
+  private static final int EXTENT = 512;
+  private static final int MAX_ZOOM = 16;
+
+  @Test
+  public void emptyIndex() {
+    final SymbolClusterIndex index =
+      new SymbolClusterIndex(new double[0], new double[0], RADIUS, EXTENT, 0, MAX_ZOOM);
+
+    for (int zoom = 0; zoom <= MAX_ZOOM + 1; zoom++) {
+      assertEquals(0, index.getClusters(zoom).length);
+    }
+    assertTrue(index.getChildren(0).isEmpty());
+    assertTrue(index.getLeaves(0).isEmpty());
+  }
+
+  @Test
+  public void singlePointIsNeverClustered() {
+    final SymbolClusterIndex index =
+      new SymbolClusterIndex(new double[] {20}, new double[] {10}, RADIUS, EXTENT, 0, MAX_ZOOM);
+
+    assertEquals(0, index.getPointZoom(0));
+    for (int zoom = 0; zoom <= MAX_ZOOM + 1; zoom++) {
+      final SymbolClusterIndex.Cluster[] clusters = index.getClusters(zoom);
+      assertEquals(1, clusters.length);
+      assertTrue(clusters[0].isPoint());
+      assertEquals(0, clusters[0].id);
+      assertEquals(20, clusters[0].getLongitude(), 1e-9);
+      assertEquals(10, clusters[0].getLatitude(), 1e-9);
+    }
+  }
+
+  @Test
+  public void clustersCoverEveryPointOnce() {
+    final SymbolClusterIndex index = randomIndex(500);
+
+    for (int zoom = 0; zoom <= MAX_ZOOM + 1; zoom++) {
+      final Set<Integer> points = new HashSet<>();
+      int count = 0;
+      for (SymbolClusterIndex.Cluster cluster : index.getClusters(zoom)) {
+        final List<Integer> leaves = leaves(index, cluster);
+        assertEquals(cluster.count, leaves.size());
+        points.addAll(leaves);
+        count += cluster.count;
+      }
+      assertEquals(500, count);
+      assertEquals(500, points.size());
+    }
+    assertEquals(500, index.getClusters(MAX_ZOOM + 1).length);
+  }
+
+  @Test
+  public void pointZoomsMatchTheClusters() {
+    final SymbolClusterIndex index = randomIndex(200);
+
+    for (int zoom = 0; zoom <= MAX_ZOOM + 1; zoom++) {
+      final Set<Integer> points = new HashSet<>();
+      for (SymbolClusterIndex.Cluster cluster : index.getClusters(zoom)) {
+        if (cluster.isPoint()) {
+          points.add((int) cluster.id);
+        }
+      }
+      for (int i = 0; i < 200; i++) {
+        assertEquals(index.getPointZoom(i) <= zoom, points.contains(i));
+      }
+    }
+  }
+
+  @Test
+  public void clustersExpandIntoSeveralClustersOrPoints() {
+    final SymbolClusterIndex index = randomIndex(500);
+
+    for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+      for (SymbolClusterIndex.Cluster cluster : index.getClusters(zoom)) {
+        if (cluster.isPoint()) {
+          continue;
+        }
+        final List<SymbolClusterIndex.Cluster> children = index.getChildren(cluster.id);
+        assertFalse(children.isEmpty());
+        int count = 0;
+        for (SymbolClusterIndex.Cluster child : children) {
+          count += child.count;
+        }
+        assertEquals(cluster.count, count);
+
+        final int expansionZoom = index.getExpansionZoom(cluster.id);
+        assertTrue(expansionZoom > zoom);
+        final Set<Integer> leaves = new HashSet<>(index.getLeaves(cluster.id));
+        int parts = 0;
+        for (SymbolClusterIndex.Cluster expanded : index.getClusters(expansionZoom)) {
+          final List<Integer> expandedLeaves = leaves(index, expanded);
+          if (leaves.containsAll(expandedLeaves)) {
+            parts++;
+          } else {
+            for (int leaf : expandedLeaves) {
+              assertFalse(leaves.contains(leaf));
+            }
+          }
+        }
+        assertTrue(parts > 1);
+      }
+    }
+  }
+
+  private static SymbolClusterIndex randomIndex(int count) {
+    final Random random = new Random(42);
+    final double[] longitudes = new double[count];
+    final double[] latitudes = new double[count];
+    for (int i = 0; i < count; i++) {
+      longitudes[i] = random.nextDouble() * 2 - 1;
+      latitudes[i] = random.nextDouble() * 2 - 1;
+    }
+    return new SymbolClusterIndex(longitudes, latitudes, RADIUS, EXTENT, 0, MAX_ZOOM);
+  }
+
+  private static List<Integer> leaves(
+    SymbolClusterIndex index, SymbolClusterIndex.Cluster cluster) {
+    if (cluster.isPoint()) {
+      final List<Integer> leaves = new ArrayList<>(1);
+      leaves.add((int) cluster.id);
+      return leaves;
+    }
+    return index.getLeaves(cluster.id);
+  }
+}
@@ -5,7 +5,9 @@
 library mapbox_gl;
 
 import 'dart:async';
+import 'dart:collection';
 import 'dart:math';
+import 'dart:typed_data';
 import 'dart:ui';
 
 import 'package:flutter/foundation.dart';
@@ -13,9 +15,11 @@ import 'package:flutter/gestures.dart';
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 
+part 'src/annotation_batch.dart';
 part 'src/bitmap.dart';
 part 'src/callbacks.dart';
 part 'src/camera.dart';
+part 'src/cluster.dart';
 part 'src/controller.dart';
 part 'src/mapbox_map.dart';
 part 'src/location.dart';
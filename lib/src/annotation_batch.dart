@@ -0,0 +1,145 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+part of mapbox_gl;
+
+/// An ordered list of symbol, line and circle changes, applied to the map in a
+/// single platform call by [MapboxMapController.applyAnnotationBatch].
+///
+/// On the platform side every annotation manager receives at most one create,
+/// one update and one delete call per batch, so the source of each annotation
+/// layer is refreshed once no matter how many operations the batch contains.
+class AnnotationBatch {
+  final List<_AnnotationOperation> _operations = <_AnnotationOperation>[];
+
+  /// Whether this batch contains no operations.
+  bool get isEmpty => _operations.isEmpty;
+
+  /// Queues the addition of a symbol configured using [options], optionally
+  /// known by the client assigned [id] and in the given [group], see
+  /// [MapboxMapController.addSymbol].
+  void addSymbol(SymbolOptions options, {String id, String group}) {
+    _operations.add(_AnnotationOperation('symbol', 'add', null,
+        SymbolOptions.defaultOptions.copyWith(options),
+        id: id, group: group));
+  }
+
+  /// Queues an update of [symbol] with the given [changes].
+  void updateSymbol(Symbol symbol, SymbolOptions changes) {
+    assert(symbol != null);
+    assert(changes != null);
+    _operations.add(_AnnotationOperation('symbol', 'update', symbol, changes));
+  }
+
+  /// Queues the removal of [symbol].
+  void removeSymbol(Symbol symbol) {
+    assert(symbol != null);
+    _operations.add(_AnnotationOperation('symbol', 'remove', symbol, null));
+  }
+
+  /// Queues the addition of a line configured using [options], optionally
+  /// known by the client assigned [id] and in the given [group], see
+  /// [MapboxMapController.addLine].
+  void addLine(LineOptions options, {String id, String group}) {
+    _operations.add(_AnnotationOperation(
+        'line', 'add', null, LineOptions.defaultOptions.copyWith(options),
+        id: id, group: group));
+  }
+
+  /// Queues an update of [line] with the given [changes].
+  void updateLine(Line line, LineOptions changes) {
+    assert(line != null);
+    assert(changes != null);
+    _operations.add(_AnnotationOperation('line', 'update', line, changes));
+  }
+
+  /// Queues the removal of [line].
+  void removeLine(Line line) {
+    assert(line != null);
+    _operations.add(_AnnotationOperation('line', 'remove', line, null));
+  }
+
+  /// Queues the addition of a circle configured using [options], optionally
+  /// known by the client assigned [id] and in the given [group], see
+  /// [MapboxMapController.addCircle].
+  void addCircle(CircleOptions options, {String id, String group}) {
+    _operations.add(_AnnotationOperation(
+        'circle', 'add', null, CircleOptions.defaultOptions.copyWith(options),
+        id: id, group: group));
+  }
+
+  /// Queues an update of [circle] with the given [changes].
+  void updateCircle(Circle circle, CircleOptions changes) {
+    assert(circle != null);
+    assert(changes != null);
+    _operations.add(_AnnotationOperation('circle', 'update', circle, changes));
+  }
+
+  /// Queues the removal of [circle].
+  void removeCircle(Circle circle) {
+    assert(circle != null);
+    _operations.add(_AnnotationOperation('circle', 'remove', circle, null));
+  }
+
+  dynamic _toJson() {
+    return _operations
+        .map((_AnnotationOperation operation) => operation._toJson())
+        .toList();
+  }
+}
+
+/// A one-way annotation update or removal that failed on the platform side,
+/// see [MapboxMapController.onMutationErrors].
+class AnnotationMutationError {
+  const AnnotationMutationError(this.method, this.id, this.message);
+
+  /// The platform method of the mutation, such as `symbol#update`.
+  final String method;
+
+  /// The id of the annotation the mutation was sent for.
+  final String id;
+
+  /// Describes why the mutation failed.
+  final String message;
+
+  @override
+  String toString() => 'AnnotationMutationError($method, $id, $message)';
+}
+
+class _AnnotationOperation {
+  _AnnotationOperation(this.type, this.op, this.annotation, this.options,
+      {this.id, this.group});
+
+  final String type;
+  final String op;
+  final dynamic annotation;
+  final dynamic options;
+
+  /// The client assigned id of an added annotation.
+  final String id;
+
+  /// The group of an added annotation.
+  final String group;
+
+  dynamic _toJson() {
+    final Map<String, dynamic> json = <String, dynamic>{
+      'type': type,
+      'op': op,
+    };
+    if (annotation != null) {
+      json['id'] = annotation.id;
+    } else if (id != null) {
+      json['id'] = id;
+    }
+    if (group != null) {
+      json['group'] = group;
+    }
+    if (options != null) {
+      // symbols and circles use the compact option encoding
+      json['options'] =
+          type == 'line' ? options._toJson() : options._toCompactJson();
+    }
+    return json;
+  }
+}
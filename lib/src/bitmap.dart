@@ -47,3 +47,58 @@ class BitmapDescriptor {
 
   dynamic _toJson() => _json;
 }
+
+/// An image added to the map style at runtime, which symbols reference by
+/// its [name] as [SymbolOptions.iconImage], see
+/// [MapboxMapController.addImages].
+class StyleImage {
+  /// Creates an image from encoded [bytes], such as the content of a PNG
+  /// file.
+  const StyleImage.fromBytes(this.name, Uint8List bytes,
+      {this.sdf = false, this.pixelRatio})
+      : _bytes = bytes,
+        _asset = null,
+        _package = null;
+
+  /// Creates an image from the asset [assetName], which is read on the
+  /// platform side.
+  const StyleImage.fromAsset(this.name, String assetName,
+      {String package, this.sdf = false, this.pixelRatio})
+      : _bytes = null,
+        _asset = assetName,
+        _package = package;
+
+  /// The name the image is added to the style with.
+  final String name;
+
+  /// True if the image is a signed distance field, which can be recolored
+  /// with [SymbolOptions.iconColor].
+  final bool sdf;
+
+  /// The number of image pixels per logical pixel, or null to draw every
+  /// image pixel as a physical pixel.
+  final double pixelRatio;
+
+  final Uint8List _bytes;
+  final String _asset;
+  final String _package;
+
+  dynamic _toJson() {
+    final Map<String, dynamic> json = <String, dynamic>{
+      'name': name,
+      'sdf': sdf,
+    };
+
+    void addIfPresent(String fieldName, dynamic value) {
+      if (value != null) {
+        json[fieldName] = value;
+      }
+    }
+
+    addIfPresent('bytes', _bytes);
+    addIfPresent('asset', _asset);
+    addIfPresent('package', _package);
+    addIfPresent('pixelRatio', pixelRatio);
+    return json;
+  }
+}
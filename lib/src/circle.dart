@@ -57,6 +57,9 @@ class CircleOptions {
   final LatLng geometry;
   final bool draggable;
 
+  // the length of the numbers of the compact form with every option set
+  static const int _maxCompactNumbers = 8;
+
   static const CircleOptions defaultOptions = CircleOptions(
 
   );
@@ -98,4 +101,66 @@ class CircleOptions {
     addIfPresent('draggable', draggable);
     return json;
   }
-}
\ No newline at end of file
+
+  /// Encodes the options in their compact form: a presence bitmask with one bit
+  /// per option in declaration order, the numeric values of present options
+  /// packed into a [Float64List] and the string values of present options.
+  ///
+  /// The order and kinds of the options are those of the field table the
+  /// platform side decodes the compact form with.
+  dynamic _toCompactJson() {
+    int mask = 0;
+    int field = 0;
+    int count = 0;
+    final Float64List numbers = Float64List(_maxCompactNumbers);
+    final List<String> strings = <String>[];
+
+    void addNumber(num value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value.toDouble();
+      }
+      field++;
+    }
+
+    void addString(String value) {
+      if (value != null) {
+        mask |= 1 << field;
+        strings.add(value);
+      }
+      field++;
+    }
+
+    void addLatLng(LatLng value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value.latitude;
+        numbers[count++] = value.longitude;
+      }
+      field++;
+    }
+
+    void addBool(bool value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value ? 1.0 : 0.0;
+      }
+      field++;
+    }
+
+    addNumber(circleRadius);
+    addString(circleColor);
+    addNumber(circleBlur);
+    addNumber(circleOpacity);
+    addNumber(circleStrokeWidth);
+    addString(circleStrokeColor);
+    addNumber(circleStrokeOpacity);
+    addLatLng(geometry);
+    addBool(draggable);
+    return <dynamic>[
+      mask,
+      Float64List.view(numbers.buffer, 0, count),
+      strings
+    ];
+  }
+}
@@ -0,0 +1,66 @@
+// Copyright 2018 The Chromium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+part of mapbox_gl;
+
+/// Configuration of symbol clustering, see
+/// [MapboxMapController.setSymbolClustering].
+class SymbolClusterOptions {
+  const SymbolClusterOptions({
+    this.radius = 50,
+    this.maxZoom = 16,
+    this.color = '#51bbd6',
+    this.textColor = '#ffffff',
+    this.expandOnTap = true,
+  });
+
+  /// The radius in pixels within which symbols are merged into a cluster.
+  final int radius;
+
+  /// The highest zoom at which symbols are clustered.
+  final int maxZoom;
+
+  /// The color of the cluster circles.
+  final String color;
+
+  /// The color of the symbol counts drawn on the cluster circles.
+  final String textColor;
+
+  /// True if tapping a cluster zooms the map to where it breaks up.
+  final bool expandOnTap;
+
+  dynamic _toJson() {
+    return <String, dynamic>{
+      'radius': radius,
+      'maxZoom': maxZoom,
+      'color': color,
+      'textColor': textColor,
+      'expandOnTap': expandOnTap,
+    };
+  }
+}
+
+/// A cluster of symbols tapped or expanded by the user, see
+/// [MapboxMapController.onClusterTapped].
+class SymbolCluster {
+  const SymbolCluster(this.id, this.pointCount, this.position,
+      this.expansionZoom, this.symbols);
+
+  /// The identifier of the cluster, only valid until the symbols of the map
+  /// change.
+  final int id;
+
+  /// The number of symbols in the cluster.
+  final int pointCount;
+
+  /// The position the cluster is drawn at.
+  final LatLng position;
+
+  /// The zoom at which the cluster breaks up into several clusters or
+  /// symbols.
+  final int expansionZoom;
+
+  /// The symbols in the cluster, only set when the cluster was expanded.
+  final List<Symbol> symbols;
+}
@@ -29,9 +29,18 @@ class MapboxMapController extends ChangeNotifier {
       {this.onMapClick, this.onCameraTrackingDismissed})
       : assert(_id != null),
         assert(channel != null),
-        _channel = channel {
+        _channel = channel,
+        _mutationChannel = BasicMessageChannel<dynamic>(
+            'plugins.flutter.io/mapbox_maps_mutations_$_id',
+            const StandardMessageCodec()) {
     _cameraPosition = initialCameraPosition;
     _channel.setMethodCallHandler(_handleMethodCall);
+    if (defaultTargetPlatform == TargetPlatform.android) {
+      _eventSubscription =
+          EventChannel('plugins.flutter.io/mapbox_maps_events_$_id')
+              .receiveBroadcastStream()
+              .listen(_handleEventBatch);
+    }
   }
 
   static Future<MapboxMapController> init(
@@ -49,6 +58,13 @@ class MapboxMapController extends ChangeNotifier {
 
   final MethodChannel _channel;
 
+  /// Channel of the one-way annotation mutations, see [_postMutation].
+  final BasicMessageChannel<dynamic> _mutationChannel;
+  final List<dynamic> _pendingMutations = <dynamic>[];
+
+  /// Subscription to the batched map events, see [_handleEventBatch].
+  StreamSubscription<dynamic> _eventSubscription;
+
   final OnMapClickCallback onMapClick;
 
   final OnCameraTrackingDismissedCallback onCameraTrackingDismissed;
@@ -56,9 +72,29 @@ class MapboxMapController extends ChangeNotifier {
   /// Callbacks to receive tap events for symbols placed on this map.
   final ArgumentCallbacks<Symbol> onSymbolTapped = ArgumentCallbacks<Symbol>();
 
+  /// Callbacks to receive the symbols whose animations finished, see
+  /// [animateSymbols].
+  final ArgumentCallbacks<Symbol> onSymbolAnimationFinished =
+      ArgumentCallbacks<Symbol>();
+
   /// Callbacks to receive tap events for symbols placed on this map.
   final ArgumentCallbacks<Circle> onCircleTapped = ArgumentCallbacks<Circle>();
 
+  /// Callbacks to receive tap events for symbol clusters, see
+  /// [setSymbolClustering].
+  final ArgumentCallbacks<SymbolCluster> onClusterTapped =
+      ArgumentCallbacks<SymbolCluster>();
+
+  /// Callbacks to receive the symbol clusters the map zoomed into after a
+  /// tap, with the symbols they contain.
+  final ArgumentCallbacks<SymbolCluster> onClusterExpanded =
+      ArgumentCallbacks<SymbolCluster>();
+
+  /// Callbacks to receive the failures of one-way annotation updates and
+  /// removals, such as [sendSymbolUpdate], reported in batches.
+  final ArgumentCallbacks<List<AnnotationMutationError>> onMutationErrors =
+      ArgumentCallbacks<List<AnnotationMutationError>>();
+
   /// Callbacks to receive tap events for info windows on symbols
   final ArgumentCallbacks<Symbol> onInfoWindowTapped =
       ArgumentCallbacks<Symbol>();
@@ -69,6 +105,10 @@ class MapboxMapController extends ChangeNotifier {
   Set<Symbol> get symbols => Set<Symbol>.from(_symbols.values);
   final Map<String, Symbol> _symbols = <String, Symbol>{};
 
+  /// Returns the symbol with the given [id], or null if this map has no such
+  /// symbol.
+  Symbol symbolWithId(String id) => _symbols[id];
+
   /// Callbacks to receive tap events for lines placed on this map.
   final ArgumentCallbacks<Line> onLineTapped = ArgumentCallbacks<Line>();
 
@@ -78,12 +118,20 @@ class MapboxMapController extends ChangeNotifier {
   Set<Line> get lines => Set<Line>.from(_lines.values);
   final Map<String, Line> _lines = <String, Line>{};
 
+  /// Returns the line with the given [id], or null if this map has no such
+  /// line.
+  Line lineWithId(String id) => _lines[id];
+
   /// The current set of circles on this map.
   ///
   /// The returned set will be a detached snapshot of the symbols collection.
   Set<Circle> get circles => Set<Circle>.from(_circles.values);
   final Map<String, Circle> _circles = <String, Circle>{};
 
+  /// Returns the circle with the given [id], or null if this map has no such
+  /// circle.
+  Circle circleWithId(String id) => _circles[id];
+
   /// True if the map camera is currently moving.
   bool get isCameraMoving => _isCameraMoving;
   bool _isCameraMoving = false;
@@ -111,6 +159,15 @@ class MapboxMapController extends ChangeNotifier {
           onSymbolTapped(symbol);
         }
         break;
+      case 'symbol#onAnimationEnd':
+        final List<dynamic> symbolIds = call.arguments['symbols'];
+        for (String symbolId in symbolIds) {
+          final Symbol symbol = _symbols[symbolId];
+          if (symbol != null) {
+            onSymbolAnimationFinished(symbol);
+          }
+        }
+        break;
       case 'line#onTap':
         final String lineId = call.arguments['line'];
         final Line line = _lines[lineId];
@@ -125,6 +182,31 @@ class MapboxMapController extends ChangeNotifier {
           onCircleTapped(circle);
         }
         break;
+      case 'cluster#onTap':
+        onClusterTapped(SymbolCluster(
+          call.arguments['cluster'],
+          call.arguments['count'],
+          LatLng(call.arguments['lat'], call.arguments['lng']),
+          call.arguments['expansionZoom'],
+          null,
+        ));
+        break;
+      case 'cluster#onExpand':
+        final List<Symbol> symbols = <Symbol>[];
+        for (dynamic symbolId in call.arguments['symbols']) {
+          final Symbol symbol = _symbols[symbolId];
+          if (symbol != null) {
+            symbols.add(symbol);
+          }
+        }
+        onClusterExpanded(SymbolCluster(
+          call.arguments['cluster'],
+          call.arguments['count'],
+          LatLng(call.arguments['lat'], call.arguments['lng']),
+          call.arguments['expansionZoom'],
+          symbols,
+        ));
+        break;
       case 'camera#onMoveStarted':
         _isCameraMoving = true;
         notifyListeners();
@@ -146,6 +228,15 @@ class MapboxMapController extends ChangeNotifier {
           onMapClick(Point<double>(x, y), LatLng(lat, lng));
         }
         break;
+      case 'mutations#onError':
+        final List<AnnotationMutationError> errors =
+            <AnnotationMutationError>[];
+        for (dynamic error in call.arguments['errors']) {
+          errors.add(AnnotationMutationError(
+              error['method'], error['id'], error['message']));
+        }
+        onMutationErrors(errors);
+        break;
       case 'map#onCameraTrackingDismissed':
         if (onCameraTrackingDismissed != null) {
           onCameraTrackingDismissed();
@@ -156,6 +247,52 @@ class MapboxMapController extends ChangeNotifier {
     }
   }
 
+  /// Handles a batch of events raised on the platform side within a frame.
+  ///
+  /// Each event is dispatched like a method call, after which the batch is
+  /// acknowledged so the platform side can send the next one. Until then the
+  /// platform side merges stale events, such as camera moves, into the latest.
+  void _handleEventBatch(dynamic batch) {
+    final int sequence = batch[0];
+    for (dynamic event in batch[1]) {
+      _handleMethodCall(MethodCall(event[0], event[1]));
+    }
+    _invokeMethod('events#ack', <String, dynamic>{
+      'sequence': sequence,
+    });
+  }
+
+  /// Invokes [method] on the platform side, after sending any pending one-way
+  /// mutations so the platform side handles calls in the order they were made.
+  Future<dynamic> _invokeMethod(String method, [dynamic arguments]) {
+    _flushMutations();
+    return _channel.invokeMethod(method, arguments);
+  }
+
+  /// Queues a one-way annotation mutation, which is sent together with all
+  /// other mutations queued in the same event loop turn.
+  void _postMutation(String method, Map<String, dynamic> arguments) {
+    if (_pendingMutations.isEmpty) {
+      scheduleMicrotask(_flushMutations);
+    }
+    _pendingMutations.add(<dynamic>[method, arguments]);
+  }
+
+  void _flushMutations() {
+    if (_pendingMutations.isEmpty) {
+      return;
+    }
+    _mutationChannel.send(List<dynamic>.from(_pendingMutations));
+    _pendingMutations.clear();
+  }
+
+  @override
+  void dispose() {
+    _pendingMutations.clear();
+    _eventSubscription?.cancel();
+    super.dispose();
+  }
+
   /// Updates configuration options of the map user interface.
   ///
   /// Change listeners are notified once the update has been made on the
@@ -164,7 +301,7 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes after listeners have been notified.
   Future<void> _updateMapOptions(Map<String, dynamic> optionsUpdate) async {
     assert(optionsUpdate != null);
-    final dynamic json = await _channel.invokeMethod(
+    final dynamic json = await _invokeMethod(
       'map#update',
       <String, dynamic>{
         'options': optionsUpdate,
@@ -179,7 +316,7 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes after the change has been started on the
   /// platform side.
   Future<void> animateCamera(CameraUpdate cameraUpdate) async {
-    await _channel.invokeMethod('camera#animate', <String, dynamic>{
+    await _invokeMethod('camera#animate', <String, dynamic>{
       'cameraUpdate': cameraUpdate._toJson(),
     });
   }
@@ -189,33 +326,201 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes after the change has been made on the
   /// platform side.
   Future<void> moveCamera(CameraUpdate cameraUpdate) async {
-    await _channel.invokeMethod('camera#move', <String, dynamic>{
+    await _invokeMethod('camera#move', <String, dynamic>{
       'cameraUpdate': cameraUpdate._toJson(),
     });
   }
 
   /// Adds a symbol to the map, configured using the specified custom [options].
   ///
+  /// If an [id] is given, the symbol is known by that id instead of one
+  /// assigned by the platform. It is registered in [symbols] right away, so it
+  /// can be looked up with [symbolWithId] and updated or removed without
+  /// awaiting this call, the platform side applies calls in order. The id
+  /// must be unique among the symbols of this map and must not be an integer.
+  ///
+  /// Symbols of the same [group] share an annotation source on the platform
+  /// side, so changing one of them only refreshes the symbols of its group. The
+  /// group of a symbol is fixed once it has been added.
+  ///
   /// Change listeners are notified once the symbol has been added on the
   /// platform side.
   ///
   /// The returned [Future] completes with the added symbol once listeners have
   /// been notified.
-  Future<Symbol> addSymbol(SymbolOptions options) async {
+  Future<Symbol> addSymbol(SymbolOptions options,
+      {String id, String group}) async {
     final SymbolOptions effectiveOptions =
         SymbolOptions.defaultOptions.copyWith(options);
-    final String symbolId = await _channel.invokeMethod(
-      'symbol#add',
-      <String, dynamic>{
-        'options': effectiveOptions._toJson(),
-      },
-    );
-    final Symbol symbol = Symbol(symbolId, effectiveOptions);
-    _symbols[symbolId] = symbol;
+    Symbol eager;
+    if (id != null) {
+      assert(int.tryParse(id) == null);
+      assert(!_symbols.containsKey(id));
+      eager = Symbol(id, effectiveOptions);
+      _symbols[id] = eager;
+    }
+    String symbolId;
+    try {
+      symbolId = await _invokeMethod(
+        'symbol#add',
+        <String, dynamic>{
+          'options': effectiveOptions._toCompactJson(),
+          'id': id,
+          'group': group,
+        },
+      );
+    } catch (_) {
+      // the id may have been removed and added again while this call was
+      // pending, only unregister the symbol this call registered
+      if (eager != null && identical(_symbols[id], eager)) {
+        _symbols.remove(id);
+      }
+      rethrow;
+    }
+    // an eagerly registered symbol removed while this call was pending is
+    // returned without registering it again
+    final Symbol symbol =
+        eager ?? (_symbols[symbolId] ??= Symbol(symbolId, effectiveOptions));
     notifyListeners();
     return symbol;
   }
 
+  /// Adds multiple symbols to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All symbols are created in a single platform call, so the annotation
+  /// source is only refreshed once for the whole batch.
+  ///
+  /// Client assigned [ids] and [groups] can be given for all symbols, in the
+  /// order of [options], see [addSymbol].
+  ///
+  /// Change listeners are notified once the symbols have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added symbols, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Symbol>> addSymbols(List<SymbolOptions> options,
+      {List<String> ids, List<String> groups}) async {
+    assert(options != null);
+    assert(ids == null || ids.length == options.length);
+    assert(groups == null || groups.length == options.length);
+    final List<SymbolOptions> effectiveOptions = options
+        .map((SymbolOptions o) => SymbolOptions.defaultOptions.copyWith(o))
+        .toList();
+    List<Symbol> eager;
+    if (ids != null) {
+      eager = <Symbol>[];
+      for (int i = 0; i < ids.length; i++) {
+        assert(int.tryParse(ids[i]) == null);
+        assert(!_symbols.containsKey(ids[i]));
+        eager.add(Symbol(ids[i], effectiveOptions[i]));
+        _symbols[ids[i]] = eager[i];
+      }
+    }
+    List<dynamic> symbolIds;
+    try {
+      symbolIds = await _invokeMethod(
+        'symbol#addAll',
+        <String, dynamic>{
+          'options': effectiveOptions
+              .map((SymbolOptions o) => o._toCompactJson())
+              .toList(),
+          'ids': ids,
+          'groups': groups,
+        },
+      );
+    } catch (_) {
+      for (int i = 0; i < (ids?.length ?? 0); i++) {
+        if (identical(_symbols[ids[i]], eager[i])) {
+          _symbols.remove(ids[i]);
+        }
+      }
+      rethrow;
+    }
+    final List<Symbol> symbols = <Symbol>[];
+    for (int i = 0; i < symbolIds.length; i++) {
+      symbols.add(eager != null
+          ? eager[i]
+          : (_symbols[symbolIds[i]] ??=
+              Symbol(symbolIds[i], effectiveOptions[i])));
+    }
+    notifyListeners();
+    return symbols;
+  }
+
+  /// Replaces all symbols of this map with the given keyed symbols.
+  ///
+  /// The platform side matches [symbols] with the current symbols by key, the
+  /// client assigned id of [addSymbol]. Only symbols whose options changed are
+  /// updated, new keys are added and the symbols missing from the map are
+  /// removed, with a single source refresh for all of them. Keys must not be
+  /// integers.
+  ///
+  /// [groups] maps keys to the group of their symbol, see [addSymbol]. A symbol
+  /// whose group changed is re-created in its new group, and so is one
+  /// whose options no longer set an option they set before.
+  ///
+  /// The symbols of this controller are replaced right away, so calls made
+  /// while this one is pending apply to the new symbols. The previous ones are
+  /// restored if the platform side fails to set them.
+  ///
+  /// Change listeners are notified once the symbols have been set on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes once listeners have been notified.
+  Future<void> setSymbols(Map<String, SymbolOptions> symbols,
+      {Map<String, String> groups}) async {
+    assert(symbols != null);
+    final List<String> ids = symbols.keys.toList();
+    final List<SymbolOptions> effectiveOptions = symbols.values
+        .map((SymbolOptions o) => SymbolOptions.defaultOptions.copyWith(o))
+        .toList();
+    // the registry is replaced before the platform call, so that calls made
+    // while it is pending apply to the new symbols like on the platform side
+    final Map<String, Symbol> previous = Map<String, Symbol>.from(_symbols);
+    final List<Symbol> current = <Symbol>[];
+    final List<SymbolOptions> previousOptions = <SymbolOptions>[];
+    _symbols.clear();
+    for (int i = 0; i < ids.length; i++) {
+      final Symbol symbol =
+          previous[ids[i]] ?? Symbol(ids[i], effectiveOptions[i]);
+      previousOptions.add(symbol._options);
+      symbol._options = effectiveOptions[i];
+      _symbols[ids[i]] = symbol;
+      current.add(symbol);
+    }
+    try {
+      await _invokeMethod('symbol#set', <String, dynamic>{
+        'ids': ids,
+        'groups': groups == null
+            ? null
+            : ids.map((String id) => groups[id]).toList(),
+        'options': effectiveOptions
+            .map((SymbolOptions o) => o._toCompactJson())
+            .toList(),
+      });
+    } catch (_) {
+      // nothing was set on the platform side, restore the symbols this call
+      // replaced unless they changed while it was pending
+      for (int i = 0; i < ids.length; i++) {
+        if (identical(current[i]._options, effectiveOptions[i])) {
+          current[i]._options = previousOptions[i];
+        }
+        if (!previous.containsKey(ids[i]) &&
+            identical(_symbols[ids[i]], current[i])) {
+          _symbols.remove(ids[i]);
+        }
+      }
+      previous.forEach((String id, Symbol symbol) {
+        if (!symbols.containsKey(id)) {
+          _symbols.putIfAbsent(id, () => symbol);
+        }
+      });
+      rethrow;
+    }
+    notifyListeners();
+  }
+
   /// Updates the specified [symbol] with the given [changes]. The symbol must
   /// be a current member of the [symbols] set.
   ///
@@ -227,14 +532,60 @@ class MapboxMapController extends ChangeNotifier {
     assert(symbol != null);
     assert(_symbols[symbol._id] == symbol);
     assert(changes != null);
-    await _channel.invokeMethod('symbol#update', <String, dynamic>{
+    await _invokeMethod('symbol#update', <String, dynamic>{
       'symbol': symbol._id,
-      'options': changes._toJson(),
+      'options': changes._toCompactJson(),
     });
     symbol._options = symbol._options.copyWith(changes);
     notifyListeners();
   }
 
+  /// Moves the specified [symbol] to [position] over [duration], rotating its
+  /// icon to [bearing] if given, see [animateSymbols].
+  Future<void> animateSymbol(Symbol symbol, LatLng position,
+      {double bearing,
+      Duration duration = const Duration(seconds: 1),
+      SymbolAnimationEasing easing = SymbolAnimationEasing.linear}) {
+    return animateSymbols(<Symbol>[symbol], <LatLng>[position],
+        bearings: bearing != null ? <double>[bearing] : null,
+        duration: duration,
+        easing: easing);
+  }
+
+  /// Moves the specified [symbols] to [positions] over [duration], rotating
+  /// their icons to [bearings] if given.
+  ///
+  /// The symbols are interpolated on the platform side every frame without
+  /// further calls, and reported to [onSymbolAnimationFinished] once they
+  /// reach their targets. Animating a symbol again or updating its geometry
+  /// stops its running animation. The options of the symbols are set to the
+  /// targets right away.
+  ///
+  /// Change listeners are notified once the animations have been started on
+  /// the platform side.
+  Future<void> animateSymbols(List<Symbol> symbols, List<LatLng> positions,
+      {List<double> bearings,
+      Duration duration = const Duration(seconds: 1),
+      SymbolAnimationEasing easing = SymbolAnimationEasing.linear}) async {
+    assert(symbols != null);
+    assert(positions != null && positions.length == symbols.length);
+    assert(bearings == null || bearings.length == symbols.length);
+    assert(duration != null);
+    await _invokeMethod('symbol#animate', <String, dynamic>{
+      'symbols': symbols.map((Symbol symbol) => symbol._id).toList(),
+      'positions':
+          positions.map((LatLng position) => position._toJson()).toList(),
+      'bearings': bearings,
+      'duration': duration.inMilliseconds,
+      'easing': easing.index,
+    });
+    for (int i = 0; i < symbols.length; i++) {
+      symbols[i]._options = symbols[i]._options.copyWith(SymbolOptions(
+          geometry: positions[i], iconRotate: bearings?.elementAt(i)));
+    }
+    notifyListeners();
+  }
+
   /// Removes the specified [symbol] from the map. The symbol must be a current
   /// member of the [symbols] set.
   ///
@@ -270,34 +621,241 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes once the symbol has been removed from
   /// [_symbols].
   Future<void> _removeSymbol(String id) async {
-    await _channel.invokeMethod('symbol#remove', <String, dynamic>{
+    final Symbol symbol = _symbols[id];
+    await _invokeMethod('symbol#remove', <String, dynamic>{
       'symbol': id,
     });
-    _symbols.remove(id);
+    // a symbol added again under the same id meanwhile stays registered
+    if (identical(_symbols[id], symbol)) {
+      _symbols.remove(id);
+    }
+  }
+
+  /// Updates the specified [symbol] with the given [changes] without waiting
+  /// for the platform side to reply. The symbol must be a current member of the
+  /// [symbols] set.
+  ///
+  /// Unlike [updateSymbol], the update is queued and sent together with the
+  /// other one-way updates and removals of the current event loop turn, in a
+  /// single platform message. Failures are reported to [onMutationErrors].
+  ///
+  /// Change listeners are notified right away.
+  void sendSymbolUpdate(Symbol symbol, SymbolOptions changes) {
+    assert(symbol != null);
+    assert(_symbols[symbol._id] == symbol);
+    assert(changes != null);
+    _postMutation('symbol#update', <String, dynamic>{
+      'symbol': symbol._id,
+      'options': changes._toCompactJson(),
+    });
+    symbol._options = symbol._options.copyWith(changes);
+    notifyListeners();
+  }
+
+  /// Removes the specified [symbol] from the map without waiting for the
+  /// platform side to reply, see [sendSymbolUpdate]. The symbol must be a
+  /// current member of the [symbols] set.
+  ///
+  /// Change listeners are notified right away.
+  void sendSymbolRemoval(Symbol symbol) {
+    assert(symbol != null);
+    assert(_symbols[symbol._id] == symbol);
+    _postMutation('symbol#remove', <String, dynamic>{
+      'symbol': symbol._id,
+    });
+    _symbols.remove(symbol._id);
+    notifyListeners();
   }
 
   /// Adds a line to the map, configured using the specified custom [options].
   ///
+  /// If an [id] is given, the line is known by that id instead of one
+  /// assigned by the platform. It is registered in [lines] right away, so it
+  /// can be looked up with [lineWithId] and updated or removed without
+  /// awaiting this call, the platform side applies calls in order. The id
+  /// must be unique among the lines of this map and must not be an integer.
+  ///
+  /// Lines of the same [group] share an annotation source on the platform
+  /// side, so changing one of them only refreshes the lines of its group. The
+  /// group of a line is fixed once it has been added.
+  ///
   /// Change listeners are notified once the line has been added on the
   /// platform side.
   ///
   /// The returned [Future] completes with the added line once listeners have
   /// been notified.
-  Future<Line> addLine(LineOptions options) async {
+  Future<Line> addLine(LineOptions options,
+      {String id, String group}) async {
     final LineOptions effectiveOptions =
         LineOptions.defaultOptions.copyWith(options);
-    final String lineId = await _channel.invokeMethod(
-      'line#add',
-      <String, dynamic>{
-        'options': effectiveOptions._toJson(),
-      },
-    );
-    final Line line = Line(lineId, effectiveOptions);
-    _lines[lineId] = line;
+    Line eager;
+    if (id != null) {
+      assert(int.tryParse(id) == null);
+      assert(!_lines.containsKey(id));
+      eager = Line(id, effectiveOptions);
+      _lines[id] = eager;
+    }
+    String lineId;
+    try {
+      lineId = await _invokeMethod(
+        'line#add',
+        <String, dynamic>{
+          'options': effectiveOptions._toJson(),
+          'id': id,
+          'group': group,
+        },
+      );
+    } catch (_) {
+      // the id may have been removed and added again while this call was
+      // pending, only unregister the line this call registered
+      if (eager != null && identical(_lines[id], eager)) {
+        _lines.remove(id);
+      }
+      rethrow;
+    }
+    // an eagerly registered line removed while this call was pending is
+    // returned without registering it again
+    final Line line =
+        eager ?? (_lines[lineId] ??= Line(lineId, effectiveOptions));
     notifyListeners();
     return line;
   }
 
+  /// Adds multiple lines to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All lines are created in a single platform call, so the annotation
+  /// source is only refreshed once for the whole batch.
+  ///
+  /// Client assigned [ids] and [groups] can be given for all lines, in the
+  /// order of [options], see [addLine].
+  ///
+  /// Change listeners are notified once the lines have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added lines, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Line>> addLines(List<LineOptions> options,
+      {List<String> ids, List<String> groups}) async {
+    assert(options != null);
+    assert(ids == null || ids.length == options.length);
+    assert(groups == null || groups.length == options.length);
+    final List<LineOptions> effectiveOptions = options
+        .map((LineOptions o) => LineOptions.defaultOptions.copyWith(o))
+        .toList();
+    List<Line> eager;
+    if (ids != null) {
+      eager = <Line>[];
+      for (int i = 0; i < ids.length; i++) {
+        assert(int.tryParse(ids[i]) == null);
+        assert(!_lines.containsKey(ids[i]));
+        eager.add(Line(ids[i], effectiveOptions[i]));
+        _lines[ids[i]] = eager[i];
+      }
+    }
+    List<dynamic> lineIds;
+    try {
+      lineIds = await _invokeMethod(
+        'line#addAll',
+        <String, dynamic>{
+          'options':
+              effectiveOptions.map((LineOptions o) => o._toJson()).toList(),
+          'ids': ids,
+          'groups': groups,
+        },
+      );
+    } catch (_) {
+      for (int i = 0; i < (ids?.length ?? 0); i++) {
+        if (identical(_lines[ids[i]], eager[i])) {
+          _lines.remove(ids[i]);
+        }
+      }
+      rethrow;
+    }
+    final List<Line> lines = <Line>[];
+    for (int i = 0; i < lineIds.length; i++) {
+      lines.add(eager != null
+          ? eager[i]
+          : (_lines[lineIds[i]] ??=
+              Line(lineIds[i], effectiveOptions[i])));
+    }
+    notifyListeners();
+    return lines;
+  }
+
+  /// Replaces all lines of this map with the given keyed lines.
+  ///
+  /// The platform side matches [lines] with the current lines by key, the
+  /// client assigned id of [addLine]. Only lines whose options changed are
+  /// updated, new keys are added and the lines missing from the map are
+  /// removed, with a single source refresh for all of them. Keys must not be
+  /// integers.
+  ///
+  /// [groups] maps keys to the group of their line, see [addLine]. A line
+  /// whose group changed is re-created in its new group, and so is one
+  /// whose options no longer set an option they set before.
+  ///
+  /// The lines of this controller are replaced right away, so calls made
+  /// while this one is pending apply to the new lines. The previous ones are
+  /// restored if the platform side fails to set them.
+  ///
+  /// Change listeners are notified once the lines have been set on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes once listeners have been notified.
+  Future<void> setLines(Map<String, LineOptions> lines,
+      {Map<String, String> groups}) async {
+    assert(lines != null);
+    final List<String> ids = lines.keys.toList();
+    final List<LineOptions> effectiveOptions = lines.values
+        .map((LineOptions o) => LineOptions.defaultOptions.copyWith(o))
+        .toList();
+    // the registry is replaced before the platform call, so that calls made
+    // while it is pending apply to the new lines like on the platform side
+    final Map<String, Line> previous = Map<String, Line>.from(_lines);
+    final List<Line> current = <Line>[];
+    final List<LineOptions> previousOptions = <LineOptions>[];
+    _lines.clear();
+    for (int i = 0; i < ids.length; i++) {
+      final Line line =
+          previous[ids[i]] ?? Line(ids[i], effectiveOptions[i]);
+      previousOptions.add(line._options);
+      line._options = effectiveOptions[i];
+      _lines[ids[i]] = line;
+      current.add(line);
+    }
+    try {
+      await _invokeMethod('line#set', <String, dynamic>{
+        'ids': ids,
+        'groups': groups == null
+            ? null
+            : ids.map((String id) => groups[id]).toList(),
+        'options': effectiveOptions
+            .map((LineOptions o) => o._toJson())
+            .toList(),
+      });
+    } catch (_) {
+      // nothing was set on the platform side, restore the lines this call
+      // replaced unless they changed while it was pending
+      for (int i = 0; i < ids.length; i++) {
+        if (identical(current[i]._options, effectiveOptions[i])) {
+          current[i]._options = previousOptions[i];
+        }
+        if (!previous.containsKey(ids[i]) &&
+            identical(_lines[ids[i]], current[i])) {
+          _lines.remove(ids[i]);
+        }
+      }
+      previous.forEach((String id, Line line) {
+        if (!lines.containsKey(id)) {
+          _lines.putIfAbsent(id, () => line);
+        }
+      });
+      rethrow;
+    }
+    notifyListeners();
+  }
+
   /// Updates the specified [line] with the given [changes]. The line must
   /// be a current member of the [lines] set.
   ///
@@ -309,7 +867,7 @@ class MapboxMapController extends ChangeNotifier {
     assert(line != null);
     assert(_lines[line._id] == line);
     assert(changes != null);
-    await _channel.invokeMethod('line#update', <String, dynamic>{
+    await _invokeMethod('line#update', <String, dynamic>{
       'line': line._id,
       'options': changes._toJson(),
     });
@@ -352,34 +910,276 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes once the line has been removed from
   /// [_lines].
   Future<void> _removeLine(String id) async {
-    await _channel.invokeMethod('line#remove', <String, dynamic>{
+    final Line line = _lines[id];
+    await _invokeMethod('line#remove', <String, dynamic>{
       'line': id,
     });
-    _lines.remove(id);
+    // a line added again under the same id meanwhile stays registered
+    if (identical(_lines[id], line)) {
+      _lines.remove(id);
+    }
+  }
+
+  /// Updates the specified [line] with the given [changes] without waiting
+  /// for the platform side to reply. The line must be a current member of the
+  /// [lines] set.
+  ///
+  /// Unlike [updateLine], the update is queued and sent together with the
+  /// other one-way updates and removals of the current event loop turn, in a
+  /// single platform message. Failures are reported to [onMutationErrors].
+  ///
+  /// Change listeners are notified right away.
+  void sendLineUpdate(Line line, LineOptions changes) {
+    assert(line != null);
+    assert(_lines[line._id] == line);
+    assert(changes != null);
+    _postMutation('line#update', <String, dynamic>{
+      'line': line._id,
+      'options': changes._toJson(),
+    });
+    line._options = line._options.copyWith(changes);
+    notifyListeners();
+  }
+
+  /// Removes the specified [line] from the map without waiting for the
+  /// platform side to reply, see [sendLineUpdate]. The line must be a
+  /// current member of the [lines] set.
+  ///
+  /// Change listeners are notified right away.
+  void sendLineRemoval(Line line) {
+    assert(line != null);
+    assert(_lines[line._id] == line);
+    _postMutation('line#remove', <String, dynamic>{
+      'line': line._id,
+    });
+    _lines.remove(line._id);
+    notifyListeners();
+  }
+
+  /// Appends [points] to the geometry of [line] without waiting for the
+  /// platform side to reply, see [sendLineUpdate]. The line must be a current
+  /// member of the [lines] set.
+  ///
+  /// Only the new points are sent, so the message size of each call does not
+  /// grow with the line, which suits live tracks. If [maxLength] is given,
+  /// the oldest points beyond that many are dropped. The points are packed
+  /// like the geometry of [line], see [LineOptions.quantizeGeometry].
+  ///
+  /// The [Line.options] of [line] are replaced with options whose geometry
+  /// shares its points with the previous one rather than copying them, so
+  /// appending costs no more on the Dart side for long tracks. Previously
+  /// obtained options keep their geometry.
+  ///
+  /// Change listeners are notified right away.
+  void appendLinePoints(Line line, List<LatLng> points, {int maxLength}) {
+    assert(line != null);
+    assert(_lines[line._id] == line);
+    assert(points != null);
+    assert(maxLength == null || maxLength > 0);
+    _postMutation('line#appendPoints', <String, dynamic>{
+      'line': line._id,
+      'points': _geometryToJson(points, line._options.quantizeGeometry),
+      'maxLength': maxLength,
+    });
+    final List<LatLng> geometry = line._options.geometry;
+    final _AppendableGeometry appendable = geometry is _AppendableGeometry
+        ? geometry
+        : _AppendableGeometry(geometry ?? const <LatLng>[]);
+    line._options = line._options.copyWith(
+        LineOptions(geometry: appendable._append(points, maxLength)));
+    notifyListeners();
   }
 
   /// Adds a circle to the map, configured using the specified custom [options].
   ///
+  /// If an [id] is given, the circle is known by that id instead of one
+  /// assigned by the platform. It is registered in [circles] right away, so it
+  /// can be looked up with [circleWithId] and updated or removed without
+  /// awaiting this call, the platform side applies calls in order. The id
+  /// must be unique among the circles of this map and must not be an integer.
+  ///
+  /// Circles of the same [group] share an annotation source on the platform
+  /// side, so changing one of them only refreshes the circles of its group. The
+  /// group of a circle is fixed once it has been added.
+  ///
   /// Change listeners are notified once the circle has been added on the
   /// platform side.
   ///
   /// The returned [Future] completes with the added circle once listeners have
   /// been notified.
-  Future<Circle> addCircle(CircleOptions options) async {
+  Future<Circle> addCircle(CircleOptions options,
+      {String id, String group}) async {
     final CircleOptions effectiveOptions =
-    CircleOptions.defaultOptions.copyWith(options);
-    final String circleId = await _channel.invokeMethod(
-      'circle#add',
-      <String, dynamic>{
-        'options': effectiveOptions._toJson(),
-      },
-    );
-    final Circle circle = Circle(circleId, effectiveOptions);
-    _circles[circleId] = circle;
+        CircleOptions.defaultOptions.copyWith(options);
+    Circle eager;
+    if (id != null) {
+      assert(int.tryParse(id) == null);
+      assert(!_circles.containsKey(id));
+      eager = Circle(id, effectiveOptions);
+      _circles[id] = eager;
+    }
+    String circleId;
+    try {
+      circleId = await _invokeMethod(
+        'circle#add',
+        <String, dynamic>{
+          'options': effectiveOptions._toCompactJson(),
+          'id': id,
+          'group': group,
+        },
+      );
+    } catch (_) {
+      // the id may have been removed and added again while this call was
+      // pending, only unregister the circle this call registered
+      if (eager != null && identical(_circles[id], eager)) {
+        _circles.remove(id);
+      }
+      rethrow;
+    }
+    // an eagerly registered circle removed while this call was pending is
+    // returned without registering it again
+    final Circle circle =
+        eager ?? (_circles[circleId] ??= Circle(circleId, effectiveOptions));
     notifyListeners();
     return circle;
   }
 
+  /// Adds multiple circles to the map, configured using the specified custom
+  /// [options].
+  ///
+  /// All circles are created in a single platform call, so the annotation
+  /// source is only refreshed once for the whole batch.
+  ///
+  /// Client assigned [ids] and [groups] can be given for all circles, in the
+  /// order of [options], see [addCircle].
+  ///
+  /// Change listeners are notified once the circles have been added on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes with the added circles, in the order of
+  /// [options], once listeners have been notified.
+  Future<List<Circle>> addCircles(List<CircleOptions> options,
+      {List<String> ids, List<String> groups}) async {
+    assert(options != null);
+    assert(ids == null || ids.length == options.length);
+    assert(groups == null || groups.length == options.length);
+    final List<CircleOptions> effectiveOptions = options
+        .map((CircleOptions o) => CircleOptions.defaultOptions.copyWith(o))
+        .toList();
+    List<Circle> eager;
+    if (ids != null) {
+      eager = <Circle>[];
+      for (int i = 0; i < ids.length; i++) {
+        assert(int.tryParse(ids[i]) == null);
+        assert(!_circles.containsKey(ids[i]));
+        eager.add(Circle(ids[i], effectiveOptions[i]));
+        _circles[ids[i]] = eager[i];
+      }
+    }
+    List<dynamic> circleIds;
+    try {
+      circleIds = await _invokeMethod(
+        'circle#addAll',
+        <String, dynamic>{
+          'options': effectiveOptions
+              .map((CircleOptions o) => o._toCompactJson())
+              .toList(),
+          'ids': ids,
+          'groups': groups,
+        },
+      );
+    } catch (_) {
+      for (int i = 0; i < (ids?.length ?? 0); i++) {
+        if (identical(_circles[ids[i]], eager[i])) {
+          _circles.remove(ids[i]);
+        }
+      }
+      rethrow;
+    }
+    final List<Circle> circles = <Circle>[];
+    for (int i = 0; i < circleIds.length; i++) {
+      circles.add(eager != null
+          ? eager[i]
+          : (_circles[circleIds[i]] ??=
+              Circle(circleIds[i], effectiveOptions[i])));
+    }
+    notifyListeners();
+    return circles;
+  }
+
+  /// Replaces all circles of this map with the given keyed circles.
+  ///
+  /// The platform side matches [circles] with the current circles by key, the
+  /// client assigned id of [addCircle]. Only circles whose options changed are
+  /// updated, new keys are added and the circles missing from the map are
+  /// removed, with a single source refresh for all of them. Keys must not be
+  /// integers.
+  ///
+  /// [groups] maps keys to the group of their circle, see [addCircle]. A circle
+  /// whose group changed is re-created in its new group, and so is one
+  /// whose options no longer set an option they set before.
+  ///
+  /// The circles of this controller are replaced right away, so calls made
+  /// while this one is pending apply to the new circles. The previous ones are
+  /// restored if the platform side fails to set them.
+  ///
+  /// Change listeners are notified once the circles have been set on the
+  /// platform side.
+  ///
+  /// The returned [Future] completes once listeners have been notified.
+  Future<void> setCircles(Map<String, CircleOptions> circles,
+      {Map<String, String> groups}) async {
+    assert(circles != null);
+    final List<String> ids = circles.keys.toList();
+    final List<CircleOptions> effectiveOptions = circles.values
+        .map((CircleOptions o) => CircleOptions.defaultOptions.copyWith(o))
+        .toList();
+    // the registry is replaced before the platform call, so that calls made
+    // while it is pending apply to the new circles like on the platform side
+    final Map<String, Circle> previous = Map<String, Circle>.from(_circles);
+    final List<Circle> current = <Circle>[];
+    final List<CircleOptions> previousOptions = <CircleOptions>[];
+    _circles.clear();
+    for (int i = 0; i < ids.length; i++) {
+      final Circle circle =
+          previous[ids[i]] ?? Circle(ids[i], effectiveOptions[i]);
+      previousOptions.add(circle._options);
+      circle._options = effectiveOptions[i];
+      _circles[ids[i]] = circle;
+      current.add(circle);
+    }
+    try {
+      await _invokeMethod('circle#set', <String, dynamic>{
+        'ids': ids,
+        'groups': groups == null
+            ? null
+            : ids.map((String id) => groups[id]).toList(),
+        'options': effectiveOptions
+            .map((CircleOptions o) => o._toCompactJson())
+            .toList(),
+      });
+    } catch (_) {
+      // nothing was set on the platform side, restore the circles this call
+      // replaced unless they changed while it was pending
+      for (int i = 0; i < ids.length; i++) {
+        if (identical(current[i]._options, effectiveOptions[i])) {
+          current[i]._options = previousOptions[i];
+        }
+        if (!previous.containsKey(ids[i]) &&
+            identical(_circles[ids[i]], current[i])) {
+          _circles.remove(ids[i]);
+        }
+      }
+      previous.forEach((String id, Circle circle) {
+        if (!circles.containsKey(id)) {
+          _circles.putIfAbsent(id, () => circle);
+        }
+      });
+      rethrow;
+    }
+    notifyListeners();
+  }
+
   /// Updates the specified [circle] with the given [changes]. The circle must
   /// be a current member of the [circles] set.
   ///
@@ -391,15 +1191,14 @@ class MapboxMapController extends ChangeNotifier {
     assert(circle != null);
     assert(_circles[circle._id] == circle);
     assert(changes != null);
-    await _channel.invokeMethod('circle#update', <String, dynamic>{
+    await _invokeMethod('circle#update', <String, dynamic>{
       'circle': circle._id,
-      'options': changes._toJson(),
+      'options': changes._toCompactJson(),
     });
     circle._options = circle._options.copyWith(changes);
     notifyListeners();
   }
 
-
   /// Removes the specified [circle] from the map. The circle must be a current
   /// member of the [circles] set.
   ///
@@ -435,22 +1234,369 @@ class MapboxMapController extends ChangeNotifier {
   /// The returned [Future] completes once the circle has been removed from
   /// [_circles].
   Future<void> _removeCircle(String id) async {
-    await _channel.invokeMethod('circle#remove', <String, dynamic>{
+    final Circle circle = _circles[id];
+    await _invokeMethod('circle#remove', <String, dynamic>{
       'circle': id,
     });
-    _circles.remove(id);
+    // a circle added again under the same id meanwhile stays registered
+    if (identical(_circles[id], circle)) {
+      _circles.remove(id);
+    }
   }
 
+  /// Updates the specified [circle] with the given [changes] without waiting
+  /// for the platform side to reply. The circle must be a current member of the
+  /// [circles] set.
+  ///
+  /// Unlike [updateCircle], the update is queued and sent together with the
+  /// other one-way updates and removals of the current event loop turn, in a
+  /// single platform message. Failures are reported to [onMutationErrors].
+  ///
+  /// Change listeners are notified right away.
+  void sendCircleUpdate(Circle circle, CircleOptions changes) {
+    assert(circle != null);
+    assert(_circles[circle._id] == circle);
+    assert(changes != null);
+    _postMutation('circle#update', <String, dynamic>{
+      'circle': circle._id,
+      'options': changes._toCompactJson(),
+    });
+    circle._options = circle._options.copyWith(changes);
+    notifyListeners();
+  }
+
+  /// Removes the specified [circle] from the map without waiting for the
+  /// platform side to reply, see [sendCircleUpdate]. The circle must be a
+  /// current member of the [circles] set.
+  ///
+  /// Change listeners are notified right away.
+  void sendCircleRemoval(Circle circle) {
+    assert(circle != null);
+    assert(_circles[circle._id] == circle);
+    _postMutation('circle#remove', <String, dynamic>{
+      'circle': circle._id,
+    });
+    _circles.remove(circle._id);
+    notifyListeners();
+  }
+
+  /// Applies all operations of [batch] to the map in a single platform call.
+  ///
+  /// Operations are applied in order. Updated and removed annotations must be
+  /// current members of the [symbols], [lines] and [circles] sets.
+  ///
+  /// Change listeners are notified once the whole batch has been applied on
+  /// the platform side.
+  ///
+  /// The returned [Future] completes with the added [Symbol], [Line] and
+  /// [Circle] instances, in the order of the add operations, once listeners
+  /// have been notified.
+  Future<List<dynamic>> applyAnnotationBatch(AnnotationBatch batch) async {
+    assert(batch != null);
+    final List<dynamic> addedIds = await _invokeMethod(
+      'annotations#apply',
+      <String, dynamic>{
+        'operations': batch._toJson(),
+      },
+    );
+    final List<dynamic> added = <dynamic>[];
+    for (_AnnotationOperation operation in batch._operations) {
+      final String key = '${operation.type}#${operation.op}';
+      switch (key) {
+        case 'symbol#add':
+          final Symbol symbol =
+              Symbol(addedIds[added.length], operation.options);
+          _symbols[symbol._id] = symbol;
+          added.add(symbol);
+          break;
+        case 'symbol#update':
+          final Symbol symbol = operation.annotation;
+          symbol._options = symbol._options.copyWith(operation.options);
+          break;
+        case 'symbol#remove':
+          final Symbol symbol = operation.annotation;
+          if (identical(_symbols[symbol._id], symbol)) {
+            _symbols.remove(symbol._id);
+          }
+          break;
+        case 'line#add':
+          final Line line = Line(addedIds[added.length], operation.options);
+          _lines[line._id] = line;
+          added.add(line);
+          break;
+        case 'line#update':
+          final Line line = operation.annotation;
+          line._options = line._options.copyWith(operation.options);
+          break;
+        case 'line#remove':
+          final Line line = operation.annotation;
+          if (identical(_lines[line._id], line)) {
+            _lines.remove(line._id);
+          }
+          break;
+        case 'circle#add':
+          final Circle circle =
+              Circle(addedIds[added.length], operation.options);
+          _circles[circle._id] = circle;
+          added.add(circle);
+          break;
+        case 'circle#update':
+          final Circle circle = operation.annotation;
+          circle._options = circle._options.copyWith(operation.options);
+          break;
+        case 'circle#remove':
+          final Circle circle = operation.annotation;
+          if (identical(_circles[circle._id], circle)) {
+            _circles.remove(circle._id);
+          }
+          break;
+      }
+    }
+    notifyListeners();
+    return added;
+  }
+
+  /// Adds [image] to the map style, see [addImages].
+  Future<void> addImage(StyleImage image) {
+    return addImages(<StyleImage>[image]);
+  }
+
+  /// Adds [images] to the map style, replacing any images of the same names,
+  /// so that symbols can use them as [SymbolOptions.iconImage].
+  ///
+  /// Images are read and decoded in the background on the platform side. The
+  /// decoded images are cached by their content, so images added under
+  /// several names or added again are decoded only once, and are added to
+  /// the style again whenever it is reloaded.
+  ///
+  /// Adding images at runtime is only supported on Android.
+  ///
+  /// The returned [Future] completes once the images have been added, and
+  /// fails without adding any of them if one cannot be decoded.
+  Future<void> addImages(List<StyleImage> images) async {
+    assert(images != null);
+    await _invokeMethod('style#addImages', <String, dynamic>{
+      'images': images.map((StyleImage image) => image._toJson()).toList(),
+    });
+  }
+
+  /// Removes the image [name] added by [addImages] from the map style.
+  Future<void> removeImage(String name) async {
+    assert(name != null);
+    await _invokeMethod('style#removeImage', <String, dynamic>{
+      'name': name,
+    });
+  }
+
+  /// Draws the symbols of this map as clusters configured by [options], or
+  /// each symbol on its own again if [options] is null.
+  ///
+  /// The platform side clusters all symbols once per zoom level in the
+  /// background whenever the symbols change, and only redraws the clusters
+  /// when the map crosses an integer zoom. Symbols that are part of a cluster
+  /// at the current zoom are hidden. Taps on clusters are reported to
+  /// [onClusterTapped], and to [onClusterExpanded] once the map zoomed in if
+  /// [SymbolClusterOptions.expandOnTap] is set.
+  ///
+  /// Clustering is only supported on Android.
+  ///
+  /// The returned [Future] completes once clustering has been configured.
+  Future<void> setSymbolClustering(SymbolClusterOptions options) async {
+    await _invokeMethod('symbol#setClustering', <String, dynamic>{
+      'options': options?._toJson(),
+    });
+  }
+
+  /// Simplifies the geometry of all lines for the current zoom, dropping
+  /// vertices closer than [tolerance] logical pixels to the simplified line,
+  /// or draws the full geometries again if [tolerance] is null.
+  ///
+  /// The platform side ranks the vertices of every line once when its
+  /// geometry is set, and only swaps in the vertices of another level when
+  /// the map crosses an integer zoom. Lines keep their full geometry, which
+  /// is what [queryAnnotations] matches against.
+  ///
+  /// Line simplification is only supported on Android.
+  ///
+  /// The returned [Future] completes once the lines have been simplified.
+  Future<void> setLineSimplification(double tolerance) async {
+    assert(tolerance == null || tolerance > 0);
+    await _invokeMethod('line#setSimplification', <String, dynamic>{
+      'tolerance': tolerance,
+    });
+  }
+
+  /// Keeps symbols and circles that are off screen out of the map on the
+  /// platform side if [enabled] is true, or adds all of them again otherwise.
+  ///
+  /// Only the symbols and circles inside the visible bounds, grown on every
+  /// side by [margin] times their size, are added to the map. The others are
+  /// only kept in a spatial index and added once the camera stops near them,
+  /// or while it moves once the screen leaves the added area. Annotations
+  /// keep their ids while out of the map and can be updated and removed as
+  /// usual.
+  ///
+  /// Virtualization is only supported on Android.
+  ///
+  /// The returned [Future] completes once the visible set has been updated.
+  Future<void> setAnnotationVirtualization(bool enabled,
+      {double margin = 0.5}) async {
+    assert(enabled != null);
+    assert(margin != null && margin >= 0);
+    await _invokeMethod('annotations#setVirtualization', <String, dynamic>{
+      'enabled': enabled,
+      'margin': margin,
+    });
+  }
+
+  /// Returns the symbols, lines and circles within [radius] logical pixels
+  /// of [point] at the current zoom, nearest first and at most [limit] of
+  /// them.
+  ///
+  /// The platform side keeps a spatial index over the geometries of all
+  /// annotations, including hidden and virtualized ones, so the query does
+  /// not depend on what is rendered. The index is rebuilt on the first query
+  /// after annotations changed.
+  ///
+  /// Each result is a [Symbol], [Line] or [Circle]. Annotation queries are
+  /// only supported on Android.
+  Future<List<dynamic>> queryAnnotations(LatLng point,
+      {double radius = 40, int limit}) async {
+    assert(point != null);
+    assert(radius != null && radius >= 0);
+    final List<dynamic> hits =
+        await _invokeMethod('annotations#queryPoint', <String, dynamic>{
+      'point': point._toJson(),
+      'radius': radius,
+      'limit': limit,
+    });
+    return _annotationsFromHits(hits);
+  }
+
+  /// Returns the symbols, lines and circles intersecting [bounds], nearest
+  /// to its center first and at most [limit] of them, see
+  /// [queryAnnotations].
+  Future<List<dynamic>> queryAnnotationsInBounds(LatLngBounds bounds,
+      {int limit}) async {
+    assert(bounds != null);
+    final List<dynamic> hits =
+        await _invokeMethod('annotations#queryBounds', <String, dynamic>{
+      'bounds': bounds._toList(),
+      'limit': limit,
+    });
+    return _annotationsFromHits(hits);
+  }
+
+  List<dynamic> _annotationsFromHits(List<dynamic> hits) {
+    final List<dynamic> annotations = <dynamic>[];
+    for (dynamic hit in hits) {
+      final String id = hit['id'];
+      final dynamic annotation = hit['type'] == 'symbol'
+          ? _symbols[id]
+          : hit['type'] == 'line' ? _lines[id] : _circles[id];
+      if (annotation != null) {
+        annotations.add(annotation);
+      }
+    }
+    return annotations;
+  }
+
+  /// Shows or hides all symbols, lines and circles of [group], see
+  /// [addSymbol].
+  ///
+  /// Every group has its own annotation layers on the platform side, so this
+  /// is a single layer change no matter how many annotations the group holds.
+  /// The state also applies to annotations added to the group later.
+  ///
+  /// The returned [Future] completes once the change has been applied.
+  Future<void> setAnnotationGroupVisibility(String group, bool visible) async {
+    assert(group != null);
+    assert(visible != null);
+    await _invokeMethod('annotationGroup#setVisibility', <String, dynamic>{
+      'group': group,
+      'visible': visible,
+    });
+  }
+
+  /// Scales the opacity of all symbols, lines and circles of [group] by
+  /// [opacity], a value between 0 and 1, see
+  /// [setAnnotationGroupVisibility].
+  ///
+  /// The returned [Future] completes once the change has been applied.
+  Future<void> setAnnotationGroupOpacity(String group, double opacity) async {
+    assert(group != null);
+    assert(opacity != null && opacity >= 0 && opacity <= 1);
+    await _invokeMethod('annotationGroup#setOpacity', <String, dynamic>{
+      'group': group,
+      'opacity': opacity,
+    });
+  }
+
+  /// Only shows the annotations of [group] matching [filter], a JSON encoded
+  /// filter expression evaluated against the annotation properties such as
+  /// `'[">=", ["get", "icon-size"], 1]'`, or all of them if [filter] is null,
+  /// see [setAnnotationGroupVisibility].
+  ///
+  /// The returned [Future] completes once the change has been applied.
+  Future<void> setAnnotationGroupFilter(String group, String filter) async {
+    assert(group != null);
+    await _invokeMethod('annotationGroup#setFilter', <String, dynamic>{
+      'group': group,
+      'filter': filter,
+    });
+  }
+
+  /// Returns runtime counters of the platform side of this map.
+  ///
+  /// Annotation updates are pushed to the map once per frame, the
+  /// `updatesRequested`, `updatesFlushed` and `updatesCoalesced` entries tell
+  /// how many updates were requested, how many annotation updates were
+  /// actually applied and how many were merged into a later update of the
+  /// same annotation. `updatesCancelled` counts the pending updates dropped
+  /// because their annotation was removed or moved out of the map.
+  ///
+  /// On Android, [queryRenderedFeatures] replies are cached until the camera,
+  /// style or annotations change; `queryCacheHits`, `queryCacheMisses` and
+  /// `queryCacheInvalidations` report how effective that cache is.
+  ///
+  /// While annotations are virtualized, see [setAnnotationVirtualization],
+  /// `virtualizedSymbols` and `virtualizedCircles` tell how many are kept
+  /// out of the map. `animatedSymbols` is the number of symbols currently
+  /// moved by [animateSymbols].
+  ///
+  /// The images added by [addImages] are decoded into a cache bounded in
+  /// size; `imageCacheHits`, `imageCacheMisses` and `imageCacheBytes` report
+  /// its use and `images` the number of added images.
+  Future<Map<dynamic, dynamic>> getStats() async {
+    return await _invokeMethod('map#getStats');
+  }
+
+  /// Queries the map for rendered features at [point], in the layers with
+  /// the given [layerIds] and matching the optional [filter], a JSON encoded
+  /// filter expression such as `'["==", "class", "park"]'`.
+  ///
+  /// Each feature is returned as a GeoJSON string. To keep replies small, the
+  /// feature properties can be restricted to a whitelist of [properties],
+  /// geometries can be left out with [includeGeometry], and matches can be
+  /// paged through with [limit] and [offset].
   Future<List> queryRenderedFeatures(
-      Point<double> point, List<String> layerIds, String filter) async {
+      Point<double> point, List<String> layerIds, String filter,
+      {List<String> properties,
+      bool includeGeometry = true,
+      int limit,
+      int offset}) async {
     try {
-      final Map<Object, Object> reply = await _channel.invokeMethod(
+      final Map<Object, Object> reply = await _invokeMethod(
         'map#queryRenderedFeatures',
         <String, Object>{
           'x': point.x,
           'y': point.y,
           'layerIds': layerIds,
           'filter': filter,
+          'properties': properties,
+          'includeGeometry': includeGeometry,
+          'limit': limit,
+          'offset': offset,
         },
       );
       return reply['features'];
@@ -459,10 +1605,16 @@ class MapboxMapController extends ChangeNotifier {
     }
   }
 
+  /// Queries the map for rendered features within [rect], see
+  /// [queryRenderedFeatures] for the other arguments.
   Future<List> queryRenderedFeaturesInRect(
-      Rect rect, List<String> layerIds, String filter) async {
+      Rect rect, List<String> layerIds, String filter,
+      {List<String> properties,
+      bool includeGeometry = true,
+      int limit,
+      int offset}) async {
     try {
-      final Map<Object, Object> reply = await _channel.invokeMethod(
+      final Map<Object, Object> reply = await _invokeMethod(
         'map#queryRenderedFeatures',
         <String, Object>{
           'left': rect.left,
@@ -471,6 +1623,10 @@ class MapboxMapController extends ChangeNotifier {
           'bottom': rect.bottom,
           'layerIds': layerIds,
           'filter': filter,
+          'properties': properties,
+          'includeGeometry': includeGeometry,
+          'limit': limit,
+          'offset': offset,
         },
       );
       return reply['features'];
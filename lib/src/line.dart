@@ -27,6 +27,91 @@ class Line {
   LineOptions get options => _options;
 }
 
+/// Packs [geometry] into interleaved latitude/longitude values.
+///
+/// Coordinates are sent as degrees in a [Float64List], or as E7 fixed-point
+/// integers in an [Int32List] when [quantize] is true, which halves the
+/// payload at a precision of about one centimeter.
+dynamic _geometryToJson(List<LatLng> geometry, bool quantize) {
+  if (geometry == null) {
+    return null;
+  }
+  if (quantize == true) {
+    final Int32List packed = Int32List(geometry.length * 2);
+    for (int i = 0; i < geometry.length; i++) {
+      packed[i * 2] = (geometry[i].latitude * 1e7).round();
+      packed[i * 2 + 1] = (geometry[i].longitude * 1e7).round();
+    }
+    return packed;
+  }
+  final Float64List packed = Float64List(geometry.length * 2);
+  for (int i = 0; i < geometry.length; i++) {
+    packed[i * 2] = geometry[i].latitude;
+    packed[i * 2 + 1] = geometry[i].longitude;
+  }
+  return packed;
+}
+
+/// The geometry of a line extended by
+/// [MapboxMapController.appendLinePoints].
+///
+/// Geometries are immutable views of a growable list of points shared by the
+/// geometries appended from the same line. Appending to the geometry that
+/// ends where the list ends adds the points to the list and returns a longer
+/// view, so it costs amortized constant time per point instead of copying the
+/// whole track, while the geometry appended to keeps its points as it may
+/// still be held through the [LineOptions] it was part of. Appending to any
+/// other geometry copies it first. Dropped points are only skipped, and copied
+/// away once they outnumber the kept ones.
+class _AppendableGeometry extends ListBase<LatLng> {
+  _AppendableGeometry(List<LatLng> points)
+      : this._(List<LatLng>.from(points), 0, points.length);
+
+  _AppendableGeometry._(this._points, this._start, this._end);
+
+  final List<LatLng> _points;
+  final int _start;
+  final int _end;
+
+  @override
+  int get length => _end - _start;
+
+  @override
+  set length(int length) {
+    throw UnsupportedError('Cannot change the length of a line geometry');
+  }
+
+  @override
+  LatLng operator [](int index) {
+    RangeError.checkValidIndex(index, this);
+    return _points[_start + index];
+  }
+
+  @override
+  void operator []=(int index, LatLng value) {
+    throw UnsupportedError('Cannot modify a line geometry');
+  }
+
+  _AppendableGeometry _append(List<LatLng> points, int maxLength) {
+    List<LatLng> buffer = _points;
+    int start = _start;
+    if (_end != _points.length) {
+      // another geometry was appended from this one
+      buffer = List<LatLng>.from(_points.getRange(_start, _end));
+      start = 0;
+    }
+    buffer.addAll(points);
+    if (maxLength != null && buffer.length - start > maxLength) {
+      start = buffer.length - maxLength;
+      if (start > maxLength) {
+        buffer = List<LatLng>.from(buffer.getRange(start, buffer.length));
+        start = 0;
+      }
+    }
+    return _AppendableGeometry._(buffer, start, buffer.length);
+  }
+}
+
 /// Configuration options for [Line] instances.
 ///
 /// When used to change configuration, null values will be interpreted as
@@ -47,6 +132,7 @@ class LineOptions {
     this.linePattern,
     this.geometry,
     this.draggable,
+    this.quantizeGeometry,
   });
 
   final String lineJoin;
@@ -60,6 +146,10 @@ class LineOptions {
   final List<LatLng> geometry;
   final bool draggable;
 
+  /// Whether [geometry] is sent to the platform side as E7 fixed-point
+  /// coordinates, halving the payload size of long lines.
+  final bool quantizeGeometry;
+
   static const LineOptions defaultOptions = LineOptions();
 
   LineOptions copyWith(LineOptions changes) {
@@ -77,6 +167,7 @@ class LineOptions {
       linePattern: changes.linePattern ?? linePattern,
       geometry: changes.geometry ?? geometry,
       draggable: changes.draggable ?? draggable,
+      quantizeGeometry: changes.quantizeGeometry ?? quantizeGeometry,
     );
   }
 
@@ -97,7 +188,7 @@ class LineOptions {
     addIfPresent('lineOffset', lineOffset);
     addIfPresent('lineBlur', lineBlur);
     addIfPresent('linePattern', linePattern);
-    addIfPresent('geometry', geometry?.map((LatLng latLng) => latLng._toJson())?.toList());
+    addIfPresent('geometry', _geometryToJson(geometry, quantizeGeometry));
     addIfPresent('draggable', draggable);
     return json;
   }
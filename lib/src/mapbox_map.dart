@@ -20,8 +20,10 @@ class MapboxMap extends StatefulWidget {
     this.zoomGesturesEnabled = true,
     this.tiltGesturesEnabled = true,
     this.trackCameraPosition = false,
+    this.cameraMoveEventOptions = CameraMoveEventOptions.unthrottled,
     this.myLocationEnabled = false,
     this.myLocationTrackingMode = MyLocationTrackingMode.Tracking,
+    this.annotationShards = 1,
     this.onMapClick,
     this.onCameraTrackingDismissed,
   }) : assert(initialCameraPosition != null);
@@ -62,6 +64,10 @@ class MapboxMap extends StatefulWidget {
   /// True if the map view should relay camera move events to Flutter.
   final bool trackCameraPosition;
 
+  /// How often camera move events are relayed while [trackCameraPosition] is
+  /// enabled.
+  final CameraMoveEventOptions cameraMoveEventOptions;
+
   /// True if a "My Location" layer should be shown on the map.
   ///
   /// This layer includes a location indicator at the current device location,
@@ -90,6 +96,14 @@ class MapboxMap extends StatefulWidget {
   /// The mode used to track the user location on the map
   final MyLocationTrackingMode myLocationTrackingMode;
 
+  /// The number of shards symbols, lines and circles without a group are
+  /// spread across by the map tile they are created in.
+  ///
+  /// Every annotation change rebuilds the source of its shard, so with many
+  /// annotations spread over the map, more shards make each change cheaper.
+  /// Changing this only affects annotations added afterwards.
+  final int annotationShards;
+
   /// Which gestures should be consumed by the map.
   ///
   /// It is possible for other gesture recognizers to be competing with the map on pointer
@@ -194,9 +208,11 @@ class _MapboxMapOptions {
     this.scrollGesturesEnabled,
     this.tiltGesturesEnabled,
     this.trackCameraPosition,
+    this.cameraMoveEventOptions,
     this.zoomGesturesEnabled,
     this.myLocationEnabled,
     this.myLocationTrackingMode,
+    this.annotationShards,
   });
 
   static _MapboxMapOptions fromWidget(MapboxMap map) {
@@ -209,9 +225,11 @@ class _MapboxMapOptions {
       scrollGesturesEnabled: map.scrollGesturesEnabled,
       tiltGesturesEnabled: map.tiltGesturesEnabled,
       trackCameraPosition: map.trackCameraPosition,
+      cameraMoveEventOptions: map.cameraMoveEventOptions,
       zoomGesturesEnabled: map.zoomGesturesEnabled,
       myLocationEnabled: map.myLocationEnabled,
       myLocationTrackingMode: map.myLocationTrackingMode,
+      annotationShards: map.annotationShards,
     );
   }
 
@@ -231,12 +249,16 @@ class _MapboxMapOptions {
 
   final bool trackCameraPosition;
 
+  final CameraMoveEventOptions cameraMoveEventOptions;
+
   final bool zoomGesturesEnabled;
 
   final bool myLocationEnabled;
 
   final MyLocationTrackingMode myLocationTrackingMode;
 
+  final int annotationShards;
+
   Map<String, dynamic> toMap() {
     final Map<String, dynamic> optionsMap = <String, dynamic>{};
 
@@ -255,8 +277,11 @@ class _MapboxMapOptions {
     addIfNonNull('tiltGesturesEnabled', tiltGesturesEnabled);
     addIfNonNull('zoomGesturesEnabled', zoomGesturesEnabled);
     addIfNonNull('trackCameraPosition', trackCameraPosition);
+    addIfNonNull(
+        'cameraMoveEventOptions', cameraMoveEventOptions?._toJson());
     addIfNonNull('myLocationEnabled', myLocationEnabled);
     addIfNonNull('myLocationTrackingMode', myLocationTrackingMode?.index);
+    addIfNonNull('annotationShards', annotationShards);
     return optionsMap;
   }
 
@@ -101,6 +101,9 @@ class SymbolOptions {
   final int zIndex;
   final bool draggable;
 
+  // the length of the numbers of the compact form with every option set
+  static const int _maxCompactNumbers = 20;
+
   static const SymbolOptions defaultOptions = SymbolOptions(
 
   );
@@ -179,4 +182,92 @@ class SymbolOptions {
     return json;
   }
 
-}
\ No newline at end of file
+  /// Encodes the options in their compact form: a presence bitmask with one bit
+  /// per option in declaration order, the numeric values of present options
+  /// packed into a [Float64List] and the string values of present options.
+  ///
+  /// The order and kinds of the options are those of the field table the
+  /// platform side decodes the compact form with.
+  dynamic _toCompactJson() {
+    int mask = 0;
+    int field = 0;
+    int count = 0;
+    final Float64List numbers = Float64List(_maxCompactNumbers);
+    final List<String> strings = <String>[];
+
+    void addNumber(num value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value.toDouble();
+      }
+      field++;
+    }
+
+    void addString(String value) {
+      if (value != null) {
+        mask |= 1 << field;
+        strings.add(value);
+      }
+      field++;
+    }
+
+    void addOffset(Offset value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value.dx;
+        numbers[count++] = value.dy;
+      }
+      field++;
+    }
+
+    void addLatLng(LatLng value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value.latitude;
+        numbers[count++] = value.longitude;
+      }
+      field++;
+    }
+
+    void addBool(bool value) {
+      if (value != null) {
+        mask |= 1 << field;
+        numbers[count++] = value ? 1.0 : 0.0;
+      }
+      field++;
+    }
+
+    addNumber(iconSize);
+    addString(iconImage);
+    addNumber(iconRotate);
+    addOffset(iconOffset);
+    addString(iconAnchor);
+    addString(textField);
+    addNumber(textSize);
+    addNumber(textMaxWidth);
+    addNumber(textLetterSpacing);
+    addString(textJustify);
+    addString(textAnchor);
+    addNumber(textRotate);
+    addString(textTransform);
+    addOffset(textOffset);
+    addNumber(iconOpacity);
+    addString(iconColor);
+    addString(iconHaloColor);
+    addNumber(iconHaloWidth);
+    addNumber(iconHaloBlur);
+    addNumber(textOpacity);
+    addString(textColor);
+    addString(textHaloColor);
+    addNumber(textHaloWidth);
+    addNumber(textHaloBlur);
+    addLatLng(geometry);
+    addNumber(zIndex);
+    addBool(draggable);
+    return <dynamic>[
+      mask,
+      Float64List.view(numbers.buffer, 0, count),
+      strings
+    ];
+  }
+}
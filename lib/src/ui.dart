@@ -51,6 +51,15 @@ enum MyLocationTrackingMode {
   TrackingGPS,
 }
 
+/// The easing curve of symbol animations, see
+/// [MapboxMapController.animateSymbols].
+enum SymbolAnimationEasing {
+  linear,
+  easeIn,
+  easeOut,
+  easeInOut,
+}
+
 /// Bounds for the map camera target.
 // Used with [MapboxMapOptions] to wrap a [LatLngBounds] value. This allows
 // distinguishing between specifying an unbounded target (null `LatLngBounds`)
@@ -123,3 +132,74 @@ class MinMaxZoomPreference {
     return 'MinMaxZoomPreference(minZoom: $minZoom, maxZoom: $maxZoom)';
   }
 }
+
+/// Controls how camera move events are delivered while
+/// [MapboxMap.trackCameraPosition] is enabled.
+///
+/// A move is reported when it changes the zoom, bearing or target by at least
+/// the given minimum delta, at most [maxEventsPerSecond] times per second.
+/// The latest position is always reported once the camera becomes idle.
+class CameraMoveEventOptions {
+  const CameraMoveEventOptions({
+    this.maxEventsPerSecond = 0,
+    this.minZoomDelta = 0.0,
+    this.minBearingDelta = 0.0,
+    this.minTargetDelta = 0.0,
+    this.oncePerFrame = false,
+  })  : assert(maxEventsPerSecond != null && maxEventsPerSecond >= 0),
+        assert(minZoomDelta != null),
+        assert(minBearingDelta != null),
+        assert(minTargetDelta != null),
+        assert(oncePerFrame != null);
+
+  /// The maximum number of move events per second, or 0 if unlimited.
+  final int maxEventsPerSecond;
+
+  /// The minimum zoom change since the last reported move.
+  final double minZoomDelta;
+
+  /// The minimum bearing change in degrees since the last reported move.
+  final double minBearingDelta;
+
+  /// The minimum distance in logical pixels the target has to move on
+  /// screen since the last reported move.
+  final double minTargetDelta;
+
+  /// True if moves should be reported at most once per rendered frame, with
+  /// the latest camera position of that frame.
+  final bool oncePerFrame;
+
+  /// Reports every camera move.
+  static const CameraMoveEventOptions unthrottled = CameraMoveEventOptions();
+
+  dynamic _toJson() => <dynamic>[
+        maxEventsPerSecond,
+        minZoomDelta,
+        minBearingDelta,
+        minTargetDelta,
+        oncePerFrame,
+      ];
+
+  @override
+  bool operator ==(dynamic other) {
+    if (identical(this, other)) return true;
+    if (runtimeType != other.runtimeType) return false;
+    final CameraMoveEventOptions typedOther = other;
+    return maxEventsPerSecond == typedOther.maxEventsPerSecond &&
+        minZoomDelta == typedOther.minZoomDelta &&
+        minBearingDelta == typedOther.minBearingDelta &&
+        minTargetDelta == typedOther.minTargetDelta &&
+        oncePerFrame == typedOther.oncePerFrame;
+  }
+
+  @override
+  int get hashCode => hashValues(maxEventsPerSecond, minZoomDelta,
+      minBearingDelta, minTargetDelta, oncePerFrame);
+
+  @override
+  String toString() {
+    return 'CameraMoveEventOptions(maxEventsPerSecond: $maxEventsPerSecond, '
+        'minZoomDelta: $minZoomDelta, minBearingDelta: $minBearingDelta, '
+        'minTargetDelta: $minTargetDelta, oncePerFrame: $oncePerFrame)';
+  }
+}